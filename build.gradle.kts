@@ -143,6 +143,11 @@ dependencies {
     implementation("jakarta.json:jakarta.json-api:2.0.0")
 
     implementation("org.glassfish:jakarta.json:2.0.0")
+
+    // Benchmarks
+    val jmhVersion = "1.35"
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
 }
 
 java {
@@ -174,6 +179,10 @@ sourceSets {
             srcDir(atlasDir)
         }
     }
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output + configurations.compileClasspath.get()
+        runtimeClasspath += sourceSets.main.get().output + configurations.runtimeClasspath.get()
+    }
 }
 
 tasks.create<JavaExec>("generateExamples") {
@@ -202,6 +211,19 @@ application {
     mainClass.set("$rootPackage.Main")
 }
 
+// Run all benchmarks with `./gradlew jmh`, or pass arguments to JMH, e.g.
+// `./gradlew jmh --args="MonotonyBenchmark -p size=2"`.
+tasks.create<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs JMH benchmarks."
+    dependsOn("jmhClasses")
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    jvmArgs("--enable-preview")
+    args("-rf", "json", "-rff", buildDir.resolve("reports/jmh/results.json").toString())
+    doFirst { buildDir.resolve("reports/jmh").mkdirs() }
+}
+
 tasks.create<JavaCompile>("compileGeneratedJava") {
     dependsOn("generateExamples")
     source = fileTree(buildDir.resolve("generated-src/atlas/main"))
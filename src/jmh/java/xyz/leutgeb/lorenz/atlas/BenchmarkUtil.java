@@ -0,0 +1,79 @@
+package xyz.leutgeb.lorenz.atlas;
+
+import static xyz.leutgeb.lorenz.atlas.util.Util.getProperty;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import xyz.leutgeb.lorenz.atlas.ast.FunctionDefinition;
+import xyz.leutgeb.lorenz.atlas.ast.Program;
+import xyz.leutgeb.lorenz.atlas.module.Loader;
+import xyz.leutgeb.lorenz.atlas.typing.resources.AnnotatingGlobals;
+import xyz.leutgeb.lorenz.atlas.typing.resources.CombinedFunctionAnnotation;
+import xyz.leutgeb.lorenz.atlas.typing.resources.heuristics.SmartRangeHeuristic;
+import xyz.leutgeb.lorenz.atlas.typing.resources.proving.Prover;
+
+/** Fixtures shared by benchmarks. Inputs are the example modules that tests use. */
+public class BenchmarkUtil {
+  public static final Path EXAMPLES =
+      Paths.get(
+          getProperty(
+              BenchmarkUtil.class,
+              "examples",
+              Paths.get(".", "src", "test", "resources", "examples").toString()));
+
+  public static Loader loader() {
+    return new Loader(EXAMPLES);
+  }
+
+  public static Program load(String fqn) {
+    try {
+      return loader().load(Set.of(fqn));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static Program loadAndNormalize(String fqn) {
+    final var result = load(fqn);
+    result.normalize();
+    return result;
+  }
+
+  public static Program loadAndNormalizeAndInferAndUnshare(String fqn) {
+    final var result = loadAndNormalize(fqn);
+    if (!result.infer()) {
+      throw new IllegalStateException("could not infer types of " + fqn);
+    }
+    result.unshare(true);
+    result.analyzeSizes();
+    return result;
+  }
+
+  /**
+   * Prepares a prover for the typing obligation of the given function, with annotations stubbed the
+   * same way as when inferring.
+   */
+  public static Prover stub(Program program, String fqn, Path out) {
+    final FunctionDefinition fd = program.getFunctionDefinitions().get(fqn);
+    final var heuristic = SmartRangeHeuristic.DEFAULT;
+    final Map<String, CombinedFunctionAnnotation> annotations = new HashMap<>();
+    fd.stubAnnotations(annotations, heuristic, 0, true);
+    return new Prover(
+        fd.getFullyQualifiedName(),
+        new AnnotatingGlobals(annotations, fd.getSizeAnalysis(), heuristic),
+        out);
+  }
+
+  /** Proves the typing obligation of the given function and returns the prover. */
+  public static Prover prove(Program program, String fqn, Path out) {
+    final var prover = stub(program, fqn, out);
+    final var fd = program.getFunctionDefinitions().get(fqn);
+    prover.prove(fd.getTypingObligation(), fd);
+    return prover;
+  }
+}
@@ -0,0 +1,65 @@
+package xyz.leutgeb.lorenz.atlas.ast;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.leutgeb.lorenz.atlas.BenchmarkUtil;
+
+/**
+ * Benchmarks {@link Program#normalize()} and {@link Program#infer()}. Both mutate the program, so a
+ * fresh one is loaded before every invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ProgramBenchmark {
+  @State(Scope.Thread)
+  public static class Loaded {
+    @Param({"SplayTree.splay", "PairingHeap.merge_pairs"})
+    public String fqn;
+
+    Program program;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+      program = BenchmarkUtil.load(fqn);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Normalized {
+    @Param({"SplayTree.splay", "PairingHeap.merge_pairs"})
+    public String fqn;
+
+    Program program;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+      program = BenchmarkUtil.loadAndNormalize(fqn);
+    }
+  }
+
+  @Benchmark
+  public Program normalize(Loaded state) {
+    state.program.normalize();
+    return state.program;
+  }
+
+  @Benchmark
+  public boolean infer(Normalized state) {
+    return state.program.infer();
+  }
+}
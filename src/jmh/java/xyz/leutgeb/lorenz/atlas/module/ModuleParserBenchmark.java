@@ -0,0 +1,43 @@
+package xyz.leutgeb.lorenz.atlas.module;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.leutgeb.lorenz.atlas.BenchmarkUtil;
+import xyz.leutgeb.lorenz.atlas.ast.FunctionDefinition;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ModuleParserBenchmark {
+  @Param({"SplayTree", "PairingHeap"})
+  public String module;
+
+  private String source;
+
+  @Setup
+  public void setup() throws IOException {
+    source = Files.readString(BenchmarkUtil.EXAMPLES.resolve(module.replace(".", "/") + ".ml"));
+  }
+
+  @Benchmark
+  public List<FunctionDefinition> parse() {
+    return ModuleParser.parse(source, module);
+  }
+}
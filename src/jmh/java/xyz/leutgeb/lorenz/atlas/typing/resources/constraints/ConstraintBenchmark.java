@@ -0,0 +1,101 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.constraints;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.microsoft.z3.BoolExpr;
+import com.microsoft.z3.Context;
+import com.microsoft.z3.RealExpr;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.leutgeb.lorenz.atlas.BenchmarkUtil;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+
+/**
+ * Benchmarks {@link Constraint#encode} on the constraints generated for proving a function.
+ * Constants for coefficients are created once, and declared on a fresh {@link Encoding} per
+ * invocation, like {@link xyz.leutgeb.lorenz.atlas.typing.resources.solving.Solver} does before
+ * encoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConstraintBenchmark {
+  @Param({"SplayTree.splay", "PairingHeap.merge_pairs"})
+  public String fqn;
+
+  private List<Constraint> constraints;
+  private Context ctx;
+  private Map<UnknownCoefficient, RealExpr> coefficients;
+
+  @Setup
+  public void setup() throws IOException {
+    final var program = BenchmarkUtil.loadAndNormalizeAndInferAndUnshare(fqn);
+    final var prover = BenchmarkUtil.prove(program, fqn, Files.createTempDirectory("atlas-jmh"));
+    constraints = new ArrayList<>(prover.getAccumulatedConstraints());
+    ctx = new Context();
+    coefficients = new HashMap<>();
+    for (var constraint : constraints) {
+      for (var coefficient : constraint.occurringCoefficients()) {
+        if (coefficient.canonical() instanceof UnknownCoefficient unknownCoefficient) {
+          coefficients.computeIfAbsent(
+              unknownCoefficient, key -> ctx.mkRealConst(unknownCoefficient.getName()));
+        }
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    ctx.close();
+  }
+
+  private Encoding declare() {
+    final var encoding = new Encoding(ctx);
+    coefficients.forEach(encoding::put);
+    return encoding;
+  }
+
+  private List<BoolExpr> encode(Encoding encoding) {
+    final var result = new ArrayList<BoolExpr>(constraints.size());
+    for (var constraint : constraints) {
+      result.add(constraint.encode(encoding));
+    }
+    return result;
+  }
+
+  @Benchmark
+  public List<BoolExpr> encode() {
+    return encode(declare());
+  }
+
+  /**
+   * Encodes the same constraints twice on one {@link Encoding}. Compared to {@link #encode()}, this
+   * shows how much of encoding is saved when all terms were built before.
+   */
+  @Benchmark
+  public List<BoolExpr> encodeTwice() {
+    final var encoding = declare();
+    encode(encoding);
+    return encode(encoding);
+  }
+}
@@ -0,0 +1,58 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.proving;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.leutgeb.lorenz.atlas.BenchmarkUtil;
+import xyz.leutgeb.lorenz.atlas.ast.FunctionDefinition;
+
+/**
+ * Benchmarks {@link Prover#prove(Obligation, FunctionDefinition)}. Proving mutates the prover, so a
+ * fresh one (with freshly stubbed annotations) is prepared before every invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ProverBenchmark {
+  @Param({"SplayTree.splay", "PairingHeap.merge_pairs"})
+  public String fqn;
+
+  private Path out;
+  private Prover prover;
+  private FunctionDefinition fd;
+
+  @Setup(Level.Trial)
+  public void setupTrial() throws IOException {
+    out = Files.createTempDirectory("atlas-jmh");
+  }
+
+  @Setup(Level.Invocation)
+  public void setupInvocation() {
+    final var program = BenchmarkUtil.loadAndNormalizeAndInferAndUnshare(fqn);
+    prover = BenchmarkUtil.stub(program, fqn, out);
+    fd = program.getFunctionDefinitions().get(fqn);
+  }
+
+  @Benchmark
+  public Prover prove() {
+    prover.prove(fd.getTypingObligation(), fd);
+    return prover;
+  }
+}
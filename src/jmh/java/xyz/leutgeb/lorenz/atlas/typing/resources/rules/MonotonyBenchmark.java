@@ -0,0 +1,57 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.rules;
+
+import static java.util.Collections.emptySet;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static xyz.leutgeb.lorenz.atlas.util.Util.getPropertyName;
+
+import java.util.List;
+import java.util.Set;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.leutgeb.lorenz.atlas.typing.resources.heuristics.SmartRangeHeuristic;
+
+/**
+ * Benchmarks monotony analysis of {@link W} on the potential functions generated by {@link
+ * SmartRangeHeuristic#DEFAULT}, bypassing the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MonotonyBenchmark {
+  @Param({"1", "2", "3"})
+  public int size;
+
+  /** Whether every comparison is decided by Z3. */
+  @Param({"false", "true"})
+  public boolean z3;
+
+  /** Whether the first tree is known to be a leaf. */
+  @Param({"false", "true"})
+  public boolean knowOne;
+
+  private List<List<Integer>> potentialFunctions;
+
+  @Setup
+  public void setup() {
+    System.setProperty(getPropertyName(W.class, "monotonyZ3"), String.valueOf(z3));
+    potentialFunctions = SmartRangeHeuristic.DEFAULT.generateInternal(size).toList();
+  }
+
+  @Benchmark
+  public Object monotony() {
+    return W.monotonyInternal(
+        potentialFunctions, emptySet(), emptySet(), knowOne ? Set.of(0) : emptySet());
+  }
+}
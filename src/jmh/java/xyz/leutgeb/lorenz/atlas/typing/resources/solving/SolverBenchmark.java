@@ -0,0 +1,69 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.leutgeb.lorenz.atlas.BenchmarkUtil;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.optimiziation.Optimization;
+
+/**
+ * Benchmarks {@link Solver#solve(Set, Path, List)} on the constraints generated for proving a
+ * function, either checking satisfiability or optimizing like inference does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SolverBenchmark {
+  @Param({"SplayTree.splay", "PairingHeap.merge_pairs"})
+  public String fqn;
+
+  @Param({"false", "true"})
+  public boolean optimize;
+
+  private Set<Constraint> constraints;
+  private List<UnknownCoefficient> target;
+  private Path out;
+
+  @Setup
+  public void setup() throws IOException {
+    out = Files.createTempDirectory("atlas-jmh");
+    final var program = BenchmarkUtil.loadAndNormalizeAndInferAndUnshare(fqn);
+    final var prover = BenchmarkUtil.prove(program, fqn, out);
+    constraints = new HashSet<>(prover.getAccumulatedConstraints());
+    if (optimize) {
+      final var optimization =
+          Optimization.standard(Set.of(program.getFunctionDefinitions().get(fqn)));
+      constraints.addAll(optimization.constraints());
+      target = optimization.targets();
+    } else {
+      target = emptyList();
+    }
+  }
+
+  @Benchmark
+  public Solver.Result solve() {
+    return Solver.solve(constraints, out, target);
+  }
+}
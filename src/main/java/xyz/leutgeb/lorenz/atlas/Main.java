@@ -4,6 +4,7 @@ import static xyz.leutgeb.lorenz.atlas.util.Util.TOOL_NAME;
 
 import java.nio.file.Path;
 import picocli.CommandLine;
+import xyz.leutgeb.lorenz.atlas.commands.Batch;
 import xyz.leutgeb.lorenz.atlas.commands.Haskell;
 import xyz.leutgeb.lorenz.atlas.commands.Index;
 import xyz.leutgeb.lorenz.atlas.commands.Java;
@@ -21,6 +22,7 @@ import xyz.leutgeb.lorenz.atlas.util.Properties;
       LNF.class,
       Haskell.class,
       Run.class,
+      Batch.class,
       Java.class,
       REPL.class,
       Index.class,
@@ -268,6 +268,8 @@ public class FunctionDefinition {
       boolean infer) {
 
     analyzeSizes();
+    // The typing obligation refers to the annotation, which is about to be replaced.
+    typingObligation = null;
 
     final var treeLikeArguments = treeLikeArguments();
     var predefined = functionAnnotations.get(getFullyQualifiedName());
@@ -389,6 +391,7 @@ public class FunctionDefinition {
     builder.add("module", moduleName);
     builder.add("name", name);
     builder.add("signature", inferredSignature.toJson());
+    builder.add("bound", getBoundStringPlain(inferredSignature));
     return builder.build();
   }
 
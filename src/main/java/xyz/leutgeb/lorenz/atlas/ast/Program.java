@@ -1,5 +1,6 @@
 package xyz.leutgeb.lorenz.atlas.ast;
 
+import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.synchronizedMap;
 import static java.util.Collections.unmodifiableMap;
@@ -14,6 +15,7 @@ import com.google.common.collect.Multimap;
 import com.microsoft.z3.Status;
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Files;
@@ -22,6 +24,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -38,16 +41,19 @@ import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
 import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualityConstraint;
 import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.InequalityConstraint;
 import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.LessThanOrEqualConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.heuristics.AnnotationHeuristic;
 import xyz.leutgeb.lorenz.atlas.typing.resources.heuristics.SimpleFunctionHeuristic;
 import xyz.leutgeb.lorenz.atlas.typing.resources.heuristics.SmartRangeHeuristic;
 import xyz.leutgeb.lorenz.atlas.typing.resources.optimiziation.Optimization;
 import xyz.leutgeb.lorenz.atlas.typing.resources.proving.Obligation;
 import xyz.leutgeb.lorenz.atlas.typing.resources.proving.Prover;
 import xyz.leutgeb.lorenz.atlas.typing.resources.rules.W;
+import xyz.leutgeb.lorenz.atlas.typing.resources.solving.Budget;
 import xyz.leutgeb.lorenz.atlas.typing.resources.solving.Solver;
 import xyz.leutgeb.lorenz.atlas.typing.simple.TypeError;
 import xyz.leutgeb.lorenz.atlas.unification.Equivalence;
 import xyz.leutgeb.lorenz.atlas.unification.UnificationContext;
+import xyz.leutgeb.lorenz.atlas.util.Artifacts;
 import xyz.leutgeb.lorenz.atlas.util.DependencyEdge;
 import xyz.leutgeb.lorenz.atlas.util.Scheduler;
 import xyz.leutgeb.lorenz.atlas.util.Util;
@@ -184,7 +190,7 @@ public class Program {
 
     boolean ok = true;
     try {
-      var results = scheduler.run(8, 10, TimeUnit.MINUTES);
+      var results = scheduler.run(Scheduler.threads(), 10, TimeUnit.MINUTES);
       for (var result : results.values()) {
         final var optionalError = result.orElseThrow();
         if (optionalError.isPresent()) {
@@ -211,7 +217,7 @@ public class Program {
       boolean forceRankEqual,
       boolean simpleSignatures,
       Set<Constraint> externalConstraints) {
-    return solveInternal(
+    return solveDeepening(
         annotations,
         tactics,
         inferenceMode,
@@ -219,10 +225,34 @@ public class Program {
         forceRankEqual,
         simpleSignatures,
         externalConstraints,
-        functionDefinitions.keySet());
+        functionDefinitions.keySet(),
+        null);
   }
 
-  private Solver.Result solveInternal(
+  /**
+   * Templates for signatures when deepening, from smallest to largest. The smallest consists of
+   * rank, logarithm of the size of each tree and a constant, the largest is the default.
+   */
+  private static final List<AnnotationHeuristic> TEMPLATES =
+      List.of(
+          SimpleFunctionHeuristic.DEFAULT,
+          new SmartRangeHeuristic(SmartRangeHeuristic.A_RANGE, Set.of(0, 2)),
+          SmartRangeHeuristic.DEFAULT);
+
+  /**
+   * Solves the given functions. If inferring with property {@code deepen} set, signatures are first
+   * generated from the smallest template of {@link #TEMPLATES}, and only if that is unsatisfiable,
+   * the functions are solved again with the next larger template. The number of times the template
+   * was widened is recorded in the statistics of the result.
+   *
+   * <p>Widening applies to all given functions. Only if SCCs are solved separately, i.e. when
+   * splitting, just the functions of SCCs that are unsatisfiable pay for larger templates. Splitting
+   * is not possible if right sides are forced equal per module, then all functions are widened
+   * together.
+   *
+   * <p>Note that a smaller template may yield a satisfiable, yet worse bound.
+   */
+  private Solver.Result solveDeepening(
       Map<String, CombinedFunctionAnnotation> annotations,
       Map<String, Path> tactics,
       InferenceMode inferenceMode,
@@ -230,7 +260,199 @@ public class Program {
       boolean forceRankEqual,
       boolean simpleSignatures,
       Set<Constraint> externalConstraints,
-      Set<String> fqns) {
+      Set<String> fqns,
+      Solver.Session session) {
+    final List<AnnotationHeuristic> templates;
+    if (simpleSignatures) {
+      templates = List.of(SimpleFunctionHeuristic.DEFAULT);
+    } else if (inferenceMode.isInfer() && flag(Program.class, emptyMap(), "deepen")) {
+      templates = TEMPLATES;
+    } else {
+      templates = List.of(SmartRangeHeuristic.DEFAULT);
+    }
+
+    final var given = snapshot(annotations, fqns);
+    Solver.Result result = null;
+    int widened = 0;
+    for (var template : templates) {
+      if (result != null) {
+        log.info("Solving {} is unsatisfiable, widening template.", namesAsSet(fqns));
+        restore(annotations, given, inferenceMode);
+        widened++;
+      }
+      final var budgeted =
+          solveBudgeted(
+              annotations,
+              tactics,
+              inferenceMode,
+              forceResultPerModule,
+              forceRankEqual,
+              template,
+              externalConstraints,
+              fqns,
+              session);
+      result = budgeted.result();
+      // Widening does not help if some attempt yielded no definitive result within the budget.
+      if (!Status.UNSATISFIABLE.equals(result.getStatus()) || budgeted.fellBack()) {
+        break;
+      }
+    }
+
+    if (templates.size() == 1) {
+      return result;
+    }
+    final var statistics = new HashMap<>(result.getStatistics());
+    statistics.put("widened", String.valueOf(widened));
+    return new Solver.Result(
+        result.getStatus(), result.getSolution(), statistics, result.getSmtFile());
+  }
+
+  /**
+   * Result of {@link #solveBudgeted}.
+   *
+   * @param fellBack whether some attempt yielded no definitive result within the budget, so that
+   *     {@code result} comes from an attempt further down the fallback chain
+   */
+  private record Budgeted(Solver.Result result, boolean fellBack) {}
+
+  /** A way to solve an SCC, attempts further down the fallback chain are cheaper. */
+  private record Attempt(String name, AnnotationHeuristic signatureHeuristic, boolean optimize) {}
+
+  private static List<Attempt> fallbackChain(
+      InferenceMode inferenceMode, AnnotationHeuristic signatureHeuristic) {
+    final var result = new ArrayList<Attempt>();
+    result.add(new Attempt("default", signatureHeuristic, inferenceMode.isInfer()));
+    if (!SimpleFunctionHeuristic.DEFAULT.equals(signatureHeuristic)) {
+      result.add(
+          new Attempt(
+              "simple signatures", SimpleFunctionHeuristic.DEFAULT, inferenceMode.isInfer()));
+    }
+    if (inferenceMode.isInfer()) {
+      result.add(new Attempt("no optimization", SimpleFunctionHeuristic.DEFAULT, false));
+    }
+    return result;
+  }
+
+  /**
+   * Solves the given functions such that every attempt at solving stays within the budget that is
+   * configured for {@link Solver}, see {@link Budget#configured()}. If an attempt yields no
+   * definitive result, the next attempt of the fallback chain is made, with annotations generated
+   * by {@link SimpleFunctionHeuristic}, and then without optimization. Attempts that were made are
+   * recorded in the statistics of the result.
+   *
+   * <p>Solving incrementally within a session is not subject to budgets.
+   */
+  private Budgeted solveBudgeted(
+      Map<String, CombinedFunctionAnnotation> annotations,
+      Map<String, Path> tactics,
+      InferenceMode inferenceMode,
+      boolean forceResultPerModule,
+      boolean forceRankEqual,
+      AnnotationHeuristic signatureHeuristic,
+      Set<Constraint> externalConstraints,
+      Set<String> fqns,
+      Solver.Session session) {
+    final var budget = Budget.configured();
+    if (budget.isEmpty() || session != null) {
+      return new Budgeted(
+          solveInternal(
+              annotations,
+              tactics,
+              inferenceMode,
+              forceResultPerModule,
+              forceRankEqual,
+              signatureHeuristic,
+              inferenceMode.isInfer(),
+              externalConstraints,
+              fqns,
+              session,
+              Budget.UNLIMITED),
+          false);
+    }
+
+    final var given = snapshot(annotations, fqns);
+    final var attempts = new ArrayList<String>();
+    Solver.Result result = null;
+    for (var attempt : fallbackChain(inferenceMode, signatureHeuristic)) {
+      if (result != null) {
+        log.warn(
+            "Solving {} within budget {} yielded unknown result, falling back to '{}'.",
+            namesAsSet(fqns),
+            budget.get(),
+            attempt.name());
+        restore(annotations, given, inferenceMode);
+      }
+      attempts.add(attempt.name());
+      result =
+          solveInternal(
+              annotations,
+              tactics,
+              inferenceMode,
+              forceResultPerModule,
+              forceRankEqual,
+              attempt.signatureHeuristic(),
+              attempt.optimize(),
+              externalConstraints,
+              fqns,
+              null,
+              // All calls to Z3 for this attempt share one deadline.
+              budget.get().start());
+      if (!Status.UNKNOWN.equals(result.getStatus())) {
+        break;
+      }
+    }
+
+    final var statistics = new HashMap<>(result.getStatistics());
+    statistics.put("attempts", String.join(", ", attempts));
+    return new Budgeted(
+        new Solver.Result(
+            result.getStatus(), result.getSolution(), statistics, result.getSmtFile()),
+        attempts.size() > 1);
+  }
+
+  private static Map<String, CombinedFunctionAnnotation> snapshot(
+      Map<String, CombinedFunctionAnnotation> annotations, Set<String> fqns) {
+    final Map<String, CombinedFunctionAnnotation> result = new HashMap<>();
+    for (var fqn : fqns) {
+      result.put(fqn, annotations.get(fqn));
+    }
+    return result;
+  }
+
+  /**
+   * Annotations are stubbed into the given map when solving, they must be dropped before solving
+   * the same functions again.
+   */
+  private static void restore(
+      Map<String, CombinedFunctionAnnotation> annotations,
+      Map<String, CombinedFunctionAnnotation> snapshot,
+      InferenceMode inferenceMode) {
+    if (InferenceMode.PROXIED.equals(inferenceMode)) {
+      // Annotations are stubbed into a fresh map.
+      return;
+    }
+    snapshot.forEach(
+        (fqn, annotation) -> {
+          if (annotation == null) {
+            annotations.remove(fqn);
+          } else {
+            annotations.put(fqn, annotation);
+          }
+        });
+  }
+
+  private Solver.Result solveInternal(
+      Map<String, CombinedFunctionAnnotation> annotations,
+      Map<String, Path> tactics,
+      InferenceMode inferenceMode,
+      boolean forceResultPerModule,
+      boolean forceRankEqual,
+      AnnotationHeuristic signatureHeuristic,
+      boolean optimize,
+      Set<Constraint> externalConstraints,
+      Set<String> fqns,
+      Solver.Session session,
+      Budget budget) {
 
     for (var fd : functionDefinitions.values()) {
       final var runaways = fd.runaway();
@@ -246,7 +468,6 @@ public class Program {
         InferenceMode.PROXIED.equals(inferenceMode) ? new HashMap<>() : annotations;
 
     final var heuristic = SmartRangeHeuristic.DEFAULT;
-    final var signatureHeuristic = simpleSignatures ? SimpleFunctionHeuristic.DEFAULT : heuristic;
     final var called = calledFunctionNames();
 
     final Map<String, Annotation> rightSidesPerModule = synchronizedMap(new HashMap<>());
@@ -397,11 +618,13 @@ public class Program {
               .resolve("tactics")
               .resolve(fd.getModuleName())
               .resolve(fqnToFlatFilename(fd.getName()) + ".txt");
-      try (final var out = output(tacticsPath)) {
-        prover.printTactic(typingObligation, out, true);
-        log.info("See {}", tacticsPath);
-      } catch (IOException e) {
-        log.warn("!", e);
+      if (Artifacts.Kind.TACTICS.isEnabled()) {
+        // The proof is extended below, so the tactic is rendered now and only written later.
+        final var buffer = new ByteArrayOutputStream();
+        prover.printTactic(typingObligation, new PrintStream(buffer), true);
+        final var tactic = buffer.toByteArray();
+        Artifacts.write(
+            Artifacts.Kind.TACTICS, tacticsPath, out -> out.write(tactic, 0, tactic.length));
       }
 
       for (var cfAnnotation : fd.getInferredSignature().getAnnotation().get().withoutCost) {
@@ -426,15 +649,23 @@ public class Program {
 
     Instant solveStart = Instant.now();
     Solver.Result result;
-    if (inferenceMode.isInfer()) {
+    if (inferenceMode.isInfer() && optimize) {
+      // Solving in stages needs one target per criterion.
+      final var layered = flag(Solver.class, emptyMap(), "staged");
       final var optimization =
           InferenceMode.DIRECT.equals(inferenceMode)
-              ? Optimization.direct(fds)
-              : Optimization.standard(fds);
+              ? Optimization.direct(fds, layered)
+              : Optimization.standard(fds, layered);
       external.addAll(optimization.constraints());
-      result = prover.solve(external, optimization.targets());
+      result =
+          session == null
+              ? prover.solve(external, optimization.targets(), budget)
+              : prover.solve(session, external, optimization.targets());
     } else {
-      result = prover.solve(external);
+      result =
+          session == null
+              ? prover.solve(external, emptyList(), budget)
+              : prover.solve(session, external, emptyList());
     }
     Instant solveStop = Instant.now();
 
@@ -573,38 +804,83 @@ public class Program {
           externalConstraints);
     }
 
-    final var scheduler =
-        new Scheduler<>(
-            this.condensation,
-            (scc) ->
-                scc.vertexSet().stream()
-                    .allMatch(
-                        fqn -> this.functionDefinitions.get(fqn).getAnnotatedSignature() != null),
-            (scc) ->
-                () ->
-                    solveInternal(
-                        annotations,
-                        tactics,
-                        inferenceMode,
-                        forceResultPerModule,
-                        forceRankEqual,
-                        simpleSignatures,
-                        externalConstraints,
-                        scc.vertexSet()));
-
-    Map<Graph<String, DependencyEdge>, Scheduler.Result<Solver.Result>> result;
-    try {
-      result = scheduler.run(8, Integer.MAX_VALUE, TimeUnit.DAYS);
-    } catch (InterruptedException e) {
-      throw new RuntimeException(e);
+    // Solving SCCs incrementally reuses one Z3 context for all SCCs, such that solutions of callees
+    // are only asserted once. Note that this serializes solving (but not proving).
+    try (final var session =
+        flag(Solver.class, emptyMap(), "incremental") ? new Solver.Session(basePath) : null) {
+      final var scheduler =
+          new Scheduler<>(
+              this.condensation,
+              (scc) ->
+                  scc.vertexSet().stream()
+                      .allMatch(
+                          fqn -> this.functionDefinitions.get(fqn).getAnnotatedSignature() != null),
+              this::estimateCost,
+              (solverResult) -> !solverResult.isSatisfiable(),
+              (scc) ->
+                  () ->
+                      solveDeepening(
+                          annotations,
+                          tactics,
+                          inferenceMode,
+                          forceResultPerModule,
+                          forceRankEqual,
+                          simpleSignatures,
+                          externalConstraints,
+                          scc.vertexSet(),
+                          session));
+
+      Map<Graph<String, DependencyEdge>, Scheduler.Result<Solver.Result>> result;
+      try {
+        result =
+            scheduler.run(
+                Scheduler.threads(),
+                Scheduler.nodeTimeout().orElse(null),
+                Integer.MAX_VALUE,
+                TimeUnit.DAYS);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+
+      return aggregate(result.values());
     }
+  }
 
-    return result.values().stream()
+  /**
+   * Combines results of solving SCCs. If solving one SCC did not yield a solution, solving its
+   * dependents was cancelled, and the overall result is determined by that SCC.
+   */
+  private static Solver.Result aggregate(Collection<Scheduler.Result<Solver.Result>> results) {
+    for (var result : results) {
+      if (result.getValue() != null && !result.getValue().isSatisfiable()) {
+        return result.getValue();
+      }
+    }
+    for (var result : results) {
+      if (result.getExecutionException() != null
+          && result.getExecutionException().getCause() instanceof TimeoutException) {
+        return Solver.Result.unknown();
+      }
+    }
+    return results.stream()
         .reduce((a, b) -> Scheduler.Result.merge(a, b, Solver.Result::merge))
         .orElseThrow(() -> bug("could not aggregate results"))
         .orElseThrow();
   }
 
+  /**
+   * Estimates the cost of proving and solving an SCC. The number of proof obligations grows with
+   * the size of function bodies, and the size of annotations grows with the number of trees.
+   */
+  private long estimateCost(Graph<String, DependencyEdge> scc) {
+    long result = 0;
+    for (var fqn : scc.vertexSet()) {
+      final var fd = functionDefinitions.get(fqn);
+      result += (long) fd.getBody().size() * (1 + fd.treeLikeArguments().size());
+    }
+    return result;
+  }
+
   public boolean isEmpty() {
     return order.isEmpty() && functionDefinitions.isEmpty();
   }
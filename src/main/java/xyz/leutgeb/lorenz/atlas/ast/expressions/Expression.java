@@ -150,6 +150,11 @@ public abstract class Expression extends Syntax {
   }
 
   /** Computes the set of free tree-typed variables in this expression. */
+  /** Number of nodes of the syntax tree rooted at this expression. */
+  public int size() {
+    return 1 + getChildren().mapToInt(Expression::size).sum();
+  }
+
   public Set<IdentifierExpression> freeVariables() {
     final var result = new LinkedHashSet<IdentifierExpression>();
     getChildren().forEach(e -> result.addAll(e.freeVariables()));
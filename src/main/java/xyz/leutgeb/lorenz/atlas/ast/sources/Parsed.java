@@ -6,23 +6,48 @@ import lombok.Value;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
 
+/**
+ * Region of a source file that some syntax was parsed from. Only positions are kept, not the parse
+ * tree, so that parse trees can be discarded after parsing, and sources can be restored from the
+ * module cache without parsing.
+ */
 @Value
 @EqualsAndHashCode(callSuper = true)
 public class Parsed extends Source {
-  ParserRuleContext tree;
+  int startLine;
+  int startColumn;
+  int stopLine;
+  int stopColumn;
   Path path;
 
+  public Parsed(int startLine, int startColumn, int stopLine, int stopColumn, Path path) {
+    this.startLine = startLine;
+    this.startColumn = startColumn;
+    this.stopLine = stopLine;
+    this.stopColumn = stopColumn;
+    this.path = path;
+  }
+
+  public Parsed(ParserRuleContext tree, Path path) {
+    this(tree.getStart(), tree.getStop() == null ? tree.getStart() : tree.getStop(), path);
+  }
+
+  private Parsed(Token start, Token stop, Path path) {
+    this(
+        start.getLine(),
+        start.getCharPositionInLine(),
+        stop.getLine(),
+        stop.getCharPositionInLine(),
+        path);
+  }
+
   /** @link https://www.gnu.org/prep/standards/standards.html#Errors */
   @Override
   public String toString() {
-    return path + ":" + tokenToString(tree.getStart()) + "-" + tokenToString(tree.getStop());
-  }
-
-  private String tokenToString(Token token) {
-    return token.getLine() + "." + token.getCharPositionInLine();
+    return path + ":" + startLine + "." + startColumn + "-" + stopLine + "." + stopColumn;
   }
 
   public Parsed relativize(Path other) {
-    return new Parsed(tree, path.relativize(other));
+    return new Parsed(startLine, startColumn, stopLine, stopColumn, path.relativize(other));
   }
 }
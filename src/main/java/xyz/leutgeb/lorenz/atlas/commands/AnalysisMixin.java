@@ -0,0 +1,123 @@
+package xyz.leutgeb.lorenz.atlas.commands;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import picocli.CommandLine;
+import xyz.leutgeb.lorenz.atlas.ast.Program;
+import xyz.leutgeb.lorenz.atlas.typing.resources.proving.Prover;
+import xyz.leutgeb.lorenz.atlas.typing.resources.solving.Solver;
+import xyz.leutgeb.lorenz.atlas.util.Scheduler;
+import xyz.leutgeb.lorenz.atlas.util.Util;
+
+/** Options that control how a program is analyzed, shared by {@link Run} and {@link Batch}. */
+public class AnalysisMixin {
+  @CommandLine.Option(
+      defaultValue = "false",
+      showDefaultValue = CommandLine.Help.Visibility.ALWAYS,
+      names = "--infer",
+      description =
+          "When present cost annotations in the program source are ignored, instead a new typing is"
+              + " computed.")
+  // TODO: Make infer the default.
+  Boolean infer;
+
+  @CommandLine.Option(
+      defaultValue = "false",
+      showDefaultValue = CommandLine.Help.Visibility.ALWAYS,
+      names = "--simple-annotations",
+      paramLabel = "true|false",
+      arity = "1",
+      description =
+          "If true, simple annotations (only single tree sizes as arguments to logarithm and"
+              + " constants) are used.")
+  Boolean simpleAnnotations;
+
+  @CommandLine.Option(
+      defaultValue = "false",
+      showDefaultValue = CommandLine.Help.Visibility.ALWAYS,
+      names = "--equal-ranks",
+      paramLabel = "true|false",
+      arity = "1",
+      description =
+          "If true, rank coefficients in annotations of arguments and return value is set equal per"
+              + " function definition.")
+  Boolean equalRanks;
+
+  @CommandLine.Option(
+      defaultValue = "true",
+      showDefaultValue = CommandLine.Help.Visibility.ALWAYS,
+      names = "--consistent-modules",
+      arity = "1",
+      paramLabel = "true|false",
+      description = "If true, the annotation of return values is set equal per module.")
+  Boolean consistentModules;
+
+  @CommandLine.Option(
+      defaultValue = "true",
+      showDefaultValue = CommandLine.Help.Visibility.ALWAYS,
+      names = "--use-tick-defer",
+      arity = "1",
+      paramLabel = "true|false",
+      description = "If true, use (tick:defer) instead of (tick).")
+  Boolean useTickDefer;
+
+  @CommandLine.Option(
+      names = "--threads",
+      paramLabel = "n",
+      description =
+          "Number of threads used to solve strongly connected components in parallel. Defaults to"
+              + " the number of available processors.")
+  Integer threads;
+
+  @CommandLine.Option(
+      names = "--scc-timeout",
+      paramLabel = "duration",
+      description =
+          "Timeout for solving one strongly connected component, as ISO-8601 duration (e.g. PT15M)."
+              + " Dependents of components that time out are not solved.")
+  Duration sccTimeout;
+
+  /**
+   * Normalizes the program and infers simple types.
+   *
+   * @return false if simple types could not be inferred.
+   */
+  static boolean prepare(Program program) {
+    program.normalize();
+    if (!program.infer()) {
+      return false;
+    }
+    program.unshare(true);
+    program.analyzeSizes();
+    return true;
+  }
+
+  /** Sets the properties that are read while proving and solving. */
+  void apply() {
+    System.setProperty(Util.getPropertyName(Prover.class, "tickDefer"), useTickDefer.toString());
+    if (threads != null) {
+      System.setProperty(Util.getPropertyName(Scheduler.class, "threads"), threads.toString());
+    }
+    if (sccTimeout != null) {
+      System.setProperty(
+          Util.getPropertyName(Scheduler.class, "nodeTimeout"), sccTimeout.toString());
+    }
+  }
+
+  Solver.Result solve(Program program, Map<String, Path> tactics) {
+    apply();
+    return program.solve(
+        new HashMap<>(),
+        tactics,
+        infer,
+        consistentModules,
+        equalRanks,
+        simpleAnnotations,
+        // Inferred signatures are optimized together, unless templates are widened per SCC.
+        !infer || Util.flag(Program.class, Collections.emptyMap(), "deepen"),
+        Collections.emptySet());
+  }
+}
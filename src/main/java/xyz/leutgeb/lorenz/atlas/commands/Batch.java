@@ -0,0 +1,163 @@
+package xyz.leutgeb.lorenz.atlas.commands;
+
+import static xyz.leutgeb.lorenz.atlas.util.Util.output;
+
+import com.microsoft.z3.Status;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import picocli.CommandLine;
+import xyz.leutgeb.lorenz.atlas.ast.Program;
+import xyz.leutgeb.lorenz.atlas.module.Loader;
+import xyz.leutgeb.lorenz.atlas.util.Artifacts;
+
+/**
+ * Analyzes many targets in one process, so that the JVM, the Z3 libraries and caches (e.g. of
+ * monotony instances) are set up only once. Every target is loaded from scratch, since preparing a
+ * program for analysis modifies its function definitions in place.
+ */
+@CommandLine.Command(name = "batch")
+@Slf4j
+public class Batch implements Runnable {
+  @CommandLine.Parameters(
+      arity = "0..*",
+      paramLabel = "fqn",
+      description =
+          "Fully qualified names of functions to be checked. Each of them is analyzed separately,"
+              + " using the options given to this command.")
+  private List<String> fqns = Collections.emptyList();
+
+  @CommandLine.Option(
+      names = "--manifest",
+      paramLabel = "path-to-file",
+      description =
+          "File that lists further targets, one per line. Each line holds arguments as accepted by"
+              + " \"run\", i.e. options followed by fully qualified names of functions that are"
+              + " analyzed together. Empty lines and lines starting with '#' are ignored.")
+  private Path manifest;
+
+  @CommandLine.Option(
+      names = "--output",
+      paramLabel = "path-to-file",
+      description =
+          "If present, results are written to this file instead of standard output. One JSON object"
+              + " is written per line and target.")
+  private Path output;
+
+  @CommandLine.Mixin private AnalysisMixin analysis;
+
+  @CommandLine.Command(name = "target")
+  static class Target {
+    @CommandLine.Parameters(arity = "1..*", paramLabel = "fqn")
+    Set<String> fqns;
+
+    @CommandLine.Mixin AnalysisMixin analysis;
+
+    Target() {}
+
+    Target(Set<String> fqns, AnalysisMixin analysis) {
+      this.fqns = fqns;
+      this.analysis = analysis;
+    }
+
+    static Target parse(String line) {
+      final var target = new Target();
+      new CommandLine(target).parseArgs(line.trim().split("\\s+"));
+      return target;
+    }
+  }
+
+  private List<Target> targets() throws IOException {
+    final List<Target> result = new ArrayList<>();
+    for (var fqn : fqns) {
+      result.add(new Target(Set.of(fqn), analysis));
+    }
+    if (manifest != null) {
+      for (var line : Files.readAllLines(manifest)) {
+        if (line.isBlank() || line.stripLeading().startsWith("#")) {
+          continue;
+        }
+        result.add(Target.parse(line));
+      }
+    }
+    return result;
+  }
+
+  private static JsonObject analyze(Target target) {
+    final var start = Instant.now();
+    final var builder = Json.createObjectBuilder();
+    final var fqnsBuilder = Json.createArrayBuilder();
+    target.fqns.forEach(fqnsBuilder::add);
+    builder.add("fqns", fqnsBuilder.build());
+
+    // Properties are global, restore them so that they do not leak into the next target.
+    final var properties = (Properties) System.getProperties().clone();
+    try {
+      final Program program = Loader.atDefaultHome().load(new LinkedHashSet<>(target.fqns));
+      builder.add("out", program.getBasePath().toAbsolutePath().toString());
+      if (!AnalysisMixin.prepare(program)) {
+        builder.add("status", "ERROR");
+        builder.add("error", "Could not infer simple types.");
+      } else {
+        final var result = target.analysis.solve(program, Collections.emptyMap());
+        builder.add("status", result.getStatus().name());
+        if (Status.SATISFIABLE.equals(result.getStatus()) && target.analysis.infer) {
+          builder.add("result", program.inferredSignaturesToJson());
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      log.error("Failed to analyze {}", target.fqns, e);
+      builder.add("status", "ERROR");
+      builder.add("error", String.valueOf(e.getMessage()));
+    } finally {
+      // Artifacts of this target are complete once it is reported.
+      Artifacts.flush();
+      System.setProperties(properties);
+    }
+    builder.add("duration", Duration.between(start, Instant.now()).toString());
+    return builder.build();
+  }
+
+  @Override
+  public void run() {
+    final List<Target> targets;
+    try {
+      targets = targets();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+
+    if (targets.isEmpty()) {
+      System.out.println("No targets to analyze, nothing to do!");
+      System.exit(3);
+    }
+
+    boolean allSatisfiable = true;
+    try (final PrintStream out = output == null ? null : output(output.toAbsolutePath())) {
+      final var writer = out == null ? System.out : out;
+      for (var target : targets) {
+        log.info("Analyzing {}", target.fqns);
+        final var record = analyze(target);
+        allSatisfiable &= Status.SATISFIABLE.name().equals(record.getString("status"));
+        writer.println(record);
+        writer.flush();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+
+    System.exit(allSatisfiable ? 0 : 1);
+  }
+}
@@ -83,9 +83,9 @@ public class Index implements Runnable {
               + "/^"
               + fd.getName()
               + "/;\"\tline:"
-              + source.getTree().getStart().getLine()
+              + source.getStartLine()
               + "\tend:"
-              + source.getTree().getStop().getLine());
+              + source.getStopLine());
     }
   }
 }
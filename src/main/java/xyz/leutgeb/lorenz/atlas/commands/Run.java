@@ -6,7 +6,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -16,8 +15,7 @@ import xyz.leutgeb.lorenz.atlas.ast.FunctionDefinition;
 import xyz.leutgeb.lorenz.atlas.ast.Program;
 import xyz.leutgeb.lorenz.atlas.ast.expressions.IdentifierExpression;
 import xyz.leutgeb.lorenz.atlas.module.Loader;
-import xyz.leutgeb.lorenz.atlas.typing.resources.proving.Prover;
-import xyz.leutgeb.lorenz.atlas.util.Util;
+import xyz.leutgeb.lorenz.atlas.util.Artifacts;
 
 @CommandLine.Command(name = "run")
 @Slf4j
@@ -29,52 +27,7 @@ public class Run implements Runnable {
       description = "Fully qualified names of functions to be checked.")
   private Set<String> fqns;
 
-  @CommandLine.Option(
-      defaultValue = "false",
-      showDefaultValue = CommandLine.Help.Visibility.ALWAYS,
-      names = "--infer",
-      description =
-          "When present cost annotations in the program source are ignored, instead a new typing is computed.")
-  // TODO: Make infer the default.
-  private Boolean infer;
-
-  @CommandLine.Option(
-      defaultValue = "false",
-      showDefaultValue = CommandLine.Help.Visibility.ALWAYS,
-      names = "--simple-annotations",
-      paramLabel = "true|false",
-      arity = "1",
-      description =
-          "If true, simple annotations (only single tree sizes as arguments to logarithm and constants) are used.")
-  private Boolean simpleAnnotations;
-
-  @CommandLine.Option(
-      defaultValue = "false",
-      showDefaultValue = CommandLine.Help.Visibility.ALWAYS,
-      names = "--equal-ranks",
-      paramLabel = "true|false",
-      arity = "1",
-      description =
-          "If true, rank coefficients in annotations of arguments and return value is set equal per function definition.")
-  private Boolean equalRanks;
-
-  @CommandLine.Option(
-      defaultValue = "true",
-      showDefaultValue = CommandLine.Help.Visibility.ALWAYS,
-      names = "--consistent-modules",
-      arity = "1",
-      paramLabel = "true|false",
-      description = "If true, the annotation of return values is set equal per module.")
-  private Boolean consistentModules;
-
-  @CommandLine.Option(
-      defaultValue = "true",
-      showDefaultValue = CommandLine.Help.Visibility.ALWAYS,
-      names = "--use-tick-defer",
-      arity = "1",
-      paramLabel = "true|false",
-      description = "If true, use (tick:defer) instead of (tick).")
-  private Boolean useTickDefer;
+  @CommandLine.Mixin private AnalysisMixin analysis;
 
   @CommandLine.Option(names = "--name", description = "Name of the run.")
   private String name;
@@ -121,13 +74,9 @@ public class Run implements Runnable {
       System.exit(3);
     }
 
-    program.normalize();
-
-    if (!program.infer()) {
+    if (!AnalysisMixin.prepare(program)) {
       return;
     }
-    program.unshare(true);
-    program.analyzeSizes();
     // log.info("Loaded definitions:");
     // program.printAllSimpleSignaturesInOrder(System.out);
 
@@ -182,18 +131,10 @@ public class Run implements Runnable {
     }
     System.out.println();
 
-    System.setProperty(Util.getPropertyName(Prover.class, "tickDefer"), useTickDefer.toString());
-
-    final var result =
-        program.solve(
-            new HashMap<>(),
-            tacticsMap,
-            infer,
-            consistentModules,
-            equalRanks,
-            simpleAnnotations,
-            !infer,
-            Collections.emptySet());
+    final var result = analysis.solve(program, tacticsMap);
+    // Artifacts (e.g. the SMT file of the result) are written in the background, make sure that
+    // they exist before they are reported.
+    Artifacts.flush();
 
     final var stop = Instant.now();
     System.out.println("Elapsed Walltime: " + Duration.between(start, stop));
@@ -206,7 +147,7 @@ public class Run implements Runnable {
       System.out.println("UNKNOWN");
       System.exit(2);
     } else if (Status.SATISFIABLE.equals(result.getStatus())) {
-      if (!infer) {
+      if (!analysis.infer) {
         System.out.println("SAT");
         System.out.println();
       } else {
@@ -1,7 +1,7 @@
 package xyz.leutgeb.lorenz.atlas.module;
 
 import static java.nio.file.FileVisitOption.FOLLOW_LINKS;
-import static java.util.Collections.synchronizedMap;
+import static java.util.Collections.emptyMap;
 import static java.util.Optional.ofNullable;
 import static java.util.function.Predicate.not;
 import static java.util.stream.Collectors.toMap;
@@ -11,20 +11,31 @@ import static xyz.leutgeb.lorenz.atlas.util.Util.bug;
 import com.google.common.base.Functions;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.Spliterators;
-import java.util.Stack;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.Phaser;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import lombok.Getter;
 import lombok.Setter;
@@ -52,9 +63,32 @@ import xyz.leutgeb.lorenz.atlas.util.Util;
 public class Loader {
   private static final String DOT_EXTENSION = ".ml";
 
-  @Getter Map<String, FunctionDefinition> functionDefinitions = synchronizedMap(new HashMap<>());
+  /** How long idle threads of the pool are kept, so that pools of unused loaders go away. */
+  private static final long KEEP_ALIVE_SECONDS = 1;
 
-  Set<String> loadedModules = Collections.synchronizedSet(new HashSet<>());
+  /**
+   * Parses modules and ingests their definitions. Threads never wait for each other, only the
+   * thread that called {@link #load(Set)} waits for all of them, so the pool can be small.
+   */
+  ExecutorService pool = pool();
+
+  /**
+   * Whether to ingest only the definitions that are reachable from the requested roots, instead of
+   * all definitions in every module that is parsed.
+   */
+  boolean reachable = Util.flag(Loader.class, emptyMap(), "reachable");
+
+  @Getter Map<String, FunctionDefinition> functionDefinitions = new ConcurrentHashMap<>();
+
+  /** Modules by name. Every module is parsed at most once, even if requested concurrently. */
+  Map<String, CompletableFuture<Map<String, FunctionDefinition>>> modules =
+      new ConcurrentHashMap<>();
+
+  /** Names of modules of which all definitions were ingested. */
+  Set<String> ingestedModules = ConcurrentHashMap.newKeySet();
+
+  /** Work that was started while loading and must be done before loading is finished. */
+  Queue<CompletableFuture<?>> pending = new ConcurrentLinkedQueue<>();
 
   @Setter private static Path defaultSearch;
 
@@ -142,38 +176,22 @@ public class Loader {
   }
 
   public void autoload() throws IOException {
-    final var stack = new Stack<String>();
-    Files.find(
+    try (final var paths =
+        Files.find(
             search,
             8,
             ((path, basicFileAttributes) ->
                 path.getFileName().toString().endsWith(DOT_EXTENSION) && Util.goodForReading(path)),
-            FOLLOW_LINKS)
-        .flatMap(
-            path -> {
-              try {
-                final String moduleName = moduleName(path);
-                if (loadedModules.contains(moduleName)) {
-                  return Stream.empty();
-                }
-                loadedModules.add(moduleName);
-                return ModuleParser.parse(CharStreams.fromPath(path), moduleName).stream();
-              } catch (IOException e) {
-                e.printStackTrace();
-                return Stream.empty();
-              }
-            })
-        .forEach(
-            fd -> {
-              try {
-                ingest(null, fd);
-                // functionDefinitions.putIfAbsent(fd.getFullyQualifiedName(), fd);
-                // stack.push(fd.getFullyQualifiedName());
-              } catch (Throwable t) {
-
-              }
-            });
-    load(stack);
+            FOLLOW_LINKS)) {
+      paths.forEach(
+          path -> {
+            final String moduleName = moduleName(path);
+            pending.add(
+                module(moduleName, path)
+                    .thenAcceptAsync(definitions -> ingestModule(moduleName, definitions), pool));
+          });
+    }
+    await();
   }
 
   public Program loadInline(String source) throws IOException {
@@ -184,8 +202,9 @@ public class Loader {
     }
 
     for (var definition : definitions) {
-      ingest(null, definition);
+      ingest(definition);
     }
+    await();
 
     return load(
         definitions.stream()
@@ -332,119 +351,144 @@ public class Loader {
     return path(moduleName, search);
   }
 
-  private void load(Iterable<String> roots) throws IOException {
-    final Phaser phaser = new Phaser(1);
-
-    // Possible optimization: Check how many different root modules
-    // there are, only spawn new threads if there is more than one.
-
+  private void load(Iterable<String> roots) {
     for (final String fqn : roots) {
-      final String moduleName = moduleName(fqn);
-      if (loadedModules.contains(moduleName)) {
-        continue;
-      }
-      loadedModules.add(moduleName);
-      phaser.register();
-      new Thread(
-              () -> {
-                try {
-                  parse(phaser, fqn);
-                } catch (IOException e) {
-                  e.printStackTrace();
-                } finally {
-                  phaser.arriveAndDeregister();
-                }
-              })
-          .start();
+      require(fqn);
     }
+    await();
+  }
 
-    phaser.arriveAndAwaitAdvance();
+  /** Waits until all pending work is done, including work that is started in the meantime. */
+  private void await() {
+    // Work is only ever started by other pending work, before that is done. Thus, once the queue
+    // is empty after waiting for the last element, there is no more work.
+    CompletableFuture<?> next;
+    while ((next = pending.poll()) != null) {
+      try {
+        next.join();
+      } catch (CompletionException | CancellationException e) {
+        log.error("Failed to load module.", e.getCause() == null ? e : e.getCause());
+      }
+    }
   }
 
-  private void parse(Phaser phaser, String fqn) throws IOException {
-    if (functionDefinitions.containsKey(fqn)) {
-      ingest(phaser, functionDefinitions.get(fqn));
+  /** Makes sure that the definition with given name is ingested eventually. */
+  private void require(String fqn) {
+    final var existing = functionDefinitions.get(fqn);
+    if (existing != null) {
+      ingest(existing);
       return;
     }
 
     // Logical module name.
     final var moduleName = moduleName(fqn);
 
-    // Actual path to module on disk.
-    final var path = path(moduleName);
-
     if ("_".equals(moduleName)) {
       throw new RuntimeException("Could not load " + fqn);
     }
 
-    if (!Util.goodForReading(path)) {
-      throw new RuntimeException("could not resolve path for function name '" + fqn + "'");
-    }
+    pending.add(
+        module(moduleName, path(moduleName))
+            .thenAcceptAsync(
+                definitions -> {
+                  if (!reachable) {
+                    ingestModule(moduleName, definitions);
+                    return;
+                  }
+                  final var definition = definitions.get(fqn);
+                  if (definition != null) {
+                    ingest(definition);
+                  }
+                },
+                pool));
+  }
 
-    // Ingest all definitions that were parsed, no matter whether we actually "need"
-    // them. This implementation might be a bit too eager, since it will load
-    // all function definitions in a file even though they might not be
-    // dependencies.
-    // This could be improved.
-    // Instead, match the definitions with the requested pattern, and a list of dependencies.
-    var definitions = ModuleParser.parse(CharStreams.fromPath(path), moduleName);
-    for (var definition : definitions) {
-      ingest(phaser, definition);
-    }
+  /** @return the definitions in the given module, by fully qualified name */
+  private CompletableFuture<Map<String, FunctionDefinition>> module(String moduleName, Path path) {
+    return modules.computeIfAbsent(
+        moduleName,
+        key ->
+            CompletableFuture.supplyAsync(
+                () -> {
+                  if (!Util.goodForReading(path)) {
+                    throw new RuntimeException(
+                        "could not resolve path for module '" + moduleName + "'");
+                  }
+                  try {
+                    final var result = new LinkedHashMap<String, FunctionDefinition>();
+                    for (var definition : parseModule(path, moduleName)) {
+                      result.put(definition.getFullyQualifiedName(), definition);
+                    }
+                    return result;
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                },
+                pool));
   }
 
-  private void ingest(Phaser phaser, FunctionDefinition definition) throws IOException {
-    log.trace("Loaded {}", definition.getFullyQualifiedName());
-    functionDefinitions.putIfAbsent(definition.getFullyQualifiedName(), definition);
-    synchronized (g) {
-      if (!g.containsVertex(definition.getFullyQualifiedName())) {
-        g.addVertex(definition.getFullyQualifiedName());
-      }
+  /** Parses the module at given path, or reads it from the cache if one is configured. */
+  private static List<FunctionDefinition> parseModule(Path path, String moduleName)
+      throws IOException {
+    final var cache = ModuleCache.configured();
+    if (cache.isPresent()) {
+      return cache.get().parse(path, moduleName);
     }
+    return ModuleParser.parse(CharStreams.fromPath(path), moduleName);
+  }
 
-    final Stack<String> todo = new Stack<>();
-    for (var dependency : definition.getOcurringFunctions()) {
-      if (dependency.equals(definition.getFullyQualifiedName())) {
-        continue;
-      }
-      synchronized (g) {
-        if (!g.containsVertex(dependency)) {
-          g.addVertex(dependency);
-          final String moduleName = moduleName(dependency);
-          if (!loadedModules.contains(moduleName)) {
-            loadedModules.add(moduleName);
-            todo.push(dependency);
-          }
-        }
-        g.addEdge(dependency, definition.getFullyQualifiedName());
-      }
+  private void ingestModule(String moduleName, Map<String, FunctionDefinition> definitions) {
+    if (ingestedModules.add(moduleName)) {
+      definitions.values().forEach(this::ingest);
     }
+  }
 
-    while (todo.size() > 1) {
-      final String fqn = todo.pop();
+  private void ingest(FunctionDefinition definition) {
+    final var fqn = definition.getFullyQualifiedName();
+    log.trace("Loaded {}", fqn);
+    functionDefinitions.putIfAbsent(fqn, definition);
 
-      if (phaser != null) {
-        phaser.register();
-        log.debug("Spawning new thread to handle " + fqn);
-        new Thread(
-                () -> {
-                  try {
-                    parse(phaser, fqn);
-                  } catch (IOException e) {
-                    e.printStackTrace();
-                  } finally {
-                    phaser.arriveAndDeregister();
-                  }
-                })
-            .start();
-      } else {
-        parse(null, fqn);
+    // Every vertex is added either when its definition is ingested, or when it is first seen as
+    // a dependency, which is then required. So dependencies that are already vertices need not be
+    // required again.
+    final var required = new ArrayList<String>();
+    synchronized (g) {
+      g.addVertex(fqn);
+      for (var dependency : definition.getOcurringFunctions()) {
+        if (dependency.equals(fqn)) {
+          continue;
+        }
+        if (g.addVertex(dependency)) {
+          required.add(dependency);
+        }
+        g.addEdge(dependency, fqn);
       }
     }
+    required.forEach(this::require);
+  }
 
-    if (!todo.isEmpty()) {
-      parse(phaser, todo.pop());
-    }
+  private static ExecutorService pool() {
+    final var threads =
+        Integer.parseInt(
+            Util.getProperty(
+                Loader.class,
+                "threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+    final var count = new AtomicInteger();
+    final var executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+              final var thread = new Thread(runnable, "loader-" + count.getAndIncrement());
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
   public void exportGraph(OutputStream stream) throws ExportException {
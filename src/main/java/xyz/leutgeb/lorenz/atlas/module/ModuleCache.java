@@ -0,0 +1,634 @@
+package xyz.leutgeb.lorenz.atlas.module;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.CharStreams;
+import org.hipparchus.fraction.Fraction;
+import xyz.leutgeb.lorenz.atlas.antlr.SplayLexer;
+import xyz.leutgeb.lorenz.atlas.antlr.SplayParser;
+import xyz.leutgeb.lorenz.atlas.ast.ComparisonOperator;
+import xyz.leutgeb.lorenz.atlas.ast.FunctionDefinition;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.BooleanExpression;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.CallExpression;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.CoinExpression;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.Expression;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.HoleExpression;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.IdentifierExpression;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.IfThenElseExpression;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.LetExpression;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.MatchTreeExpression;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.MatchTupleExpression;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.NodeExpression;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.TickExpression;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.TupleExpression;
+import xyz.leutgeb.lorenz.atlas.ast.sources.Parsed;
+import xyz.leutgeb.lorenz.atlas.ast.sources.Predefined;
+import xyz.leutgeb.lorenz.atlas.ast.sources.Source;
+import xyz.leutgeb.lorenz.atlas.ast.visitors.ProgramVisitor;
+import xyz.leutgeb.lorenz.atlas.ast.visitors.SourceNameAwareVisitor;
+import xyz.leutgeb.lorenz.atlas.typing.resources.Annotation;
+import xyz.leutgeb.lorenz.atlas.typing.resources.CombinedFunctionAnnotation;
+import xyz.leutgeb.lorenz.atlas.typing.resources.FunctionAnnotation;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.simple.FunctionSignature;
+import xyz.leutgeb.lorenz.atlas.typing.simple.TypeClass;
+import xyz.leutgeb.lorenz.atlas.typing.simple.TypeConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.simple.TypeVariable;
+import xyz.leutgeb.lorenz.atlas.typing.simple.types.BoolType;
+import xyz.leutgeb.lorenz.atlas.typing.simple.types.FunctionType;
+import xyz.leutgeb.lorenz.atlas.typing.simple.types.ProductType;
+import xyz.leutgeb.lorenz.atlas.typing.simple.types.TreeType;
+import xyz.leutgeb.lorenz.atlas.typing.simple.types.Type;
+import xyz.leutgeb.lorenz.atlas.util.Util;
+
+/**
+ * Stores the function definitions parsed from modules on disk, so that modules which did not change
+ * are not parsed again. Entries are keyed by a hash of the contents of the module, its name, the
+ * version of the format and the bytecode of the parser. Changing a module or the parser thus makes
+ * it miss the cache, and stale entries are never read.
+ *
+ * <p>Entries are written in a binary format that mirrors the constructors called by the visitors in
+ * {@link xyz.leutgeb.lorenz.atlas.ast.visitors}, with a table of strings so that every name is
+ * written once. The path of the module is not part of entries, it is supplied when reading them.
+ * Definitions are cached as parsed, since normalization later modifies them in place.
+ *
+ * <p>Entries that cannot be read are ignored, and the module is parsed instead.
+ */
+@Slf4j
+final class ModuleCache {
+  /** Changes whenever the binary layout of entries changes. */
+  private static final String VERSION = "1";
+
+  private static final String VISITORS = ProgramVisitor.class.getPackageName();
+
+  /** Names of the classes that determine the output of the parser. */
+  private static final List<String> PARSER_CLASSES =
+      List.of(
+          SplayLexer.class.getName(),
+          SplayParser.class.getName(),
+          ModuleParser.class.getName(),
+          SourceNameAwareVisitor.class.getName(),
+          ProgramVisitor.class.getName(),
+          VISITORS + ".FunctionDefinitionVisitor",
+          VISITORS + ".FunctionSignatureVisitor",
+          VISITORS + ".TypeConstraintVisitor",
+          VISITORS + ".TypeVisitor",
+          VISITORS + ".ExpressionVisitor");
+
+  /**
+   * Digest of the bytecode of {@link #PARSER_CLASSES}, or {@code null} if it cannot be read (e.g.
+   * in a native image). Any other build of the parser thus misses the cache.
+   */
+  private static final byte[] PARSER = digest(PARSER_CLASSES);
+
+  private static final int MAGIC = 0x61746c73;
+
+  private static final byte SOURCE_PREDEFINED = 0;
+  private static final byte SOURCE_PARSED = 1;
+
+  private static final byte IDENTIFIER = 0;
+  private static final byte TICK = 1;
+  private static final byte COIN = 2;
+  private static final byte HOLE = 3;
+  private static final byte IF_THEN_ELSE = 4;
+  private static final byte MATCH_TUPLE = 5;
+  private static final byte MATCH_TREE = 6;
+  private static final byte BOOLEAN = 7;
+  private static final byte CALL = 8;
+  private static final byte LET = 9;
+  private static final byte TUPLE = 10;
+  private static final byte NODE = 11;
+
+  private static final byte TYPE_BOOL = 0;
+  private static final byte TYPE_PRODUCT = 1;
+  private static final byte TYPE_VARIABLE = 2;
+  private static final byte TYPE_TREE = 3;
+
+  private final Path directory;
+  private final byte[] parser;
+
+  ModuleCache(Path directory, byte[] parser) {
+    this.directory = directory;
+    this.parser = parser;
+  }
+
+  ModuleCache(Path directory) {
+    this(directory, PARSER);
+    if (PARSER == null) {
+      throw new IllegalStateException("bytecode of the parser is not available");
+    }
+  }
+
+  /** @return the cache in the directory given by the property {@code cache}, if any. */
+  static Optional<ModuleCache> configured() {
+    final var directory = Util.getProperty(Loader.class, "cache");
+    if (directory == null) {
+      return Optional.empty();
+    }
+    if (PARSER == null) {
+      log.warn("Not caching modules, since the bytecode of the parser is not available.");
+      return Optional.empty();
+    }
+    return Optional.of(new ModuleCache(Paths.get(directory)));
+  }
+
+  private static byte[] digest(List<String> classes) {
+    final var loader = ModuleCache.class.getClassLoader();
+    try {
+      final var digest = MessageDigest.getInstance("SHA-256");
+      for (var name : classes) {
+        try (final var in = loader.getResourceAsStream(name.replace('.', '/') + ".class")) {
+          if (in == null) {
+            return null;
+          }
+          digest.update(in.readAllBytes());
+        }
+      }
+      return digest.digest();
+    } catch (IOException exception) {
+      log.warn("Failed to read bytecode of the parser.", exception);
+      return null;
+    } catch (NoSuchAlgorithmException exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  /**
+   * @return the definitions in the module at given path, read from the cache if the module did not
+   *     change since it was cached, and parsed otherwise.
+   */
+  List<FunctionDefinition> parse(Path path, String moduleName) throws IOException {
+    final var contents = Files.readAllBytes(path);
+    final var entry = directory.resolve(hash(parser, contents, moduleName) + ".bin");
+
+    if (Files.exists(entry)) {
+      try {
+        final var definitions = load(entry, path, moduleName);
+        log.debug("Loaded module {} from cache {}", moduleName, entry);
+        return definitions;
+      } catch (IOException | RuntimeException exception) {
+        log.warn("Failed to read cached module from {}.", entry, exception);
+      }
+    }
+
+    final var definitions =
+        ModuleParser.parse(
+            CharStreams.fromString(new String(contents, UTF_8), path.toString()), moduleName);
+    store(entry, definitions);
+    return definitions;
+  }
+
+  private List<FunctionDefinition> load(Path entry, Path path, String moduleName)
+      throws IOException {
+    try (final var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("not a module cache entry");
+      }
+      return new Reader(in, path, moduleName).definitions();
+    }
+  }
+
+  private void store(Path entry, List<FunctionDefinition> definitions) {
+    try {
+      Files.createDirectories(directory);
+      // Write to a temporary file first, so that concurrent readers never see partial entries.
+      final var temporary = Files.createTempFile(directory, "module", ".tmp");
+      try (final var out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        out.writeInt(MAGIC);
+        new Writer(out).definitions(definitions);
+      } catch (IOException | RuntimeException exception) {
+        Files.delete(temporary);
+        throw exception;
+      }
+      Files.move(temporary, entry, ATOMIC_MOVE, REPLACE_EXISTING);
+    } catch (IOException | RuntimeException exception) {
+      log.warn("Failed to write module to cache {}.", entry, exception);
+    }
+  }
+
+  private static String hash(byte[] parser, byte[] contents, String moduleName) {
+    try {
+      final var digest = MessageDigest.getInstance("SHA-256");
+      digest.update(VERSION.getBytes(UTF_8));
+      digest.update((byte) 0);
+      digest.update(parser);
+      digest.update(moduleName.getBytes(UTF_8));
+      digest.update((byte) 0);
+      digest.update(contents);
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  private static final class Writer {
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    private Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    private void definitions(List<FunctionDefinition> definitions) throws IOException {
+      out.writeInt(definitions.size());
+      for (var definition : definitions) {
+        string(definition.getName());
+        out.writeInt(definition.getArguments().size());
+        for (var argument : definition.getArguments()) {
+          string(argument);
+        }
+        expression(definition.getBody());
+        final var signature = definition.getAnnotatedSignature();
+        out.writeBoolean(signature != null);
+        if (signature != null) {
+          signature(signature);
+        }
+      }
+    }
+
+    private void string(String value) throws IOException {
+      final var index = strings.get(value);
+      if (index != null) {
+        out.writeInt(index);
+        return;
+      }
+      strings.put(value, strings.size());
+      out.writeInt(-1);
+      out.writeUTF(value);
+    }
+
+    private void fraction(Fraction value) throws IOException {
+      out.writeInt(value.getNumerator());
+      out.writeInt(value.getDenominator());
+    }
+
+    private void source(Source source) throws IOException {
+      if (source instanceof Predefined) {
+        out.writeByte(SOURCE_PREDEFINED);
+      } else if (source instanceof Parsed parsed) {
+        out.writeByte(SOURCE_PARSED);
+        out.writeInt(parsed.getStartLine());
+        out.writeInt(parsed.getStartColumn());
+        out.writeInt(parsed.getStopLine());
+        out.writeInt(parsed.getStopColumn());
+      } else {
+        throw new IllegalArgumentException("cannot cache source " + source);
+      }
+    }
+
+    private void expressions(List<? extends Expression> expressions) throws IOException {
+      out.writeInt(expressions.size());
+      for (var expression : expressions) {
+        expression(expression);
+      }
+    }
+
+    private void expression(Expression expression) throws IOException {
+      if (expression instanceof IdentifierExpression e) {
+        out.writeByte(IDENTIFIER);
+        identifier(e);
+        return;
+      }
+      if (expression instanceof TickExpression e) {
+        out.writeByte(TICK);
+        source(e.getSource());
+        expression(e.getBody());
+        fraction(e.getCost());
+      } else if (expression instanceof CoinExpression e) {
+        out.writeByte(COIN);
+        source(e.getSource());
+        fraction(e.getP());
+      } else if (expression instanceof HoleExpression e) {
+        out.writeByte(HOLE);
+        source(e.getSource());
+      } else if (expression instanceof IfThenElseExpression e) {
+        out.writeByte(IF_THEN_ELSE);
+        source(e.getSource());
+        expression(e.getCondition());
+        expression(e.getTruthy());
+        expression(e.getFalsy());
+      } else if (expression instanceof MatchTupleExpression e) {
+        out.writeByte(MATCH_TUPLE);
+        source(e.getSource());
+        expression(e.getScrut());
+        expression(e.getBody());
+        expression(e.getPattern());
+      } else if (expression instanceof MatchTreeExpression e) {
+        out.writeByte(MATCH_TREE);
+        source(e.getSource());
+        expression(e.getScrut());
+        expression(e.getLeaf());
+        expression(e.getNodePattern());
+        expression(e.getNode());
+      } else if (expression instanceof BooleanExpression e) {
+        out.writeByte(BOOLEAN);
+        source(e.getSource());
+        expression(e.getLeft());
+        out.writeByte(e.getOperator().ordinal());
+        expression(e.getRight());
+      } else if (expression instanceof CallExpression e) {
+        out.writeByte(CALL);
+        source(e.getSource());
+        string(e.getModuleName());
+        identifier(e.getFunctionName());
+        expressions(e.getParameters());
+      } else if (expression instanceof LetExpression e) {
+        out.writeByte(LET);
+        source(e.getSource());
+        identifier(e.getDeclared());
+        expression(e.getValue());
+        expression(e.getBody());
+      } else if (expression instanceof TupleExpression e) {
+        out.writeByte(TUPLE);
+        source(e.getSource());
+        expressions(e.getElements());
+      } else if (expression instanceof NodeExpression e) {
+        out.writeByte(NODE);
+        source(e.getSource());
+        expressions(e.getElements());
+      } else {
+        throw new IllegalArgumentException(
+            "cannot cache expression of type " + expression.getClass().getSimpleName());
+      }
+    }
+
+    private void identifier(IdentifierExpression identifier) throws IOException {
+      string(identifier.getName());
+      source(identifier.getSource());
+    }
+
+    private void signature(FunctionSignature signature) throws IOException {
+      out.writeInt(signature.getConstraints().size());
+      for (var constraint : signature.getConstraints()) {
+        string(constraint.getTypeClass().getName());
+        out.writeInt(constraint.getConstrained().size());
+        for (var type : constraint.getConstrained()) {
+          type(type);
+        }
+      }
+      type(signature.getType().getFrom());
+      type(signature.getType().getTo());
+      out.writeBoolean(signature.getAnnotation().isPresent());
+      if (signature.getAnnotation().isPresent()) {
+        final var annotation = signature.getAnnotation().get();
+        functionAnnotation(annotation.withCost);
+        out.writeInt(annotation.withoutCost.size());
+        for (var withoutCost : annotation.withoutCost) {
+          functionAnnotation(withoutCost);
+        }
+      }
+    }
+
+    private void type(Type type) throws IOException {
+      if (type instanceof BoolType) {
+        out.writeByte(TYPE_BOOL);
+      } else if (type instanceof ProductType productType) {
+        out.writeByte(TYPE_PRODUCT);
+        out.writeInt(productType.getElements().size());
+        for (var element : productType.getElements()) {
+          type(element);
+        }
+      } else if (type instanceof TreeType treeType) {
+        out.writeByte(TYPE_TREE);
+        string(treeType.getElementType().getName());
+      } else if (type.getClass().equals(TypeVariable.class)) {
+        out.writeByte(TYPE_VARIABLE);
+        string(((TypeVariable) type).getName());
+      } else {
+        throw new IllegalArgumentException("cannot cache type " + type);
+      }
+    }
+
+    private void functionAnnotation(FunctionAnnotation annotation) throws IOException {
+      annotation(annotation.from);
+      annotation(annotation.to);
+    }
+
+    private void annotation(Annotation annotation) throws IOException {
+      string(annotation.getName());
+      out.writeInt(annotation.size());
+      for (int i = 0; i < annotation.size(); i++) {
+        coefficient(annotation.getRankCoefficientOrZero(i));
+      }
+      final var entries = new ArrayList<Map.Entry<List<Integer>, Coefficient>>();
+      annotation.getCoefficients().forEach(entries::add);
+      out.writeInt(entries.size());
+      for (var entry : entries) {
+        for (var i : entry.getKey()) {
+          out.writeInt(i);
+        }
+        coefficient(entry.getValue());
+      }
+    }
+
+    private void coefficient(Coefficient coefficient) throws IOException {
+      if (!(coefficient instanceof KnownCoefficient known)) {
+        throw new IllegalArgumentException("cannot cache coefficient " + coefficient);
+      }
+      // Some code tells zero apart from other coefficients by identity, so it is kept.
+      out.writeBoolean(known == KnownCoefficient.ZERO);
+      if (known != KnownCoefficient.ZERO) {
+        fraction(known.getValue());
+      }
+    }
+  }
+
+  private static final class Reader {
+    private final DataInputStream in;
+    private final Path path;
+    private final String moduleName;
+    private final List<String> strings = new ArrayList<>();
+
+    private Reader(DataInputStream in, Path path, String moduleName) {
+      this.in = in;
+      this.path = path;
+      this.moduleName = moduleName;
+    }
+
+    private List<FunctionDefinition> definitions() throws IOException {
+      final var size = in.readInt();
+      final var result = new ArrayList<FunctionDefinition>(size);
+      for (int i = 0; i < size; i++) {
+        final var name = string();
+        final var arity = in.readInt();
+        final var arguments = new ArrayList<String>(arity);
+        for (int j = 0; j < arity; j++) {
+          arguments.add(string());
+        }
+        final var body = expression();
+        final var signature = in.readBoolean() ? signature() : null;
+        result.add(new FunctionDefinition(moduleName, name, arguments, body, signature));
+      }
+      return result;
+    }
+
+    private String string() throws IOException {
+      final var index = in.readInt();
+      if (index >= 0) {
+        return strings.get(index);
+      }
+      final var value = in.readUTF();
+      strings.add(value);
+      return value;
+    }
+
+    private Fraction fraction() throws IOException {
+      final var numerator = in.readInt();
+      return new Fraction(numerator, in.readInt());
+    }
+
+    private Source source() throws IOException {
+      return switch (in.readByte()) {
+        case SOURCE_PREDEFINED -> Predefined.INSTANCE;
+        case SOURCE_PARSED -> new Parsed(
+            in.readInt(), in.readInt(), in.readInt(), in.readInt(), path);
+        default -> throw new IOException("unknown source");
+      };
+    }
+
+    private List<Expression> expressions() throws IOException {
+      final var size = in.readInt();
+      final var result = new ArrayList<Expression>(size);
+      for (int i = 0; i < size; i++) {
+        result.add(expression());
+      }
+      return result;
+    }
+
+    private Expression expression() throws IOException {
+      final var tag = in.readByte();
+      if (tag == IDENTIFIER) {
+        return identifier();
+      }
+      final var source = source();
+      return switch (tag) {
+        case TICK -> new TickExpression(source, expression(), fraction());
+        case COIN -> new CoinExpression(source, fraction());
+        case HOLE -> new HoleExpression(source);
+        case IF_THEN_ELSE -> new IfThenElseExpression(
+            source, expression(), expression(), expression());
+        case MATCH_TUPLE -> new MatchTupleExpression(
+            source, expression(), expression(), (TupleExpression) expression());
+        case MATCH_TREE -> new MatchTreeExpression(
+            source, expression(), expression(), expression(), expression());
+        case BOOLEAN -> new BooleanExpression(
+            source, expression(), ComparisonOperator.values()[in.readByte()], expression());
+        case CALL -> new CallExpression(source, string(), identifier(), expressions());
+        case LET -> new LetExpression(source, identifier(), expression(), expression());
+        case TUPLE -> new TupleExpression(source, expressions());
+        case NODE -> new NodeExpression(source, expressions());
+        default -> throw new IOException("unknown expression");
+      };
+    }
+
+    private IdentifierExpression identifier() throws IOException {
+      final var name = string();
+      return IdentifierExpression.get(name, source());
+    }
+
+    private FunctionSignature signature() throws IOException {
+      final var size = in.readInt();
+      final Set<TypeConstraint> constraints = new HashSet<>(size);
+      for (int i = 0; i < size; i++) {
+        final var typeClass = typeClass(string());
+        final var arity = in.readInt();
+        final var constrained = new Type[arity];
+        for (int j = 0; j < arity; j++) {
+          constrained[j] = type();
+        }
+        constraints.add(new TypeConstraint(typeClass, constrained));
+      }
+      final var from = (ProductType) type();
+      final var to = type();
+      Optional<CombinedFunctionAnnotation> annotation = Optional.empty();
+      if (in.readBoolean()) {
+        final var withCost = functionAnnotation();
+        final var withoutCostSize = in.readInt();
+        final Set<FunctionAnnotation> withoutCost = new HashSet<>(withoutCostSize);
+        for (int i = 0; i < withoutCostSize; i++) {
+          withoutCost.add(functionAnnotation());
+        }
+        annotation = Optional.of(new CombinedFunctionAnnotation(withCost, withoutCost));
+      }
+      return new FunctionSignature(constraints, new FunctionType(from, to), annotation);
+    }
+
+    private static TypeClass typeClass(String name) throws IOException {
+      if (TypeClass.EQ.getName().equals(name)) {
+        return TypeClass.EQ;
+      }
+      if (TypeClass.ORD.getName().equals(name)) {
+        return TypeClass.ORD;
+      }
+      throw new IOException("unknown type class " + name);
+    }
+
+    private Type type() throws IOException {
+      return switch (in.readByte()) {
+        case TYPE_BOOL -> BoolType.INSTANCE;
+        case TYPE_PRODUCT -> {
+          final var size = in.readInt();
+          final var elements = new ArrayList<Type>(size);
+          for (int i = 0; i < size; i++) {
+            elements.add(type());
+          }
+          yield new ProductType(elements);
+        }
+        case TYPE_VARIABLE -> new TypeVariable(string());
+        case TYPE_TREE -> new TreeType(new TypeVariable(string()));
+        default -> throw new IOException("unknown type");
+      };
+    }
+
+    private FunctionAnnotation functionAnnotation() throws IOException {
+      final var from = annotation();
+      return new FunctionAnnotation(from, annotation());
+    }
+
+    private Annotation annotation() throws IOException {
+      final var name = string();
+      final var size = in.readInt();
+      final var rankCoefficients = new ArrayList<Coefficient>(size);
+      for (int i = 0; i < size; i++) {
+        rankCoefficients.add(coefficient());
+      }
+      final var entries = in.readInt();
+      final Map<List<Integer>, Coefficient> coefficients = new HashMap<>(entries);
+      for (int i = 0; i < entries; i++) {
+        final var index = new Integer[size + 1];
+        for (int j = 0; j < index.length; j++) {
+          index[j] = in.readInt();
+        }
+        coefficients.put(List.of(index), coefficient());
+      }
+      return new Annotation(rankCoefficients, coefficients, name);
+    }
+
+    private KnownCoefficient coefficient() throws IOException {
+      return in.readBoolean() ? KnownCoefficient.ZERO : new KnownCoefficient(fraction());
+    }
+  }
+}
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -47,6 +48,8 @@ public class Annotation {
   public static final Comparator<Iterable<Integer>> INDEX_COMPARATOR =
       lexicographical(Integer::compareTo);
 
+  // Annotations may be shared between obligations that are proven in parallel, so coefficients
+  // are defined atomically. Rank coefficients are rarely defined but often read.
   private final List<Coefficient> rankCoefficients;
   private final Map<List<Integer>, Coefficient> coefficients;
 
@@ -64,8 +67,8 @@ public class Annotation {
       Map<List<Integer>, Coefficient> coefficients,
       String name,
       int id) {
-    this.rankCoefficients = rankCoefficients;
-    this.coefficients = coefficients;
+    this.rankCoefficients = new CopyOnWriteArrayList<>(rankCoefficients);
+    this.coefficients = IndexMap.copyOf(coefficients);
     this.name = name;
     this.id = id;
   }
@@ -73,11 +76,8 @@ public class Annotation {
   public Annotation(int size, String name) {
     this.name = name;
     this.id = COUNT.getAndIncrement();
-    rankCoefficients = new ArrayList<>(size);
-    for (int i = 0; i < size; i++) {
-      rankCoefficients.add(null);
-    }
-    coefficients = new HashMap<>();
+    rankCoefficients = new CopyOnWriteArrayList<>(new Coefficient[size]);
+    coefficients = new IndexMap();
   }
 
   public Annotation(
@@ -119,7 +119,7 @@ public class Annotation {
       String name) {
     this.name = name;
     this.id = COUNT.getAndIncrement();
-    this.rankCoefficients = new ArrayList<>(rankCoefficients);
+    this.rankCoefficients = new CopyOnWriteArrayList<>(rankCoefficients);
 
     for (var l : coefficients.keySet()) {
       if (l.size() != this.size() + 1) {
@@ -129,10 +129,12 @@ public class Annotation {
         throw bug("index sum is less than one");
       }
     }
-    this.coefficients =
-        coefficients.entrySet().stream()
-            .filter(entry -> !ZERO.equals(entry.getValue()))
-            .collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
+    this.coefficients = new IndexMap(coefficients.size());
+    for (var entry : coefficients.entrySet()) {
+      if (!ZERO.equals(entry.getValue())) {
+        this.coefficients.put(entry.getKey(), entry.getValue());
+      }
+    }
   }
 
   public static Annotation knownConstant(int size, String name, int potential) {
@@ -255,9 +257,9 @@ public class Annotation {
   }
 
   public static List<Integer> constantIndex(int size, int value) {
-    final var unitIndex = Util.zero(size);
-    unitIndex.add(value);
-    return unitIndex;
+    final var unitIndex = new int[size + 1];
+    unitIndex[size] = value;
+    return Index.of(unitIndex);
   }
 
   private static <K> boolean coefficientsEqualUnderZeroClosure(
@@ -320,7 +322,7 @@ public class Annotation {
   }
 
   public Coefficient getCoefficientOrDefine(int... index) {
-    return getCoefficientOrDefine(Ints.asList(index));
+    return getCoefficientOrDefine(Index.of(index));
   }
 
   public Coefficient getCoefficientOrZero(int... index) {
@@ -857,10 +859,12 @@ public class Annotation {
   }
 
   public Coefficient getRankCoefficientOrDefine(int i) {
-    if (rankCoefficients.get(i) == null) {
-      rankCoefficients.set(i, unknown(generateSubscript(i)));
+    synchronized (rankCoefficients) {
+      if (rankCoefficients.get(i) == null) {
+        rankCoefficients.set(i, unknown(generateSubscript(i)));
+      }
+      return rankCoefficients.get(i);
     }
-    return rankCoefficients.get(i);
   }
 
   public static Stream<List<Integer>> nonRankIndices(Annotation a, Annotation b) {
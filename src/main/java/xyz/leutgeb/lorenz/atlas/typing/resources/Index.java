@@ -0,0 +1,72 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Compact, immutable representation of an index of a non-rank coefficient in an {@link Annotation}.
+ * Behaves like any other {@link List} with respect to {@link #equals(Object)} and {@link
+ * #hashCode()}, but stores its elements unboxed and caches its hash, since indices are used as keys
+ * all over the place.
+ */
+public final class Index extends AbstractList<Integer> implements RandomAccess {
+  private final int[] elements;
+  private final int hash;
+
+  private Index(int[] elements) {
+    this.elements = elements;
+    int hash = 1;
+    for (int e : elements) {
+      hash = 31 * hash + e;
+    }
+    this.hash = hash;
+  }
+
+  public static Index of(int... elements) {
+    return new Index(elements.clone());
+  }
+
+  public static Index of(List<Integer> elements) {
+    if (elements instanceof Index index) {
+      return index;
+    }
+    final var result = new int[elements.size()];
+    int i = 0;
+    for (int e : elements) {
+      result[i++] = e;
+    }
+    return new Index(result);
+  }
+
+  @Override
+  public Integer get(int i) {
+    return elements[i];
+  }
+
+  public int getInt(int i) {
+    return elements[i];
+  }
+
+  @Override
+  public int size() {
+    return elements.length;
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o instanceof Index other) {
+      return hash == other.hash && Arrays.equals(elements, other.elements);
+    }
+    return super.equals(o);
+  }
+}
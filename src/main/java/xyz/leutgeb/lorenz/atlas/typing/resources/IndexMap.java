@@ -0,0 +1,217 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+
+/**
+ * Map from indices to coefficients using open addressing with linear probing. All keys are stored
+ * as {@link Index}, lookups work with any {@link List} of integers. Does not permit {@code null}
+ * keys or values.
+ *
+ * <p>All operations are synchronized, since annotations may be shared between obligations that
+ * are proven in parallel. Iteration works on a snapshot taken when the iterator is created.
+ */
+final class IndexMap extends AbstractMap<List<Integer>, Coefficient> {
+  private static final int MINIMUM_CAPACITY = 8;
+
+  private Index[] keys;
+  private Coefficient[] values;
+  private int size;
+
+  IndexMap() {
+    this(0);
+  }
+
+  IndexMap(int expectedSize) {
+    int capacity = MINIMUM_CAPACITY;
+    // Keep the load factor at or below 1/2.
+    while (capacity < 2 * expectedSize) {
+      capacity <<= 1;
+    }
+    keys = new Index[capacity];
+    values = new Coefficient[capacity];
+  }
+
+  private static int spread(int hash) {
+    final int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /** @return the slot of the given key, or the empty slot where it would be inserted. */
+  private int slot(Object key) {
+    final int mask = keys.length - 1;
+    int i = spread(key.hashCode()) & mask;
+    while (keys[i] != null && !keys[i].equals(key)) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  @Override
+  public synchronized int size() {
+    return size;
+  }
+
+  @Override
+  public synchronized Coefficient get(Object key) {
+    if (!(key instanceof List)) {
+      return null;
+    }
+    return values[slot(key)];
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public synchronized Coefficient put(List<Integer> key, Coefficient value) {
+    Objects.requireNonNull(value);
+    int i = slot(key);
+    final var previous = values[i];
+    if (previous == null) {
+      if (2 * (size + 1) > keys.length) {
+        grow();
+        i = slot(key);
+      }
+      keys[i] = Index.of(key);
+      size++;
+    }
+    values[i] = value;
+    return previous;
+  }
+
+  @Override
+  public synchronized Coefficient computeIfAbsent(
+      List<Integer> key, Function<? super List<Integer>, ? extends Coefficient> mappingFunction) {
+    final var existing = get(key);
+    if (existing != null) {
+      return existing;
+    }
+    final var index = Index.of(key);
+    final var value = mappingFunction.apply(index);
+    if (value != null) {
+      put(index, value);
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized Coefficient remove(Object key) {
+    if (!(key instanceof List)) {
+      return null;
+    }
+    int i = slot(key);
+    final var previous = values[i];
+    if (previous == null) {
+      return null;
+    }
+    delete(i);
+    return previous;
+  }
+
+  /** Removes the entry in the given slot, shifting back entries of the same probe sequence. */
+  private void delete(int i) {
+    final int mask = keys.length - 1;
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      if (keys[j] == null) {
+        break;
+      }
+      final int home = spread(keys[j].hashCode()) & mask;
+      // Move the entry in j to i if i lies cyclically within [home, j).
+      if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+        keys[i] = keys[j];
+        values[i] = values[j];
+        i = j;
+      }
+    }
+    keys[i] = null;
+    values[i] = null;
+    size--;
+  }
+
+  @Override
+  public synchronized void clear() {
+    keys = new Index[MINIMUM_CAPACITY];
+    values = new Coefficient[MINIMUM_CAPACITY];
+    size = 0;
+  }
+
+  private void grow() {
+    final var oldKeys = keys;
+    final var oldValues = values;
+    keys = new Index[oldKeys.length << 1];
+    values = new Coefficient[oldValues.length << 1];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != null) {
+        final int j = slot(oldKeys[i]);
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  @Override
+  public Set<Entry<List<Integer>, Coefficient>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Entry<List<Integer>, Coefficient>> iterator() {
+        final Index[] keys;
+        final Coefficient[] values;
+        synchronized (IndexMap.this) {
+          keys = IndexMap.this.keys.clone();
+          values = IndexMap.this.values.clone();
+        }
+        return new Iterator<>() {
+          private int next = advance(0);
+
+          private int advance(int i) {
+            while (i < keys.length && keys[i] == null) {
+              i++;
+            }
+            return i;
+          }
+
+          @Override
+          public boolean hasNext() {
+            return next < keys.length;
+          }
+
+          @Override
+          public Entry<List<Integer>, Coefficient> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            final int i = next;
+            next = advance(next + 1);
+            return new SimpleImmutableEntry<>(keys[i], values[i]);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return IndexMap.this.size();
+      }
+    };
+  }
+
+  static IndexMap copyOf(Map<? extends List<Integer>, ? extends Coefficient> map) {
+    final var result = new IndexMap(map.size());
+    for (var entry : map.entrySet()) {
+      result.put(entry.getKey(), entry.getValue());
+    }
+    return result;
+  }
+}
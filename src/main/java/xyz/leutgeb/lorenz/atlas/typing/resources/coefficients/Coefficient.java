@@ -1,10 +1,7 @@
 package xyz.leutgeb.lorenz.atlas.typing.resources.coefficients;
 
 import com.microsoft.z3.ArithExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import com.microsoft.z3.RealSort;
-import java.util.Map;
 import org.hipparchus.fraction.Fraction;
 
 public interface Coefficient {
@@ -33,7 +30,7 @@ public interface Coefficient {
     return UnknownCoefficient.raw(name);
   }
 
-  ArithExpr<RealSort> encode(Context ctx, Map<UnknownCoefficient, RealExpr> coefficients);
+  ArithExpr<RealSort> encode(Encoding encoding);
 
   Coefficient replace(Coefficient target, Coefficient replacement);
 
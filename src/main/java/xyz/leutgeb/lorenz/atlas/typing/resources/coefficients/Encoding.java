@@ -0,0 +1,96 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.coefficients;
+
+import com.microsoft.z3.ArithExpr;
+import com.microsoft.z3.Context;
+import com.microsoft.z3.RealExpr;
+import com.microsoft.z3.RealSort;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import org.hipparchus.fraction.Fraction;
+
+/**
+ * Encodes coefficients as Z3 expressions in one context. Constants, negated unknowns and sums are
+ * hash-consed, so that every distinct term is built only once, no matter how many constraints it
+ * occurs in. This saves calls into Z3, and Z3 itself shares equal terms anyway.
+ *
+ * <p>Unknown coefficients must be declared with {@link #put(UnknownCoefficient, RealExpr)} before
+ * they are encoded.
+ */
+public final class Encoding {
+  @Getter private final Context context;
+
+  /** Declared constants by canonical coefficient. */
+  private final Map<UnknownCoefficient, RealExpr> unknowns = new HashMap<>();
+
+  private final Map<Fraction, RealExpr> constants = new HashMap<>();
+  private final Map<UnknownCoefficient, ArithExpr<RealSort>> negations = new HashMap<>();
+  private final Map<List<Coefficient>, ArithExpr<RealSort>> sums = new HashMap<>();
+
+  /** Number of terms that were requested, but not built since they were encoded before. */
+  @Getter private long shared;
+
+  public Encoding(Context context) {
+    this.context = context;
+  }
+
+  public void put(UnknownCoefficient coefficient, RealExpr expr) {
+    unknowns.put(coefficient.canonical(), expr);
+  }
+
+  public boolean containsKey(UnknownCoefficient coefficient) {
+    return unknowns.containsKey(coefficient.canonical());
+  }
+
+  /** @return the constant declared for the canonical form of the given coefficient. */
+  public RealExpr get(UnknownCoefficient coefficient) {
+    return unknowns.get(coefficient.canonical());
+  }
+
+  public RealExpr constant(Fraction value) {
+    final var existing = constants.get(value);
+    if (existing != null) {
+      shared++;
+      return existing;
+    }
+    final var result = context.mkReal(value.getNumerator(), value.getDenominator());
+    constants.put(value, result);
+    return result;
+  }
+
+  ArithExpr<RealSort> unknown(UnknownCoefficient coefficient) {
+    if (!coefficient.isNegated()) {
+      return unknowns.get(coefficient);
+    }
+    final var existing = negations.get(coefficient);
+    if (existing != null) {
+      shared++;
+      return existing;
+    }
+    final var result = context.mkUnaryMinus(unknowns.get(coefficient.canonical()));
+    negations.put(coefficient, result);
+    return result;
+  }
+
+  /** @return the sum of the given coefficients, as one n-ary addition. */
+  public ArithExpr<RealSort> sum(List<? extends Coefficient> summands) {
+    if (summands.size() == 1) {
+      return summands.get(0).encode(this);
+    }
+    final var key = List.<Coefficient>copyOf(summands);
+    final var existing = sums.get(key);
+    if (existing != null) {
+      shared++;
+      return existing;
+    }
+    @SuppressWarnings("unchecked")
+    final ArithExpr<RealSort>[] encoded = new ArithExpr[summands.size()];
+    for (int i = 0; i < encoded.length; i++) {
+      encoded[i] = summands.get(i).encode(this);
+    }
+    final var result = context.mkAdd(encoded);
+    sums.put(key, result);
+    return result;
+  }
+}
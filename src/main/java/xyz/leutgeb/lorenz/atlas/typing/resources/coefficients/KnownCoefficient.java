@@ -1,8 +1,6 @@
 package xyz.leutgeb.lorenz.atlas.typing.resources.coefficients;
 
-import com.microsoft.z3.Context;
 import com.microsoft.z3.RealExpr;
-import java.util.Map;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import org.hipparchus.fraction.Fraction;
@@ -35,8 +33,8 @@ public class KnownCoefficient implements Coefficient {
     this(new Fraction(value));
   }
 
-  public RealExpr encode(Context context, Map<UnknownCoefficient, RealExpr> coefficients) {
-    return context.mkReal(value.getNumerator(), value.getDenominator());
+  public RealExpr encode(Encoding encoding) {
+    return encoding.constant(value);
   }
 
   @Override
@@ -1,12 +1,7 @@
 package xyz.leutgeb.lorenz.atlas.typing.resources.coefficients;
 
-import static xyz.leutgeb.lorenz.atlas.util.Util.bug;
-
 import com.microsoft.z3.ArithExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import com.microsoft.z3.RealSort;
-import java.util.Map;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
@@ -50,19 +45,15 @@ public class UnknownCoefficient implements Coefficient {
     return (negated ? "-" : "") + name;
   }
 
-  public ArithExpr<RealSort> encode(Context ctx, Map<UnknownCoefficient, RealExpr> coefficients) {
-    final var inner = coefficients.get(this.canonical());
-    return negated ? ctx.mkUnaryMinus(inner) : inner;
+  public ArithExpr<RealSort> encode(Encoding encoding) {
+    return encoding.unknown(this);
   }
 
   @Override
   public Coefficient replace(Coefficient target, Coefficient replacement) {
-    if (negated) {
-      throw bug("don't know how to replace negated coefficient");
-    }
     if (target instanceof final UnknownCoefficient unknownCoefficient) {
       if (unknownCoefficient.name.equals(name)) {
-        return replacement;
+        return negated ? replacement.negate() : replacement;
       }
     }
     return this;
@@ -4,10 +4,7 @@ import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static xyz.leutgeb.lorenz.atlas.util.Util.pick;
 
-import com.google.common.collect.BiMap;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Node;
 import java.util.List;
@@ -19,7 +16,7 @@ import java.util.stream.Stream;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
 
 @Value
 @EqualsAndHashCode(callSuper = false)
@@ -33,17 +30,16 @@ public class ConjunctiveConstraint extends Constraint {
   }
 
   @Override
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
+  public BoolExpr encode(Encoding encoding) {
+    final var ctx = encoding.getContext();
     if (elements.isEmpty()) {
       return ctx.mkTrue();
     }
     if (elements.size() == 1) {
-      return pick(elements).encode(ctx, coefficients);
+      return pick(elements).encode(encoding);
     }
     return ctx.mkAnd(
-        elements.stream()
-            .map(element -> element.encode(ctx, coefficients))
-            .toArray(BoolExpr[]::new));
+        elements.stream().map(element -> element.encode(encoding)).toArray(BoolExpr[]::new));
   }
 
   @Override
@@ -80,4 +76,14 @@ public class ConjunctiveConstraint extends Constraint {
   public Stream<Constraint> children() {
     return elements.stream();
   }
+
+  @Override
+  public boolean known() {
+    return elements.stream().allMatch(Constraint::known);
+  }
+
+  @Override
+  protected boolean satisfiedInternal() {
+    return elements.stream().allMatch(Constraint::satisfied);
+  }
 }
@@ -3,13 +3,9 @@ package xyz.leutgeb.lorenz.atlas.typing.resources.constraints;
 import static guru.nidi.graphviz.model.Factory.graph;
 import static guru.nidi.graphviz.model.Factory.node;
 import static xyz.leutgeb.lorenz.atlas.util.Util.append;
-import static xyz.leutgeb.lorenz.atlas.util.Util.output;
 import static xyz.leutgeb.lorenz.atlas.util.Util.rawObjectNode;
 
-import com.google.common.collect.BiMap;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.attribute.Label;
 import guru.nidi.graphviz.attribute.Records;
 import guru.nidi.graphviz.engine.Engine;
@@ -26,17 +22,32 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.util.Artifacts;
 
 @Slf4j
 public abstract class Constraint {
-  private final String reason;
+  private static final AtomicLong NEXT_ID = new AtomicLong();
+
+  /**
+   * Identifies this constraint among all constraints created by this process. Identifiers are
+   * assigned in order of creation.
+   */
+  @Getter private final long id = NEXT_ID.getAndIncrement();
+
+  /**
+   * Most reasons are never displayed, so they may be given as a supplier that is only called once
+   * the reason is requested. Holds either a {@link String} or a {@link Supplier} of one.
+   */
+  private volatile Object reason;
 
   /**
    * For debugging purposes. This flag will be set to {@code true} if this constraint is part of the
@@ -48,6 +59,10 @@ public abstract class Constraint {
     this.reason = reason;
   }
 
+  public Constraint(Supplier<String> reason) {
+    this.reason = reason;
+  }
+
   public static void plot(String name, Set<Constraint> constraints, Path path) {
     try {
       Graph graph =
@@ -85,15 +100,17 @@ public abstract class Constraint {
       for (var it : constraints) {
         graph = it.toGraph(graph, nodes);
       }
-      var lel = new GraphvizCmdLineEngine();
-      lel.timeout(2, TimeUnit.MINUTES);
-      Graphviz.useEngine(lel);
       var viz = Graphviz.fromGraph(graph);
       Path target = path.resolve(name + "-constraints.svg");
-      try (final var out = output(target)) {
-        viz.engine(Engine.DOT).render(Format.SVG).toOutputStream(out);
-        log.info("Wrote plot to {}", target);
-      }
+      Artifacts.write(
+          Artifacts.Kind.PLOTS,
+          target,
+          out -> {
+            var lel = new GraphvizCmdLineEngine();
+            lel.timeout(2, TimeUnit.MINUTES);
+            Graphviz.useEngine(lel);
+            viz.engine(Engine.DOT).render(Format.SVG).toOutputStream(out);
+          });
     } catch (Exception e) {
       log.warn("Non-critical exception thrown.", e);
     }
@@ -108,10 +125,27 @@ public abstract class Constraint {
   }
 
   public String getReason() {
-    return reason;
+    final var reason = this.reason;
+    if (reason instanceof Supplier<?> supplier) {
+      final var rendered = String.valueOf(supplier.get());
+      this.reason = rendered;
+      return rendered;
+    }
+    return (String) reason;
+  }
+
+  /**
+   * @return the reason of this constraint without rendering it, to be passed on to constraints
+   *     derived from this one.
+   */
+  public Supplier<String> lazyReason() {
+    if (reason instanceof String rendered) {
+      return () -> rendered;
+    }
+    return this::getReason;
   }
 
-  public abstract BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients);
+  public abstract BoolExpr encode(Encoding encoding);
 
   /**
    * Edge colors:
@@ -135,9 +169,9 @@ public abstract class Constraint {
 
   public abstract Set<Coefficient> occurringCoefficients();
 
+  /** @return the name of the literal that tracks this constraint in unsatisfiable cores. */
   public String getTracking() {
-    return String.format("%010d", System.identityHashCode(this)) + ": " + reason;
-    // return Util.stamp(this);
+    return "c" + id;
   }
 
   public Stream<Constraint> children() {
@@ -169,7 +203,7 @@ public abstract class Constraint {
   }
 
   public String toStringWithReason() {
-    return toString() + " ∵ " + reason;
+    return toString() + " ∵ " + getReason();
   }
 
   public String toRecord() {
@@ -3,10 +3,7 @@ package xyz.leutgeb.lorenz.atlas.typing.resources.constraints;
 import static java.util.stream.Collectors.toSet;
 import static xyz.leutgeb.lorenz.atlas.util.Util.pick;
 
-import com.google.common.collect.BiMap;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Node;
 import java.util.List;
@@ -18,7 +15,7 @@ import java.util.stream.Stream;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
 
 @Value
 @Slf4j
@@ -32,17 +29,16 @@ public class DisjunctiveConstraint extends Constraint {
   }
 
   @Override
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
+  public BoolExpr encode(Encoding encoding) {
+    final var ctx = encoding.getContext();
     if (elements.isEmpty()) {
       return ctx.mkFalse();
     }
     if (elements.size() == 1) {
-      return pick(elements).encode(ctx, coefficients);
+      return pick(elements).encode(encoding);
     }
     return ctx.mkOr(
-        elements.stream()
-            .map(element -> element.encode(ctx, coefficients))
-            .toArray(BoolExpr[]::new));
+        elements.stream().map(element -> element.encode(encoding)).toArray(BoolExpr[]::new));
   }
 
   @Override
@@ -80,4 +76,14 @@ public class DisjunctiveConstraint extends Constraint {
   public Stream<Constraint> children() {
     return elements.stream();
   }
+
+  @Override
+  public boolean known() {
+    return elements.stream().allMatch(Constraint::known);
+  }
+
+  @Override
+  protected boolean satisfiedInternal() {
+    return elements.stream().anyMatch(Constraint::satisfied);
+  }
 }
@@ -6,10 +6,7 @@ import static java.util.Collections.singleton;
 import static xyz.leutgeb.lorenz.atlas.typing.resources.Annotation.unitIndex;
 import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.ZERO;
 
-import com.google.common.collect.BiMap;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.attribute.Color;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Node;
@@ -19,6 +16,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import lombok.Data;
@@ -29,8 +27,8 @@ import xyz.leutgeb.lorenz.atlas.ast.expressions.IdentifierExpression;
 import xyz.leutgeb.lorenz.atlas.typing.resources.AnnotatingContext;
 import xyz.leutgeb.lorenz.atlas.typing.resources.Annotation;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
 
 @Data
 @Slf4j
@@ -42,17 +40,24 @@ public class EqualityConstraint extends Constraint {
 
   public EqualityConstraint(Coefficient left, Coefficient right, String reason) {
     super(reason);
-    Objects.requireNonNull(left);
-    Objects.requireNonNull(right);
-    this.left = left;
-    this.right = right;
+    this.left = Objects.requireNonNull(left);
+    this.right = Objects.requireNonNull(right);
+    this.satisfiable = satisfiable(left, right);
+  }
+
+  public EqualityConstraint(Coefficient left, Coefficient right, Supplier<String> reason) {
+    super(reason);
+    this.left = Objects.requireNonNull(left);
+    this.right = Objects.requireNonNull(right);
+    this.satisfiable = satisfiable(left, right);
+  }
 
+  private static boolean satisfiable(Coefficient left, Coefficient right) {
     if (left instanceof KnownCoefficient l && right instanceof KnownCoefficient r && !l.equals(r)) {
-      satisfiable = false;
       log.debug("Generating unsatisfiable constraint '{} = {}'.", left, right);
-    } else {
-      satisfiable = true;
+      return false;
     }
+    return true;
   }
 
   public static List<Constraint> eqRanksDefineFromLeft(
@@ -157,11 +162,12 @@ public class EqualityConstraint extends Constraint {
     return result;
   }
 
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
+  public BoolExpr encode(Encoding encoding) {
+    final var ctx = encoding.getContext();
     /*if (!satisfiable) {
       return ctx.mkFalse();
     }*/
-    return ctx.mkEq(left.encode(ctx, coefficients), right.encode(ctx, coefficients));
+    return ctx.mkEq(left.encode(encoding), right.encode(encoding));
   }
 
   @Override
@@ -179,7 +185,7 @@ public class EqualityConstraint extends Constraint {
   @Override
   public Constraint replace(Coefficient target, Coefficient replacement) {
     return new EqualityConstraint(
-        left.replace(target, replacement), right.replace(target, replacement), getReason());
+        left.replace(target, replacement), right.replace(target, replacement), lazyReason());
   }
 
   @Override
@@ -3,10 +3,7 @@ package xyz.leutgeb.lorenz.atlas.typing.resources.constraints;
 import static java.util.Collections.singleton;
 import static xyz.leutgeb.lorenz.atlas.util.Util.bug;
 
-import com.google.common.collect.BiMap;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Node;
 import java.util.Map;
@@ -17,8 +14,8 @@ import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
 
 @Data
 @Slf4j
@@ -34,12 +31,12 @@ public class EqualsAbsConstraint extends Constraint {
     this.right = right;
   }
 
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
+  public BoolExpr encode(Encoding encoding) {
+    final var ctx = encoding.getContext();
     return ctx.mkEq(
-        left.encode(ctx, coefficients),
+        left.encode(encoding),
         ctx.mkApp(
-            ctx.mkFuncDecl("abs", ctx.getRealSort(), ctx.getRealSort()),
-            right.encode(ctx, coefficients)));
+            ctx.mkFuncDecl("abs", ctx.getRealSort(), ctx.getRealSort()), right.encode(encoding)));
   }
 
   @Override
@@ -10,11 +10,8 @@ import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoeffi
 import static xyz.leutgeb.lorenz.atlas.util.Util.objectNode;
 import static xyz.leutgeb.lorenz.atlas.util.Util.pick;
 
-import com.google.common.collect.BiMap;
 import com.microsoft.z3.ArithExpr;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.attribute.Color;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Link;
@@ -24,12 +21,14 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
+import org.hipparchus.fraction.Fraction;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
 
 @Value
 @EqualsAndHashCode(callSuper = true)
@@ -39,14 +38,25 @@ public class EqualsProductConstraint extends Constraint {
 
   public EqualsProductConstraint(Coefficient left, Collection<Coefficient> product, String reason) {
     super(reason);
+    this.left = left;
+    this.product = normalize(product);
+  }
+
+  public EqualsProductConstraint(
+      Coefficient left, Collection<Coefficient> product, Supplier<String> reason) {
+    super(reason);
+    this.left = left;
+    this.product = normalize(product);
+  }
+
+  private static Collection<Coefficient> normalize(Collection<Coefficient> product) {
     if (product.isEmpty()) {
-      product = singletonList(ONE);
+      return singletonList(ONE);
     }
     if (product.contains(KnownCoefficient.ZERO)) {
-      product = singletonList(ZERO);
+      return singletonList(ZERO);
     }
-    this.left = left;
-    this.product = product;
+    return product;
   }
 
   public String toString() {
@@ -55,15 +65,16 @@ public class EqualsProductConstraint extends Constraint {
   }
 
   @Override
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
+  public BoolExpr encode(Encoding encoding) {
+    final var ctx = encoding.getContext();
     if (product.size() == 1) {
-      return ctx.mkEq(left.encode(ctx, coefficients), pick(product).encode(ctx, coefficients));
+      return ctx.mkEq(left.encode(encoding), pick(product).encode(encoding));
     }
 
     final ArithExpr[] encodedSum =
-        product.stream().map(c -> c.encode(ctx, coefficients)).toArray(ArithExpr[]::new);
+        product.stream().map(c -> c.encode(encoding)).toArray(ArithExpr[]::new);
 
-    return ctx.mkEq(left.encode(ctx, coefficients), ctx.mkMul(encodedSum));
+    return ctx.mkEq(left.encode(encoding), ctx.mkMul(encodedSum));
   }
 
   @Override
@@ -91,9 +102,9 @@ public class EqualsProductConstraint extends Constraint {
   @Override
   public Constraint replace(Coefficient target, Coefficient replacement) {
     return new EqualsProductConstraint(
-        left,
+        left.replace(target, replacement),
         product.stream().map(c -> c.replace(target, replacement)).collect(Collectors.toList()),
-        getReason());
+        lazyReason());
   }
 
   @Override
@@ -101,4 +112,19 @@ public class EqualsProductConstraint extends Constraint {
     return union(
         singleton(left.canonical()), product.stream().map(Coefficient::canonical).collect(toSet()));
   }
+
+  @Override
+  public boolean known() {
+    return left instanceof KnownCoefficient
+        && product.stream().allMatch(KnownCoefficient.class::isInstance);
+  }
+
+  @Override
+  protected boolean satisfiedInternal() {
+    var result = Fraction.ONE;
+    for (var factor : product) {
+      result = result.multiply(((KnownCoefficient) factor).getValue());
+    }
+    return ((KnownCoefficient) left).getValue().equals(result);
+  }
 }
@@ -7,13 +7,8 @@ import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toSet;
 import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.ZERO;
 import static xyz.leutgeb.lorenz.atlas.util.Util.objectNode;
-import static xyz.leutgeb.lorenz.atlas.util.Util.pick;
 
-import com.google.common.collect.BiMap;
-import com.microsoft.z3.ArithExpr;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.attribute.Color;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Link;
@@ -25,11 +20,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
+import org.hipparchus.fraction.Fraction;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
 
 @Value
 @EqualsAndHashCode(callSuper = true)
@@ -40,6 +38,18 @@ public class EqualsSumConstraint extends Constraint {
   public EqualsSumConstraint(
       Coefficient left, Collection<Coefficient> sumCollection, String reason) {
     super(reason);
+    this.left = left;
+    this.sum = normalize(sumCollection);
+  }
+
+  public EqualsSumConstraint(
+      Coefficient left, Collection<Coefficient> sumCollection, Supplier<String> reason) {
+    super(reason);
+    this.left = left;
+    this.sum = normalize(sumCollection);
+  }
+
+  private static List<Coefficient> normalize(Collection<Coefficient> sumCollection) {
     List<Coefficient> sum = new ArrayList<>(sumCollection);
     if (sum.isEmpty()) {
       sum = singletonList(ZERO);
@@ -51,8 +61,7 @@ public class EqualsSumConstraint extends Constraint {
         sum = List.of(sum.get(0));
       }
     }
-    this.left = left;
-    this.sum = sum;
+    return sum;
   }
 
   @Override
@@ -62,15 +71,8 @@ public class EqualsSumConstraint extends Constraint {
   }
 
   @Override
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
-    if (sum.size() == 1) {
-      return ctx.mkEq(left.encode(ctx, coefficients), pick(sum).encode(ctx, coefficients));
-    }
-
-    final ArithExpr[] encodedSum =
-        sum.stream().map(c -> c.encode(ctx, coefficients)).toArray(ArithExpr[]::new);
-
-    return ctx.mkEq(left.encode(ctx, coefficients), ctx.mkAdd(encodedSum));
+  public BoolExpr encode(Encoding encoding) {
+    return encoding.getContext().mkEq(left.encode(encoding), encoding.sum(sum));
   }
 
   @Override
@@ -98,9 +100,9 @@ public class EqualsSumConstraint extends Constraint {
   @Override
   public Constraint replace(Coefficient target, Coefficient replacement) {
     return new EqualsSumConstraint(
-        left,
+        left.replace(target, replacement),
         sum.stream().map(c -> c.replace(target, replacement)).collect(Collectors.toList()),
-        getReason());
+        lazyReason());
   }
 
   @Override
@@ -108,4 +110,19 @@ public class EqualsSumConstraint extends Constraint {
     return union(
         singleton(left.canonical()), sum.stream().map(Coefficient::canonical).collect(toSet()));
   }
+
+  @Override
+  public boolean known() {
+    return left instanceof KnownCoefficient
+        && sum.stream().allMatch(KnownCoefficient.class::isInstance);
+  }
+
+  @Override
+  protected boolean satisfiedInternal() {
+    var result = Fraction.ZERO;
+    for (var summand : sum) {
+      result = result.add(((KnownCoefficient) summand).getValue());
+    }
+    return ((KnownCoefficient) left).getValue().equals(result);
+  }
 }
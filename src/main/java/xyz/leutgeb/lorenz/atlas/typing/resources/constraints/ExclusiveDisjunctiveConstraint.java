@@ -2,10 +2,7 @@ package xyz.leutgeb.lorenz.atlas.typing.resources.constraints;
 
 import static java.util.stream.Collectors.toSet;
 
-import com.google.common.collect.BiMap;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Node;
 import java.util.Map;
@@ -14,7 +11,7 @@ import java.util.stream.Stream;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
 
 @Value
 @Slf4j
@@ -29,8 +26,9 @@ public class ExclusiveDisjunctiveConstraint extends Constraint {
   }
 
   @Override
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
-    return ctx.mkXor(left.encode(ctx, coefficients), right.encode(ctx, coefficients));
+  public BoolExpr encode(Encoding encoding) {
+    final var ctx = encoding.getContext();
+    return ctx.mkXor(left.encode(encoding), right.encode(encoding));
   }
 
   @Override
@@ -62,4 +60,14 @@ public class ExclusiveDisjunctiveConstraint extends Constraint {
   public Stream<Constraint> children() {
     return Stream.of(left, right);
   }
+
+  @Override
+  public boolean known() {
+    return left.known() && right.known();
+  }
+
+  @Override
+  protected boolean satisfiedInternal() {
+    return left.satisfied() != right.satisfied();
+  }
 }
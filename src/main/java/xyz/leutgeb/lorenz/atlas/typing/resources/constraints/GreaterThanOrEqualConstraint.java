@@ -2,20 +2,19 @@ package xyz.leutgeb.lorenz.atlas.typing.resources.constraints;
 
 import static guru.nidi.graphviz.model.Link.to;
 
-import com.google.common.collect.BiMap;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.attribute.Color;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Node;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.Value;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
 
 /** @see LessThanOrEqualConstraint */
 @Value
@@ -30,9 +29,17 @@ public class GreaterThanOrEqualConstraint extends Constraint {
     this.right = right;
   }
 
+  public GreaterThanOrEqualConstraint(
+      @NonNull Coefficient left, @NonNull Coefficient right, Supplier<String> reason) {
+    super(reason);
+    this.left = left;
+    this.right = right;
+  }
+
   @Override
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
-    return ctx.mkGe(left.encode(ctx, coefficients), right.encode(ctx, coefficients));
+  public BoolExpr encode(Encoding encoding) {
+    final var ctx = encoding.getContext();
+    return ctx.mkGe(left.encode(encoding), right.encode(encoding));
   }
 
   @Override
@@ -53,7 +60,7 @@ public class GreaterThanOrEqualConstraint extends Constraint {
   @Override
   public Constraint replace(Coefficient target, Coefficient replacement) {
     return new GreaterThanOrEqualConstraint(
-        left.replace(target, replacement), right.replace(target, replacement), getReason());
+        left.replace(target, replacement), right.replace(target, replacement), lazyReason());
   }
 
   @Override
@@ -61,6 +68,17 @@ public class GreaterThanOrEqualConstraint extends Constraint {
     return Set.of(left.canonical(), right.canonical());
   }
 
+  @Override
+  public boolean known() {
+    return left instanceof KnownCoefficient && right instanceof KnownCoefficient;
+  }
+
+  @Override
+  protected boolean satisfiedInternal() {
+    return ((KnownCoefficient) left).getValue().compareTo(((KnownCoefficient) right).getValue())
+        >= 0;
+  }
+
   @Override
   public String toString() {
     return left + " ≥ " + right;
@@ -1,10 +1,7 @@
 package xyz.leutgeb.lorenz.atlas.typing.resources.constraints;
 
-import com.google.common.collect.BiMap;
 import com.google.common.collect.Sets;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Node;
 import java.util.Map;
@@ -13,7 +10,8 @@ import lombok.EqualsAndHashCode;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
 
 @Value
 @EqualsAndHashCode(callSuper = true)
@@ -38,13 +36,12 @@ public class IfThenElseConstraint extends Constraint {
   }
 
   @Override
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
+  public BoolExpr encode(Encoding encoding) {
+    final var ctx = encoding.getContext();
     return ctx.mkEq(
-        target.encode(ctx, coefficients),
+        target.encode(encoding),
         ctx.mkITE(
-            condition.encode(ctx, coefficients),
-            thenBranch.encode(ctx, coefficients),
-            elseBranch.encode(ctx, coefficients)));
+            condition.encode(encoding), thenBranch.encode(encoding), elseBranch.encode(encoding)));
   }
 
   @Override
@@ -80,4 +77,17 @@ public class IfThenElseConstraint extends Constraint {
         + elseBranch
         + ")))";
   }
+
+  @Override
+  public boolean known() {
+    return condition.known()
+        && thenBranch instanceof KnownCoefficient
+        && elseBranch instanceof KnownCoefficient
+        && target instanceof KnownCoefficient;
+  }
+
+  @Override
+  protected boolean satisfiedInternal() {
+    return target.equals(condition.satisfied() ? thenBranch : elseBranch);
+  }
 }
@@ -2,10 +2,7 @@ package xyz.leutgeb.lorenz.atlas.typing.resources.constraints;
 
 import static guru.nidi.graphviz.model.Link.to;
 
-import com.google.common.collect.BiMap;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.attribute.Color;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Node;
@@ -17,8 +14,8 @@ import lombok.NonNull;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
 
 @Value
 @Slf4j
@@ -38,8 +35,9 @@ public class InequalityConstraint extends Constraint {
     this.right = right;
   }
 
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
-    return ctx.mkNot(ctx.mkEq(left.encode(ctx, coefficients), right.encode(ctx, coefficients)));
+  public BoolExpr encode(Encoding encoding) {
+    final var ctx = encoding.getContext();
+    return ctx.mkNot(ctx.mkEq(left.encode(encoding), right.encode(encoding)));
   }
 
   @Override
@@ -2,21 +2,20 @@ package xyz.leutgeb.lorenz.atlas.typing.resources.constraints;
 
 import static guru.nidi.graphviz.model.Link.to;
 
-import com.google.common.collect.BiMap;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.attribute.Color;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Node;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.Value;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
 
 /** @see GreaterThanOrEqualConstraint */
 @Value
@@ -31,9 +30,17 @@ public class LessThanOrEqualConstraint extends Constraint {
     this.bigger = bigger;
   }
 
+  public LessThanOrEqualConstraint(
+      @NonNull Coefficient smaller, @NonNull Coefficient bigger, Supplier<String> reason) {
+    super(reason);
+    this.smaller = smaller;
+    this.bigger = bigger;
+  }
+
   @Override
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
-    return ctx.mkLe(smaller.encode(ctx, coefficients), bigger.encode(ctx, coefficients));
+  public BoolExpr encode(Encoding encoding) {
+    final var ctx = encoding.getContext();
+    return ctx.mkLe(smaller.encode(encoding), bigger.encode(encoding));
   }
 
   @Override
@@ -54,7 +61,7 @@ public class LessThanOrEqualConstraint extends Constraint {
   @Override
   public Constraint replace(Coefficient target, Coefficient replacement) {
     return new LessThanOrEqualConstraint(
-        smaller.replace(target, replacement), bigger.replace(target, replacement), getReason());
+        smaller.replace(target, replacement), bigger.replace(target, replacement), lazyReason());
   }
 
   @Override
@@ -66,6 +73,17 @@ public class LessThanOrEqualConstraint extends Constraint {
     // return Set.of(left.canonical(), right.canonical());
   }
 
+  @Override
+  public boolean known() {
+    return smaller instanceof KnownCoefficient && bigger instanceof KnownCoefficient;
+  }
+
+  @Override
+  protected boolean satisfiedInternal() {
+    return ((KnownCoefficient) smaller).getValue().compareTo(((KnownCoefficient) bigger).getValue())
+        <= 0;
+  }
+
   @Override
   public String toString() {
     return smaller + " ≤ " + bigger;
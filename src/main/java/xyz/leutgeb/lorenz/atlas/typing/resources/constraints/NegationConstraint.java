@@ -1,9 +1,6 @@
 package xyz.leutgeb.lorenz.atlas.typing.resources.constraints;
 
-import com.google.common.collect.BiMap;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Node;
 import java.util.Map;
@@ -11,7 +8,7 @@ import java.util.Set;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
 
 @Value
 @Slf4j
@@ -24,8 +21,9 @@ public class NegationConstraint extends Constraint {
   }
 
   @Override
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
-    return ctx.mkNot(element.encode(ctx, coefficients));
+  public BoolExpr encode(Encoding encoding) {
+    final var ctx = encoding.getContext();
+    return ctx.mkNot(element.encode(encoding));
   }
 
   @Override
@@ -48,4 +46,14 @@ public class NegationConstraint extends Constraint {
   public String toString() {
     return "¬(" + element + ")";
   }
+
+  @Override
+  public boolean known() {
+    return element.known();
+  }
+
+  @Override
+  protected boolean satisfiedInternal() {
+    return !element.satisfied();
+  }
 }
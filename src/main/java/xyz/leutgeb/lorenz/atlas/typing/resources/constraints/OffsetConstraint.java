@@ -3,23 +3,22 @@ package xyz.leutgeb.lorenz.atlas.typing.resources.constraints;
 import static guru.nidi.graphviz.model.Link.to;
 import static xyz.leutgeb.lorenz.atlas.util.Util.objectNode;
 
-import com.google.common.collect.BiMap;
 import com.google.common.collect.Sets;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.attribute.Color;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Node;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.hipparchus.fraction.Fraction;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
 
 @Data
 @EqualsAndHashCode(callSuper = true)
@@ -35,22 +34,26 @@ public class OffsetConstraint extends EqualityConstraint {
     this.offset = offset;
   }
 
+  public OffsetConstraint(
+      Coefficient left, Coefficient right, Coefficient offset, Supplier<String> reason) {
+    super(left, right, reason);
+    this.offset = offset;
+  }
+
   @Override
   public String toString() {
     return left + " = " + right + " + " + offset;
   }
 
   @Override
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
+  public BoolExpr encode(Encoding encoding) {
     /*
     if (offset instanceof KnownCoefficient
         && ((KnownCoefficient) offset).getValue().getDenominator() != 1) {
       throw bug("oops");
     }
      */
-    return ctx.mkEq(
-        left.encode(ctx, coefficients),
-        ctx.mkAdd(right.encode(ctx, coefficients), offset.encode(ctx, coefficients)));
+    return encoding.getContext().mkEq(left.encode(encoding), encoding.sum(List.of(right, offset)));
   }
 
   @Override
@@ -62,8 +65,29 @@ public class OffsetConstraint extends EqualityConstraint {
         .with(aux.link(highlight(to(nodes.get(right)).with(Color.RED).with("dir", "none"))));
   }
 
+  @Override
+  public Constraint replace(Coefficient target, Coefficient replacement) {
+    return new OffsetConstraint(
+        left.replace(target, replacement),
+        right.replace(target, replacement),
+        offset.replace(target, replacement),
+        lazyReason());
+  }
+
   @Override
   public Set<Coefficient> occurringCoefficients() {
     return Sets.union(super.occurringCoefficients(), Collections.singleton(offset.canonical()));
   }
+
+  @Override
+  public boolean known() {
+    return super.known() && offset instanceof KnownCoefficient;
+  }
+
+  @Override
+  protected boolean satisfiedInternal() {
+    return ((KnownCoefficient) left)
+        .getValue()
+        .equals(((KnownCoefficient) right).getValue().add(((KnownCoefficient) offset).getValue()));
+  }
 }
@@ -1,16 +1,13 @@
 package xyz.leutgeb.lorenz.atlas.typing.resources.constraints;
 
-import com.google.common.collect.BiMap;
 import com.microsoft.z3.BoolExpr;
-import com.microsoft.z3.Context;
-import com.microsoft.z3.RealExpr;
 import guru.nidi.graphviz.model.Graph;
 import guru.nidi.graphviz.model.Node;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
 
 public class UnsatisfiableConstraint extends Constraint {
   public UnsatisfiableConstraint(String reason) {
@@ -18,7 +15,8 @@ public class UnsatisfiableConstraint extends Constraint {
   }
 
   @Override
-  public BoolExpr encode(Context ctx, BiMap<UnknownCoefficient, RealExpr> coefficients) {
+  public BoolExpr encode(Encoding encoding) {
+    final var ctx = encoding.getContext();
     return ctx.mkFalse();
   }
 
@@ -37,4 +35,14 @@ public class UnsatisfiableConstraint extends Constraint {
   public Set<Coefficient> occurringCoefficients() {
     return Collections.emptySet();
   }
+
+  @Override
+  public boolean known() {
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "⊥";
+  }
 }
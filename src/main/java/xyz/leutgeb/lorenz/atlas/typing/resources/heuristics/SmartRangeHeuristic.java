@@ -10,6 +10,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.Data;
 import xyz.leutgeb.lorenz.atlas.typing.resources.Annotation;
+import xyz.leutgeb.lorenz.atlas.typing.resources.Index;
 
 @Data
 public class SmartRangeHeuristic implements AnnotationHeuristic {
@@ -82,6 +83,7 @@ public class SmartRangeHeuristic implements AnnotationHeuristic {
               }
 
               return sum > 0 && (last != 1 || hasTree);
-            });
+            })
+        .map(Index::of);
   }
 }
@@ -401,6 +401,17 @@ public class Optimization {
   }
 
   public static MultiTarget standard(Set<FunctionDefinition> functionDefinitions) {
+    return standard(functionDefinitions, false);
+  }
+
+  /**
+   * @param layered if true, there is one target per criterion, which are to be minimized
+   *     lexicographically, otherwise the criteria are combined into one target by a weighted sum.
+   */
+  public static MultiTarget standard(Set<FunctionDefinition> functionDefinitions, boolean layered) {
+    if (layered) {
+      return progressive(functionDefinitions);
+    }
     return Optimization.layeredCombo(
             functionDefinitions,
             Optimization::rankDifference,
@@ -412,6 +423,18 @@ public class Optimization {
   }
 
   public static MultiTarget direct(Set<FunctionDefinition> functionDefinitions) {
+    return direct(functionDefinitions, false);
+  }
+
+  /** @see #standard(Set, boolean) */
+  public static MultiTarget direct(Set<FunctionDefinition> functionDefinitions, boolean layered) {
+    if (layered) {
+      return Optimization.layeredMultiCombo(
+          functionDefinitions,
+          Optimization::absRank,
+          Optimization::customWeightedComponentWiseDifference,
+          Optimization::constantDifference);
+    }
     return Optimization.layeredCombo(
             functionDefinitions,
             Optimization::absRank,
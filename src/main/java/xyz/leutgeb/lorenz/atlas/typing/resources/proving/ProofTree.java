@@ -0,0 +1,131 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.proving;
+
+import static java.util.Collections.unmodifiableList;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+/**
+ * Append-only store for the proof built by {@link Prover}. Obligations are numbered in the order in
+ * which they are added. Every obligation has an array of children, ordered the same way as the
+ * obligations returned by the rule that was applied to it.
+ *
+ * <p>Adding an obligation or its children takes constant time. Unlike a {@link
+ * org.jgrapht.graph.DirectedAcyclicGraph}, no topological order is maintained and there is no cycle
+ * detection, since rule applications only ever produce fresh obligations. For exporting, {@link
+ * #asGraph()} builds a graph from this proof.
+ */
+public final class ProofTree implements Iterable<Obligation> {
+  private static final int[] NO_CHILDREN = new int[0];
+
+  private final List<Obligation> nodes = new ArrayList<>();
+  private final List<int[]> children = new ArrayList<>();
+  private final Map<Obligation, Integer> ids = new HashMap<>();
+
+  /**
+   * @return the index of the given obligation, which is added if it is not yet part of the proof
+   */
+  int add(Obligation obligation) {
+    final var existing = ids.get(obligation);
+    if (existing != null) {
+      return existing;
+    }
+    final var id = nodes.size();
+    nodes.add(obligation);
+    children.add(NO_CHILDREN);
+    ids.put(obligation, id);
+    return id;
+  }
+
+  public boolean contains(Obligation obligation) {
+    return ids.containsKey(obligation);
+  }
+
+  public int size() {
+    return nodes.size();
+  }
+
+  /** Makes the given obligations the children of given parent, adding all of them if necessary. */
+  void setChildren(Obligation parent, List<Obligation> obligations) {
+    final var id = add(parent);
+    final var result = new int[obligations.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = add(obligations.get(i));
+    }
+    children.set(id, result);
+  }
+
+  /**
+   * @return the children of given obligation, in order, or an empty list for unknown obligations
+   */
+  public List<Obligation> children(Obligation obligation) {
+    final var id = ids.get(obligation);
+    if (id == null) {
+      return List.of();
+    }
+    final var indices = children.get(id);
+    return new AbstractList<>() {
+      @Override
+      public Obligation get(int index) {
+        return nodes.get(indices[index]);
+      }
+
+      @Override
+      public int size() {
+        return indices.length;
+      }
+    };
+  }
+
+  /** @return all obligations reachable from given obligation, excluding itself */
+  public Set<Obligation> descendants(Obligation obligation) {
+    final var root = ids.get(obligation);
+    if (root == null) {
+      throw new IllegalArgumentException("unknown obligation");
+    }
+    final var visited = new boolean[nodes.size()];
+    final var result = new LinkedHashSet<Obligation>();
+    final var stack = new ArrayDeque<Integer>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      for (var child : children.get(stack.pop())) {
+        if (!visited[child]) {
+          visited[child] = true;
+          result.add(nodes.get(child));
+          stack.push(child);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Builds a graph with the same obligations and edges as this proof. The graph is a copy, so
+   * further changes to this proof are not reflected.
+   */
+  public Graph<Obligation, IndexedEdge> asGraph() {
+    final var graph = new DefaultDirectedGraph<Obligation, IndexedEdge>(IndexedEdge.class);
+    nodes.forEach(graph::addVertex);
+    for (int id = 0; id < nodes.size(); id++) {
+      final var indices = children.get(id);
+      for (int i = 0; i < indices.length; i++) {
+        graph.addEdge(nodes.get(id), nodes.get(indices[i]), new IndexedEdge(i));
+      }
+    }
+    return graph;
+  }
+
+  @Override
+  public Iterator<Obligation> iterator() {
+    return unmodifiableList(nodes).iterator();
+  }
+}
@@ -17,6 +17,8 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.Getter;
@@ -25,7 +27,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.jgrapht.graph.AsSubgraph;
-import org.jgrapht.graph.DirectedAcyclicGraph;
 import org.jgrapht.nio.AttributeType;
 import org.jgrapht.nio.DefaultAttribute;
 import xyz.leutgeb.lorenz.atlas.antlr.TacticLexer;
@@ -41,7 +42,9 @@ import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient
 import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
 import xyz.leutgeb.lorenz.atlas.typing.resources.rules.*;
 import xyz.leutgeb.lorenz.atlas.typing.resources.rules.Rule.ApplicationResult;
+import xyz.leutgeb.lorenz.atlas.typing.resources.solving.Budget;
 import xyz.leutgeb.lorenz.atlas.typing.resources.solving.Solver;
+import xyz.leutgeb.lorenz.atlas.util.Artifacts;
 import xyz.leutgeb.lorenz.atlas.util.NidiExporter;
 import xyz.leutgeb.lorenz.atlas.util.Util;
 
@@ -96,9 +99,7 @@ public class Prover {
       List<List<Constraint>> constraints,
       List<Constraint> generalConstraints) {}
 
-  @Getter
-  private final DirectedAcyclicGraph<Obligation, IndexedEdge> proof =
-      new DirectedAcyclicGraph<>(IndexedEdge.class);
+  @Getter private final ProofTree proof = new ProofTree();
 
   private final Map<Obligation, ProofVertexData> vertexAttributes = new HashMap<>();
 
@@ -435,53 +436,84 @@ public class Prover {
       return;
     }
     final var ruleResult = applyInternal(obligation, schedules.schedule);
-    var edges = proof.outgoingEdgesOf(root).stream().sorted().toList();
-    if (edges.size() != ruleResult.obligations().size()) {
+    final var children = proof.children(root);
+    if (children.size() != ruleResult.obligations().size()) {
       throw bug("");
     }
-    for (int i = 0; i < edges.size(); i++) {
-      proveFrom(ruleResult.obligations().get(i), fd, proof.getEdgeTarget(edges.get(i)));
+    for (int i = 0; i < children.size(); i++) {
+      proveFrom(ruleResult.obligations().get(i), fd, children.get(i));
     }
   }
 
   /** Translates given obligation into a set of constraints that would prove given obligation. */
   public void prove(Obligation obligation, FunctionDefinition fd) {
+    if (flag(Prover.class, emptyMap(), "parallel")) {
+      // Sub-obligations are independent of each other, so they are expanded in parallel. Only
+      // ingesting the results into the proof is serialized.
+      ForkJoinPool.commonPool().invoke(new ProveTask(obligation, fd));
+      return;
+    }
+
     Stack<Obligation> obligations = new Stack<>();
     obligations.push(obligation);
 
     while (!obligations.isEmpty()) {
-      final var top = obligations.pop();
-      final var schedules = auto(top, fd);
+      obligations.addAll(expand(obligations.pop(), fd));
+    }
+  }
 
-      var nextObligation = top;
-      ApplicationResult ruleResult = null;
+  private class ProveTask extends RecursiveAction {
+    private final Obligation obligation;
+    private final FunctionDefinition fd;
 
-      for (Iterator<RuleSchedule> it = schedules.iterator(); it.hasNext(); ) {
-        final var schedule = it.next();
-        ruleResult = applyInternal(nextObligation, schedule);
+    private ProveTask(Obligation obligation, FunctionDefinition fd) {
+      this.obligation = obligation;
+      this.fd = fd;
+    }
 
-        if (it.hasNext()) {
-          if (ruleResult.obligations().size() > 1) {
-            throw bug(
-                "if there are multiple rule applications scheduled, all of them except the last must return exactly one obligation");
-          }
+    @Override
+    protected void compute() {
+      invokeAll(expand(obligation, fd).stream().map(o -> new ProveTask(o, fd)).toList());
+    }
+  }
 
-          if (ruleResult.obligations().isEmpty()) {
-            throw bug("multiple rule applications were scheduled but we ran out of obligations");
-          }
+  /**
+   * Applies the rules chosen for given obligation.
+   *
+   * @return the obligations that remain to be proven.
+   */
+  private List<Obligation> expand(Obligation obligation, FunctionDefinition fd) {
+    final var schedules = auto(obligation, fd);
 
-          nextObligation = ruleResult.obligations().get(0);
-        } else {
-          obligations.addAll(ruleResult.obligations());
-        }
+    var nextObligation = obligation;
+
+    for (Iterator<RuleSchedule> it = schedules.iterator(); it.hasNext(); ) {
+      final var schedule = it.next();
+      final var ruleResult = applyInternal(nextObligation, schedule);
+
+      if (!it.hasNext()) {
+        return ruleResult.obligations();
+      }
+
+      if (ruleResult.obligations().size() > 1) {
+        throw bug(
+            "if there are multiple rule applications scheduled, all of them except the last"
+                + " must return exactly one obligation");
+      }
+
+      if (ruleResult.obligations().isEmpty()) {
+        throw bug("multiple rule applications were scheduled but we ran out of obligations");
       }
+
+      nextObligation = ruleResult.obligations().get(0);
     }
+
+    return emptyList();
   }
 
-  private void ingest(Obligation previous, RuleSchedule schedule, ApplicationResult ruleResult) {
-    if (!proof.containsVertex(previous)) {
-      proof.addVertex(previous);
-    }
+  private synchronized void ingest(
+      Obligation previous, RuleSchedule schedule, ApplicationResult ruleResult) {
+    proof.add(previous);
 
     if (vertexAttributes.containsKey(previous)) {
       throw bug("one obligation is reached from multiple places");
@@ -490,15 +522,6 @@ public class Prover {
         previous,
         new ProofVertexData(schedule, ruleResult.constraints(), ruleResult.generalConstraints()));
 
-    ruleResult
-        .obligations()
-        .forEach(
-            o -> {
-              if (!proof.containsVertex(o)) {
-                proof.addVertex(o);
-              }
-            });
-
     if (ruleResult.obligations().size() == 1 && previous == ruleResult.obligations().get(0)) {
       log.warn(
           "Detected a noop generated by rule "
@@ -509,16 +532,13 @@ public class Prover {
       return;
     }
 
-    for (int i = 0; i < ruleResult.obligations().size(); i++) {
-      proof.addEdge(previous, ruleResult.obligations().get(i));
-      proof.getEdge(previous, ruleResult.obligations().get(i)).setIndex(i);
-    }
+    proof.setChildren(previous, ruleResult.obligations());
 
     ruleResult.collectInto(accumulatedConstraints);
   }
 
   public void printTactic(Obligation obligation, PrintStream out, boolean costOnly) {
-    if (!proof.containsVertex(obligation)) {
+    if (!proof.contains(obligation)) {
       throw new IllegalArgumentException("unknown obligation");
     }
 
@@ -558,9 +578,8 @@ public class Prover {
       out.println();
     }
 
-    final var outgoing = proof.outgoingEdgesOf(obligation).stream().sorted().toList();
-    for (final IndexedEdge edge : outgoing) {
-      printTactic(proof.getEdgeTarget(edge), costOnly, out, indentation + 1);
+    for (final Obligation child : proof.children(obligation)) {
+      printTactic(child, costOnly, out, indentation + 1);
     }
 
     if (!leaf) {
@@ -584,11 +603,11 @@ public class Prover {
       exporter.setGraphAttributeProvider(
           supply(Map.of("rankdir", new DefaultAttribute<>("BT", AttributeType.STRING))));
 
-      Graphviz transformed = Graphviz.fromGraph(exporter.transform(proof));
+      Graphviz transformed = Graphviz.fromGraph(exporter.transform(proof.asGraph()));
 
       final var target = basePath.resolve("proof").resolve(name + ".svg");
-      transformed.render(Format.SVG).toOutputStream(output(target));
-      log.info("See {}", target);
+      Artifacts.write(
+          Artifacts.Kind.PLOTS, target, out -> transformed.render(Format.SVG).toOutputStream(out));
 
       /*
       final var dotTarget = basePath.resolve(name + "-proof.dot");
@@ -605,19 +624,20 @@ public class Prover {
     if (basePath == null) {
       return;
     }
-    if (!proof.containsVertex(root)) {
+    if (!proof.contains(root)) {
       throw new IllegalArgumentException("unknown root obligation");
     }
     try {
-      final var descendants = proof.getDescendants(root);
+      final var graph = proof.asGraph();
+      final var descendants = proof.descendants(root);
       final var filtered =
           costOnly
               ? new AsSubgraph<>(
-                  proof,
+                  graph,
                   costOnly
                       ? descendants.stream().filter(Obligation::isCost).collect(Collectors.toSet())
                       : descendants)
-              : proof;
+              : graph;
 
       final NidiExporter<Obligation, IndexedEdge> exporter = new NidiExporter<>(Util::stamp);
       exporter.setVertexAttributeProvider(
@@ -628,8 +648,6 @@ public class Prover {
 
       Graphviz transformed = Graphviz.fromGraph(exporter.transform(filtered));
 
-      Graphviz.useEngine(new GraphvizCmdLineEngine());
-
       /*
       final var dotTarget = basePath.resolve(name + "-proof.xdot");
       transformed.render(Format.XDOT).toOutputStream(output(dotTarget));
@@ -637,8 +655,13 @@ public class Prover {
        */
 
       final var target = basePath.resolve("proof").resolve(name + ".svg");
-      transformed.render(Format.SVG).toOutputStream(output(target));
-      log.info("See {}", target);
+      Artifacts.write(
+          Artifacts.Kind.PLOTS,
+          target,
+          out -> {
+            Graphviz.useEngine(new GraphvizCmdLineEngine());
+            transformed.render(Format.SVG).toOutputStream(out);
+          });
     } catch (Exception e) {
       log.warn("Non-critical exception thrown.", e);
     }
@@ -659,6 +682,23 @@ public class Prover {
         target);
   }
 
+  public Solver.Result solve(
+      Set<Constraint> outsideConstraints, List<UnknownCoefficient> target, Budget budget) {
+    return Solver.solve(
+        Sets.union(outsideConstraints, Sets.union(accumulatedConstraints, externalConstraints)),
+        basePath.resolve(name),
+        target,
+        budget);
+  }
+
+  public Solver.Result solve(
+      Solver.Session session, Set<Constraint> outsideConstraints, List<UnknownCoefficient> target) {
+    return session.solve(
+        Sets.union(outsideConstraints, Sets.union(accumulatedConstraints, externalConstraints)),
+        basePath.resolve(name),
+        target);
+  }
+
   public Solver.Result solve(
       Set<Constraint> outsideConstraints, List<UnknownCoefficient> target, String suffix) {
     return Solver.solve(
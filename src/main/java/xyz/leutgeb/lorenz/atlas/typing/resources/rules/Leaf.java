@@ -83,9 +83,10 @@ public class Leaf implements Rule {
                         new EqualsSumConstraint(
                             qEntry.getValue(),
                             sum,
-                            "(leaf from "
-                                + (obligation.getExpression().getSource().getRoot())
-                                + ") q_{(c)} = Σ_{a+b=c} q'_{(a, b)}"));
+                            () ->
+                                "(leaf from "
+                                    + (obligation.getExpression().getSource().getRoot())
+                                    + ") q_{(c)} = Σ_{a+b=c} q'_{(a, b)}"));
                   } else {
                     return Stream.of(
                         new EqualityConstraint(qEntry.getValue(), ZERO, "(leaf) setToZero 2"));
@@ -141,7 +141,7 @@ public class LetTree implements Rule {
                   return new EqualityConstraint(
                       rCoefficient,
                       e.getValue(),
-                      "(let:tree) r_{(0⃗, a, c)} = p'_{(a, c)} with (a, c) = " + index);
+                      () -> "(let:tree) r_{(0⃗, a, c)} = p'_{(a, c)} with (a, c) = " + index);
                 })
             .collect(toList()));
 
@@ -164,8 +164,10 @@ public class LetTree implements Rule {
                                       varsForGamma.contains(id)
                                           ? 0
                                           : rEntry.getAssociatedIndices().get(id))),
-                          "(let:tree) ∀ b⃗ ≠ 0⃗ . r_{(b⃗, 0, c)} = q_{(0⃗, b⃗, c)} with (b⃗, 0, c) = "
-                              + rEntry));
+                          () ->
+                              "(let:tree) ∀ b⃗ ≠ 0⃗ . r_{(b⃗, 0, c)} = q_{(0⃗, b⃗, c)} with (b⃗, 0,"
+                                  + " c) = "
+                                  + rEntry));
             });
 
     final List<Constraint> setToZeroR =
@@ -178,12 +180,13 @@ public class LetTree implements Rule {
                     new EqualityConstraint(
                         coefficient,
                         ZERO,
-                        "(let:tree) setToZero r "
-                            + coefficient
-                            + " when binding "
-                            + declared
-                            + " to "
-                            + value.terminalOrBox()))
+                        () ->
+                            "(let:tree) setToZero r "
+                                + coefficient
+                                + " when binding "
+                                + declared
+                                + " to "
+                                + value.terminalOrBox()))
             .collect(Collectors.toUnmodifiableList());
 
     crossConstraints.addAll(setToZeroR);
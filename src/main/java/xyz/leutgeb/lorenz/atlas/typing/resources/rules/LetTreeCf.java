@@ -165,9 +165,10 @@ public class LetTreeCf implements Rule {
                         new EqualityConstraint(
                             gammaP.getCoefficientOrDefine(entry),
                             entry.getValue(),
-                            prefix
-                                + "p_{(a⃗⃗,c)} = q_{(a⃗⃗,0⃗,c)} with (a⃗⃗,c) = "
-                                + entry.toIndexString()))
+                            () ->
+                                prefix
+                                    + "p_{(a⃗⃗,c)} = q_{(a⃗⃗,0⃗,c)} with (a⃗⃗,c) = "
+                                    + entry.toIndexString()))
                 .collect(Collectors.toSet()));
 
     // Specifically addresses
@@ -227,9 +228,10 @@ public class LetTreeCf implements Rule {
                       new EqualityConstraint(
                           deltaxr.getCoefficientOrDefine(entry.mask(x, 0)),
                           entry.getValue(),
-                          prefix
-                              + "r_{(b⃗,0,0)} = q_{(0⃗,b⃗,0)} with (b⃗,0) = "
-                              + entry.toIndexString()))
+                          () ->
+                              prefix
+                                  + "r_{(b⃗,0,0)} = q_{(0⃗,b⃗,0)} with (b⃗,0) = "
+                                  + entry.toIndexString()))
               .toList());
 
       // Find all indices (\vec{b}, d, e) such that \vec{b} \neq \vec{0}.
@@ -366,15 +368,18 @@ public class LetTreeCf implements Rule {
 
         cfconstraints.add(
             new EqualsSumConstraint(
-                u, lemma14guard, prefix + "l14g " + bde + "Σ_{(a⃗⃗,c)} p^{(b⃗,d,e}_{(a⃗⃗,c)}"));
+                u,
+                lemma14guard,
+                () -> prefix + "l14g " + bde + "Σ_{(a⃗⃗,c)} p^{(b⃗,d,e}_{(a⃗⃗,c)}"));
         cfconstraints.add(
             new LessThanOrEqualConstraint(
                 cfpp.getCoefficientOrDefine(d, max(e, 0)),
                 u,
-                prefix
-                    + "l14g "
-                    + bde
-                    + "Σ_{(a⃗⃗,c)} p^{(b⃗,d,e}_{(a⃗⃗,c)} ≥ p'^{(b⃗,d,e}_{(d,e)}"));
+                () ->
+                    prefix
+                        + "l14g "
+                        + bde
+                        + "Σ_{(a⃗⃗,c)} p^{(b⃗,d,e}_{(a⃗⃗,c)} ≥ p'^{(b⃗,d,e}_{(d,e)}"));
 
         cfp.streamNonRankCoefficients()
             .map(
@@ -388,7 +393,8 @@ public class LetTreeCf implements Rule {
                                 entry.getValue(),
                                 prefix + "p'^{(b⃗,d,e}_{(d,e)} ≤ p^{(b⃗,d,e}_{(a⃗⃗,c)}")),
                         prefix
-                            + "p^{(b⃗,d,e}_{(a⃗⃗,c)} ِ≠ 0 ⇒ p'^{(b⃗,d,e}_{(d,e)} ≤ p^{(b⃗,d,e}_{(a⃗⃗,c)}"))
+                            + "p^{(b⃗,d,e}_{(a⃗⃗,c)} ِ≠ 0 ⇒ p'^{(b⃗,d,e}_{(d,e)} ≤"
+                            + " p^{(b⃗,d,e}_{(a⃗⃗,c)}"))
             .forEach(cfconstraints::add);
       }
     }
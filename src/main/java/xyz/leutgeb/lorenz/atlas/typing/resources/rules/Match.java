@@ -161,9 +161,10 @@ public class Match implements Rule {
               return new EqualityConstraint(
                   gammaxsr.getCoefficientOrDefine(qEntry.mask(x1, a).mask(x3, a)),
                   qEntry.getValue(),
-                  ruleName(obligation)
-                      + " r_{a⃗⃗,a,a,b} = q_{a⃗⃗,a,b} for expression "
-                      + expression);
+                  () ->
+                      ruleName(obligation)
+                          + " r_{a⃗⃗,a,a,b} = q_{a⃗⃗,a,b} for expression "
+                          + expression);
             })
         .forEach(rConstraints::add);
 
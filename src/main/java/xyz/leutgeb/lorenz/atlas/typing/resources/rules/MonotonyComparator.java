@@ -0,0 +1,213 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Decides instances of monotony for {@link W} without resorting to an SMT solver.
+ *
+ * <p>Potential functions are linear forms a₀x₀ + … + aₙ₋₁xₙ₋₁ + aₙ over integers xᵢ ≥ 1. For two
+ * such forms a and b we want to know whether a ≤ b for all x, that is whether the maximum of (a -
+ * b)·x is non-positive. Side knowledge of the form xᵢ = xⱼ and xᵢ = 1 is eliminated by
+ * substitution, and knowledge of the form xᵢ < xⱼ yields a system of difference constraints, which
+ * has a least solution x*.
+ *
+ * <p>The maximum is unbounded exactly if there is a set of variables that is closed under xᵢ < xⱼ
+ * and has positive total coefficient. Otherwise, if all coefficients are non-positive, the maximum
+ * is attained at x*. In the remaining cases (only possible with knowledge of the form xᵢ < xⱼ) the
+ * answer is unknown and callers should fall back to a solver.
+ */
+class MonotonyComparator {
+  /** Upper bound on the number of variables for which we enumerate closed sets. */
+  private static final int MAX_ENUMERATION = 16;
+
+  private final int size;
+
+  /** Maps every variable to the index of its equivalence class. */
+  private final int[] classOf;
+
+  private final int classes;
+
+  /** Whether the class is known to equal one. */
+  private final boolean[] one;
+
+  /** Edges xᵢ < xⱼ between classes that are not known to equal one. */
+  private final List<int[]> lessThan = new ArrayList<>();
+
+  /** Least solution of the side knowledge, indexed by class. */
+  private final long[] least;
+
+  /** Whether the side knowledge is contradictory, in which case every comparison holds. */
+  private final boolean infeasible;
+
+  /**
+   * @param size number of variables
+   * @param lessThan pairs (i, j) meaning xᵢ < xⱼ
+   * @param equal pairs (i, j) meaning xᵢ = xⱼ
+   * @param one indices i meaning xᵢ = 1
+   */
+  MonotonyComparator(
+      int size, Collection<int[]> lessThan, Collection<int[]> equal, Collection<Integer> one) {
+    this.size = size;
+
+    final int[] parent = new int[size];
+    for (int i = 0; i < size; i++) {
+      parent[i] = i;
+    }
+    for (var pair : equal) {
+      parent[find(parent, pair[0])] = find(parent, pair[1]);
+    }
+
+    this.classOf = new int[size];
+    final int[] indexOfRoot = new int[size];
+    Arrays.fill(indexOfRoot, -1);
+    int classes = 0;
+    for (int i = 0; i < size; i++) {
+      final int root = find(parent, i);
+      if (indexOfRoot[root] < 0) {
+        indexOfRoot[root] = classes++;
+      }
+      classOf[i] = indexOfRoot[root];
+    }
+    this.classes = classes;
+
+    this.one = new boolean[classes];
+    for (var i : one) {
+      this.one[classOf[i]] = true;
+    }
+
+    boolean infeasible = false;
+    for (var pair : lessThan) {
+      final int smaller = classOf[pair[0]];
+      final int greater = classOf[pair[1]];
+      if (smaller == greater || this.one[greater]) {
+        infeasible = true;
+      } else if (!this.one[smaller]) {
+        this.lessThan.add(new int[] {smaller, greater});
+      }
+    }
+
+    // Least solution by longest paths, using Bellman-Ford style relaxation.
+    this.least = new long[classes];
+    Arrays.fill(least, 1);
+    for (var pair : lessThan) {
+      final int smaller = classOf[pair[0]];
+      final int greater = classOf[pair[1]];
+      if (this.one[smaller] && smaller != greater) {
+        least[greater] = Math.max(least[greater], 2);
+      }
+    }
+    boolean changed = !infeasible;
+    for (int round = 0; changed; round++) {
+      if (round > classes) {
+        // There is a cycle.
+        infeasible = true;
+        break;
+      }
+      changed = false;
+      for (var edge : this.lessThan) {
+        if (least[edge[1]] < least[edge[0]] + 1) {
+          least[edge[1]] = least[edge[0]] + 1;
+          changed = true;
+        }
+      }
+    }
+    this.infeasible = infeasible;
+  }
+
+  private static int find(int[] parent, int i) {
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  /**
+   * @return whether {@code smaller} ≤ {@code bigger} for all values admitted by the side knowledge,
+   *     or empty if this cannot be decided without a solver.
+   */
+  Optional<Boolean> lessOrEqual(List<Integer> smaller, List<Integer> bigger) {
+    if (smaller.size() != size + 1 || bigger.size() != size + 1) {
+      throw new IllegalArgumentException("potential functions of unexpected size");
+    }
+
+    if (infeasible) {
+      return Optional.of(true);
+    }
+
+    final long[] coefficients = new long[classes];
+    long constant = (long) smaller.get(size) - bigger.get(size);
+    for (int i = 0; i < size; i++) {
+      coefficients[classOf[i]] += (long) smaller.get(i) - bigger.get(i);
+    }
+
+    boolean positive = false;
+    for (int c = 0; c < classes; c++) {
+      if (one[c]) {
+        constant += coefficients[c];
+        coefficients[c] = 0;
+      } else if (coefficients[c] > 0) {
+        positive = true;
+      }
+    }
+
+    if (positive) {
+      if (lessThan.isEmpty()) {
+        // Unbounded in the direction of the positive coefficient.
+        return Optional.of(false);
+      }
+      if (unbounded(coefficients)) {
+        return Optional.of(false);
+      }
+    }
+
+    long atLeast = constant;
+    for (int c = 0; c < classes; c++) {
+      atLeast += coefficients[c] * least[c];
+    }
+
+    if (atLeast > 0) {
+      return Optional.of(false);
+    }
+
+    // With non-positive coefficients the maximum is attained at the least solution.
+    return positive ? Optional.empty() : Optional.of(true);
+  }
+
+  /** Checks whether there is a set of classes closed under less-than with positive weight. */
+  private boolean unbounded(long[] coefficients) {
+    if (classes > MAX_ENUMERATION) {
+      return false;
+    }
+    for (int set = 1; set < (1 << classes); set++) {
+      long weight = 0;
+      boolean closed = true;
+      for (var edge : lessThan) {
+        if ((set & (1 << edge[0])) != 0 && (set & (1 << edge[1])) == 0) {
+          closed = false;
+          break;
+        }
+      }
+      if (!closed) {
+        continue;
+      }
+      for (int c = 0; c < classes; c++) {
+        if ((set & (1 << c)) != 0) {
+          if (one[c]) {
+            closed = false;
+            break;
+          }
+          weight += coefficients[c];
+        }
+      }
+      if (closed && weight > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -66,10 +66,11 @@ public class Node implements Rule {
               return new EqualityConstraint(
                   q.getCoefficientOrZero(a, a, c),
                   qpCoeff,
-                  prefix
-                      + "q_{(a,a,c)} = q'_{(a,c)}"
-                      + " with (a,a,c)="
-                      + toVectorString(qEntry.getKey()));
+                  () ->
+                      prefix
+                          + "q_{(a,a,c)} = q'_{(a,c)}"
+                          + " with (a,a,c)="
+                          + toVectorString(qEntry.getKey()));
             })
         .forEach(constraints::add);
 
@@ -91,7 +92,10 @@ public class Node implements Rule {
 
     qp.streamNonRankCoefficients()
         .filter(entry -> !occurred.contains(entry.getValue()))
-        .map(x -> new EqualityConstraint(x.getValue(), ZERO, prefix + "setToZero " + x.getKey()))
+        .map(
+            x ->
+                new EqualityConstraint(
+                    x.getValue(), ZERO, () -> prefix + "setToZero " + x.getKey()))
         .forEach(constraints::add);
 
     return Rule.ApplicationResult.onlyConstraints(constraints);
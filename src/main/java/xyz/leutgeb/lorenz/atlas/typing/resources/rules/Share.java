@@ -68,23 +68,25 @@ public class Share implements Rule {
                                         List.of(
                                             gammaxyQ.getRankCoefficient(x),
                                             gammaxyQ.getRankCoefficient(y)),
-                                        "(share) rank coefficients are sum-equal when"
-                                            + expression.getUp()
-                                            + " as "
-                                            + expression.getDown()
-                                            + " in expression `"
-                                            + expression.getScope()
-                                            + "`")
+                                        () ->
+                                            "(share) rank coefficients are sum-equal when"
+                                                + expression.getUp()
+                                                + " as "
+                                                + expression.getDown()
+                                                + " in expression `"
+                                                + expression.getScope()
+                                                + "`")
                                     : new EqualityConstraint(
                                         gammaxyQ.getRankCoefficient(id),
                                         gammazSQ.getRankCoefficient(id),
-                                        "(share) rank coefficients are equal when sharing "
-                                            + expression.getUp()
-                                            + " as "
-                                            + expression.getDown()
-                                            + " in expression `"
-                                            + expression.getScope()
-                                            + "`")),
+                                        () ->
+                                            "(share) rank coefficients are equal when sharing "
+                                                + expression.getUp()
+                                                + " as "
+                                                + expression.getDown()
+                                                + " in expression `"
+                                                + expression.getScope()
+                                                + "`")),
 
                     // Version 1:
                     gammaxyQ
@@ -99,13 +101,14 @@ public class Share implements Rule {
                                       qEntry.getAssociatedIndices(), qEntry.getOffsetIndex()),
                                   gammazSQ.getCoefficientOrZero(
                                       unsharedIndex, qEntry.getOffsetIndex()),
-                                  "(share) ? "
-                                      + expression.getUp()
-                                      + " as "
-                                      + expression.getDown()
-                                      + " in expression `"
-                                      + expression.getScope()
-                                      + "`");
+                                  () ->
+                                      "(share) ? "
+                                          + expression.getUp()
+                                          + " as "
+                                          + expression.getDown()
+                                          + " in expression `"
+                                          + expression.getScope()
+                                          + "`");
                             }))
 
                 // Version 2:
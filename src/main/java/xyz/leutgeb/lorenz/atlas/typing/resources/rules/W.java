@@ -4,7 +4,10 @@ import static com.google.common.collect.Lists.cartesianProduct;
 import static com.google.common.collect.Streams.concat;
 import static com.microsoft.z3.Status.UNKNOWN;
 import static com.microsoft.z3.Status.UNSATISFIABLE;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
@@ -12,22 +15,31 @@ import static xyz.leutgeb.lorenz.atlas.typing.resources.Annotation.*;
 import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient.unknownMaybeNegative;
 import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.MINUS_ONE;
 import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.MINUS_TWO;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.ONE;
 import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.TWO;
 import static xyz.leutgeb.lorenz.atlas.util.Util.append;
 import static xyz.leutgeb.lorenz.atlas.util.Util.bug;
 import static xyz.leutgeb.lorenz.atlas.util.Util.flag;
+import static xyz.leutgeb.lorenz.atlas.util.Util.getProperty;
 
 import com.google.common.collect.Streams;
+import com.google.common.hash.Hashing;
 import com.microsoft.z3.ArithExpr;
 import com.microsoft.z3.BoolExpr;
 import com.microsoft.z3.Context;
 import com.microsoft.z3.IntExpr;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -42,7 +54,7 @@ import xyz.leutgeb.lorenz.atlas.typing.resources.AnnotatingContext;
 import xyz.leutgeb.lorenz.atlas.typing.resources.AnnotatingGlobals;
 import xyz.leutgeb.lorenz.atlas.typing.resources.Annotation;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
-import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
 import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
 import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualsProductConstraint;
 import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualsSumConstraint;
@@ -60,8 +72,24 @@ public class W implements Rule {
 
   private static final IntIdGenerator ID = IntIdGenerator.fromZeroInclusive();
 
-  private static final Map<List<List<Integer>>, List<LessThanOrEqual<List<Integer>>>> MONO_CACHE =
-      new HashMap<>();
+  /**
+   * Results of {@link #monotonyInternal(List, Set, Set, Set)}. Futures make sure that every
+   * instance is computed only once, even if requested concurrently, without holding a global lock
+   * while computing.
+   */
+  private static final ConcurrentMap<
+          MonotonyKey, CompletableFuture<List<LessThanOrEqual<List<Integer>>>>>
+      MONO_CACHE = new ConcurrentHashMap<>();
+
+  /**
+   * Directory to persist results of monotony analysis across runs. Disabled if the property is not
+   * set. Read whenever it is needed, since properties may change between targets of a batch.
+   */
+  private static Optional<Path> monotonyCachePath() {
+    return Optional.ofNullable(getProperty(W.class, "monotonyCache")).map(Path::of);
+  }
+
+  private static final String MONO_CACHE_VERSION = "1";
 
   private static final boolean DEBUG_SIZE = false;
   private static final boolean DEBUG_KNOWLEDGE = false;
@@ -104,7 +132,7 @@ public class W implements Rule {
     return compareCoefficients(
         left,
         right,
-        (x, y) -> new LessThanOrEqualConstraint(x, y, "(w) " + reason + " " + x + " ≤ " + y));
+        (x, y) -> new LessThanOrEqualConstraint(x, y, () -> "(w) " + reason + " " + x + " ≤ " + y));
   }
 
   private static List<Constraint> compareCoefficients(
@@ -169,7 +197,7 @@ public class W implements Rule {
                   new LessThanOrEqualConstraint(
                       left.getRankCoefficientOrZero(i),
                       right.getRankCoefficientOrZero(i),
-                      "(w) rk(" + identifiers.get(i) + ") (at index " + i + ")"))
+                      () -> "(w) rk(" + identifiers.get(i) + ") (at index " + i + ")"))
           .forEach(constraints::add);
     }
 
@@ -187,13 +215,13 @@ public class W implements Rule {
     // TODO(lorenzleutgeb): Fix this lemma.
     final var lemmap1y = false; // flag(W.class, arguments, "lp1y") || all;
     final var mono = flag(W.class, arguments, "mono") || useSizeAnalysis || all;
+    final var lemmap2 = flag(W.class, arguments, "lp2");
 
-    final ReducedSizeAnalysis reducedSizeAnalysis;
     final Set<LessThan<Integer>> knowLt;
     final Set<Equal<Integer>> knowEq;
     final Set<Integer> knowOne;
     if (useSizeAnalysis) {
-      reducedSizeAnalysis = reduceSizeAnalysis(identifiers, sizeAnalysis);
+      final var reducedSizeAnalysis = reduceSizeAnalysis(identifiers, sizeAnalysis);
       // TODO: Clarify size analysis.
       knowLt = emptySet(); // reducedSizeAnalysis.knowLt;
       knowEq = emptySet(); // reducedSizeAnalysis.knowEq;
@@ -209,24 +237,195 @@ public class W implements Rule {
       knowOne = emptySet();
     }
 
+    final var template =
+        farkasTemplate(
+            new FarkasKey(
+                List.copyOf(potentialFunctions),
+                size,
+                lemmaRk1,
+                mono,
+                lemma2xy,
+                lemmap1,
+                lemmap1y,
+                lemmap2,
+                Set.copyOf(knowLt),
+                Set.copyOf(knowEq),
+                Set.copyOf(knowOne)));
+
+    if (DEBUG_KNOWLEDGE) {
+      log.info("(w) --- " + left.getId() + " <= " + right.getId() + " --- ");
+      log.info("ids: " + identifiers);
+      log.info("one: " + knowOne.stream().map(identifiers::get).toList());
+      log.info(
+          "lts: "
+              + knowLt.stream()
+                  .map(
+                      x ->
+                          new LessThanOrEqual(
+                              identifiers.get(x.smaller), identifiers.get(x.greater)))
+                  .toList());
+      log.info(
+          "eqs: "
+              + knowEq.stream()
+                  .map(x -> new Equal(identifiers.get(x.left), identifiers.get(x.right)))
+                  .toList());
+    }
+
+    if (template.rows() == 0) {
+      // If we have no expert knowledge, fall back to comparing coefficients.
+      return compareCoefficientsLessOrEqual(left, right, "fallback");
+    }
+
+    final var wid = "w" + ID.next();
+
+    final var p = potentialFunctions.stream().map(left::getCoefficientOrZero).toList();
+    final var q = potentialFunctions.stream().map(right::getCoefficientOrZero).toList();
+
+    // NOTE: We do not add constraints saying f ≥ 0. This is generated for all unknown coefficients!
+    final var f =
+        IntStream.range(0, template.rows())
+            .mapToObj(i -> Coefficient.unknown(wid + ".f[" + i + "]"))
+            .toList();
+
+    // p ≤ fA + q (Note: fA is computed using matrix multiplication WITH f FROM THE LEFT.)
+    for (int column = 0; column < columns; column++) {
+      final var columnAsString =
+          column < potentialFunctions.size()
+              ? potentialFunctions.get(column).toString()
+              : String.valueOf(column - potentialFunctions.size());
+
+      final var terms = template.columns().get(column);
+      final var sum = new ArrayList<Coefficient>(1 + terms.size());
+      sum.add(
+          column < potentialFunctions.size()
+              ? q.get(column)
+              : right.getRankCoefficientOrZero(column - potentialFunctions.size()));
+      for (var term : terms) {
+        final var fi = f.get(term.row());
+        if (term.product() == null) {
+          sum.add(MINUS_ONE.equals(term.factor()) ? fi.negate() : fi);
+          continue;
+        }
+        final var prod = unknownMaybeNegative(wid + "." + term.product());
+        constraints.add(
+            new EqualsProductConstraint(
+                prod,
+                List.of(term.factor(), fi),
+                () -> "(w) " + term.reason() + prod + " = (" + term.factor() + ") * " + fi));
+        sum.add(prod);
+      }
+
+      final var fAplusQ = unknownMaybeNegative(wid + ".(fA + q)[" + columnAsString + "]");
+      constraints.add(
+          new EqualsSumConstraint(
+              fAplusQ,
+              sum,
+              () ->
+                  "(w "
+                      + left.getId()
+                      + " ≤ "
+                      + right.getId()
+                      + ") "
+                      + fAplusQ
+                      + " = Σ... + q["
+                      + columnAsString
+                      + "] (w)"));
+      constraints.add(
+          new LessThanOrEqualConstraint(
+              (column < potentialFunctions.size()
+                  ? p.get(column)
+                  : left.getRankCoefficientOrZero(column - potentialFunctions.size())),
+              fAplusQ,
+              () ->
+                  "(w "
+                      + left.getId()
+                      + " ≤ "
+                      + right.getId()
+                      + ") "
+                      + wid
+                      + ".p["
+                      + columnAsString
+                      + "] ≤ "
+                      + fAplusQ
+                      + " (w)"));
+    }
+
+    return constraints;
+  }
+
+  /**
+   * Everything that determines the knowledge matrix used by {@link
+   * #compareCoefficientsLessOrEqualUsingFarkas(List, Annotation, Annotation, Graph, Map)}.
+   */
+  private record FarkasKey(
+      List<List<Integer>> potentialFunctions,
+      int size,
+      boolean rankColumns,
+      boolean mono,
+      boolean lemma2xy,
+      boolean lemmap1,
+      boolean lemmap1y,
+      boolean lemmap2,
+      Set<LessThan<Integer>> knowLt,
+      Set<Equal<Integer>> knowEq,
+      Set<Integer> knowOne) {}
+
+  /**
+   * {@code factor · f[row]}, one summand of a column of {@code fA}. If {@code product} is non-null,
+   * the summand is represented by an auxiliary coefficient with this name (prefixed by the id of
+   * the application), constrained to equal the product.
+   */
+  private record Term(int row, KnownCoefficient factor, String product, String reason) {}
+
+  /**
+   * The knowledge matrix A, with one row per instance of expert knowledge, represented as the
+   * nonzero summands of every column of {@code fA}. It does not refer to any coefficient, so it can
+   * be instantiated for every application of (w) with the same key.
+   */
+  private record FarkasTemplate(int rows, List<List<Term>> columns) {}
+
+  /** Templates by key, see {@link #MONO_CACHE} for why futures are used. */
+  private static final ConcurrentMap<FarkasKey, CompletableFuture<FarkasTemplate>> FARKAS_CACHE =
+      new ConcurrentHashMap<>();
+
+  private static FarkasTemplate farkasTemplate(FarkasKey key) {
+    final var future = new CompletableFuture<FarkasTemplate>();
+    final var existing = FARKAS_CACHE.putIfAbsent(key, future);
+    if (existing != null) {
+      return existing.join();
+    }
+    try {
+      final var result = farkasTemplateInternal(key);
+      future.complete(result);
+      return result;
+    } catch (RuntimeException e) {
+      FARKAS_CACHE.remove(key, future);
+      future.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private static FarkasTemplate farkasTemplateInternal(FarkasKey key) {
+    final var potentialFunctions = key.potentialFunctions();
+    final var size = key.size();
+    final var knowLt = key.knowLt();
+    final var knowEq = key.knowEq();
+    final var knowOne = key.knowOne();
+
     final List<LessThanOrEqual<List<Integer>>> monotonyInstances =
-        mono ? monotony(potentialFunctions, knowLt, knowEq, knowOne) : emptyList();
+        key.mono() ? monotony(potentialFunctions, knowLt, knowEq, knowOne) : emptyList();
 
     final List<List<List<Integer>>> lemma2XYInstances =
-        lemma2xy ? lemma2XY(potentialFunctions) : emptyList();
+        key.lemma2xy() ? lemma2XY(potentialFunctions) : emptyList();
 
     final List<Pair<List<Integer>, List<Integer>>> lemmaPlus1Instances =
         append(
-            lemmap1 ? lemmaPlus1(potentialFunctions) : emptyList(),
-            lemmap1y ? lemmaPlus1Known(potentialFunctions, knowOne) : emptyList());
+            key.lemmap1() ? lemmaPlus1(potentialFunctions) : emptyList(),
+            key.lemmap1y() ? lemmaPlus1Known(potentialFunctions, knowOne) : emptyList());
 
-    final var lemmap2 = flag(W.class, arguments, "lp2");
     final List<Pair<List<Integer>, List<Integer>>> lemmaPlus2Instances =
-        lemmap2 ? lemmaPlus2(potentialFunctions) : emptyList();
-
-    if (DEBUG_SIZE
-        && useSizeAnalysis
-        && (!knowLt.isEmpty() || !knowEq.isEmpty() || !knowOne.isEmpty())) {
+        key.lemmap2() ? lemmaPlus2(potentialFunctions) : emptyList();
+    if (DEBUG_SIZE && !(knowLt.isEmpty() && knowEq.isEmpty() && knowOne.isEmpty())) {
       final List<LessThanOrEqual<List<Integer>>> monotonyInstancesWithoutSizeKnowledge;
       monotonyInstancesWithoutSizeKnowledge =
           monotony(potentialFunctions, emptySet(), emptySet(), emptySet());
@@ -261,10 +460,7 @@ public class W implements Rule {
     }
 
     if (DEBUG_KNOWLEDGE) {
-      log.info("(w) --- " + left.getId() + " <= " + right.getId() + " --- ");
       log.info("pot: " + potentialFunctions);
-      log.info("ids: " + identifiers);
-      log.info("one: " + knowOne.stream().map(identifiers::get).toList());
       log.info("lemma2XY:");
       lemma2XYInstances.forEach(
           instance ->
@@ -275,20 +471,6 @@ public class W implements Rule {
                       + instance.get(1)
                       + " <= 2 * "
                       + instance.get(2)));
-      log.info(
-          "lts: "
-              + knowLt.stream()
-                  .map(
-                      x ->
-                          new LessThanOrEqual(
-                              identifiers.get(x.smaller), identifiers.get(x.greater)))
-                  .toList());
-      log.info(
-          "eqs: "
-              + knowEq.stream()
-                  .map(x -> new Equal(identifiers.get(x.left), identifiers.get(x.right)))
-                  .toList());
-
       // log(t+r-1)>=log(t)
       // [1, 0, 0] <= [1, 1, -1]
       // [0, 1, 0] <= [1, 1, -1]
@@ -307,57 +489,34 @@ public class W implements Rule {
       log.info(" --- ");
     }
 
+    final var rankColumns = key.rankColumns();
+
     // m is the number of rows of expert knowledge.
     final var m =
         monotonyInstances.size()
             + lemma2XYInstances.size()
             + lemmaPlus1Instances.size()
             + lemmaPlus2Instances.size()
-            + (lemmaRk1 ? size : 0);
+            + (rankColumns ? size : 0);
 
+    final var columns = potentialFunctions.size() + (rankColumns ? size : 0);
+    final List<List<Term>> termsByColumn = new ArrayList<>(columns);
+    for (int column = 0; column < columns; column++) {
+      termsByColumn.add(new ArrayList<>());
+    }
     if (m == 0) {
-      // If we have no expert knowledge, fall back to comparing coefficients.
-      return compareCoefficientsLessOrEqual(left, right, "fallback");
+      return new FarkasTemplate(0, termsByColumn);
     }
 
-    final var wid = "w" + ID.next();
-
-    final var p = potentialFunctions.stream().map(left::getCoefficientOrZero).toList();
-    final var q = potentialFunctions.stream().map(right::getCoefficientOrZero).toList();
-
-    // NOTE: We do not add constraints saying f ≥ 0. This is generated for all unknown coefficients!
-    final var f =
-        IntStream.range(0, m).mapToObj(i -> Coefficient.unknown(wid + ".f[" + i + "]")).toList();
-
-    final List<List<Coefficient>> sumByColumn = new ArrayList<>(potentialFunctions.size());
-
     for (int column = 0; column < potentialFunctions.size(); column++) {
-      final var tmp = new ArrayList<Coefficient>(3);
-      tmp.add(q.get(column));
-      sumByColumn.add(tmp);
-    }
-
-    for (int rank = 0; rankColumns && rank < size; rank++) {
-      final var tmp = new ArrayList<Coefficient>(3);
-      tmp.add(right.getRankCoefficientOrZero(rank));
-      sumByColumn.add(tmp);
-    }
-
-    if (sumByColumn.size() != columns) {
-      throw new IllegalStateException();
-    }
-
-    if (!monotonyInstances.isEmpty()) {
-      for (int column = 0; column < potentialFunctions.size(); column++) {
-        final List<Integer> potentialFunction = potentialFunctions.get(column);
-        final List<Coefficient> sum = sumByColumn.get(column);
-        for (int row = 0; row < monotonyInstances.size(); row++) {
-          final var knowledgeRow = monotonyInstances.get(row);
-          if (potentialFunction.equals(knowledgeRow.smaller)) {
-            sum.add(f.get(row));
-          } else if (potentialFunction.equals(knowledgeRow.greater)) {
-            sum.add(f.get(row).negate());
-          }
+      final List<Integer> potentialFunction = potentialFunctions.get(column);
+      final List<Term> terms = termsByColumn.get(column);
+      for (int row = 0; row < monotonyInstances.size(); row++) {
+        final var knowledgeRow = monotonyInstances.get(row);
+        if (potentialFunction.equals(knowledgeRow.smaller)) {
+          terms.add(new Term(row, ONE, null, null));
+        } else if (potentialFunction.equals(knowledgeRow.greater)) {
+          terms.add(new Term(row, MINUS_ONE, null, null));
         }
       }
     }
@@ -366,32 +525,23 @@ public class W implements Rule {
       final var lemmaOffset = monotonyInstances.size();
       for (int column = 0; column < potentialFunctions.size(); column++) {
         final List<Integer> potentialFunction = potentialFunctions.get(column);
-        final List<Coefficient> sum = sumByColumn.get(column);
+        final List<Term> terms = termsByColumn.get(column);
         for (int row = 0; row < lemma2XYInstances.size(); row++) {
           final var knowledgeRow = lemma2XYInstances.get(row);
-          UnknownCoefficient fi = f.get(row + lemmaOffset);
+          final var fi = row + lemmaOffset;
+          final var prod = "lxy2.prod[" + column + "," + row + "]";
           if (potentialFunction.equals(knowledgeRow.get(0))) {
             // fi corresponds to log(x)
-            sum.add(fi);
+            terms.add(new Term(fi, ONE, null, null));
           } else if (potentialFunction.equals(knowledgeRow.get(1))) {
             // fi corresponds to log(y)
-            sum.add(fi);
+            terms.add(new Term(fi, ONE, null, null));
           } else if (potentialFunction.equals(knowledgeRow.get(2))) {
             // fi corresponds to log(x + y)
-            UnknownCoefficient prod =
-                unknownMaybeNegative(wid + ".lxy2.prod[" + column + "," + row + "]");
-            constraints.add(
-                new EqualsProductConstraint(
-                    prod, List.of(MINUS_TWO, fi), "(w) lxy2" + prod + " = (-2) * " + fi));
-            sum.add(prod);
+            terms.add(new Term(fi, MINUS_TWO, prod, "lxy2"));
           } else if (Annotation.isUnitIndex(potentialFunction)) {
             // fi corresponds to log(2) = 1
-            UnknownCoefficient prod =
-                unknownMaybeNegative(wid + ".lxy2.prod[" + column + "," + row + "]");
-            constraints.add(
-                new EqualsProductConstraint(
-                    prod, List.of(TWO, fi), "(w) lxy2 const: " + prod + " = (2) * " + fi));
-            sum.add(prod);
+            terms.add(new Term(fi, TWO, prod, "lxy2 const: "));
           }
         }
       }
@@ -401,27 +551,20 @@ public class W implements Rule {
       final var lemmaOffset = monotonyInstances.size() + lemma2XYInstances.size();
       for (int column = 0; column < potentialFunctions.size(); column++) {
         final List<Integer> potentialFunction = potentialFunctions.get(column);
-        final List<Coefficient> sum = sumByColumn.get(column);
+        final List<Term> terms = termsByColumn.get(column);
         for (int row = 0; row < lemmaPlus1Instances.size(); row++) {
           final var knowledgeRow = lemmaPlus1Instances.get(row);
-          final var fi = f.get(row + lemmaOffset);
+          final var fi = row + lemmaOffset;
+          final var prod = "lp1.prod[" + column + "," + row + "]";
           if (potentialFunction.equals(knowledgeRow.getLeft())) {
             // fi corresponds to log(x)
-            final var prod = unknownMaybeNegative(wid + ".lp1.prod[" + column + "," + row + "]");
-            constraints.add(
-                new EqualsProductConstraint(
-                    prod, List.of(MINUS_ONE, fi), "(w) lp1 log(x): " + prod + " = (-1) * " + fi));
-            sum.add(prod);
+            terms.add(new Term(fi, MINUS_ONE, prod, "lp1 log(x): "));
           } else if (potentialFunction.equals(knowledgeRow.getRight())) {
             // fi corresponds to log(x + 1)
-            sum.add(fi);
+            terms.add(new Term(fi, ONE, null, null));
           } else if (Annotation.isUnitIndex(potentialFunction)) {
             // fi corresponds to log(2) = 1
-            final var prod = unknownMaybeNegative(wid + ".lp1.prod[" + column + "," + row + "]");
-            constraints.add(
-                new EqualsProductConstraint(
-                    prod, List.of(MINUS_ONE, fi), "(w) lp1 const: " + prod + " = (-1) * " + fi));
-            sum.add(prod);
+            terms.add(new Term(fi, MINUS_ONE, prod, "lp1 const: "));
           }
         }
       }
@@ -432,33 +575,26 @@ public class W implements Rule {
           monotonyInstances.size() + lemma2XYInstances.size() + lemmaPlus1Instances.size();
       for (int column = 0; column < potentialFunctions.size(); column++) {
         final List<Integer> potentialFunction = potentialFunctions.get(column);
-        final List<Coefficient> sum = sumByColumn.get(column);
+        final List<Term> terms = termsByColumn.get(column);
         for (int row = 0; row < lemmaPlus2Instances.size(); row++) {
           final var knowledgeRow = lemmaPlus2Instances.get(row);
-          final var fi = f.get(row + lemmaOffset);
+          final var fi = row + lemmaOffset;
+          final var prod = "lp2.prod[" + column + "," + row + "]";
           if (potentialFunction.equals(knowledgeRow.getLeft())) {
             // fi corresponds to log(x)
-            final var prod = unknownMaybeNegative(wid + ".lp2.prod[" + column + "," + row + "]");
-            constraints.add(
-                new EqualsProductConstraint(
-                    prod, List.of(MINUS_ONE, fi), "(w) lp2 log(x): " + prod + " = (-1) * " + fi));
-            sum.add(prod);
+            terms.add(new Term(fi, MINUS_ONE, prod, "lp2 log(x): "));
           } else if (potentialFunction.equals(knowledgeRow.getRight())) {
             // fi corresponds to log(x + 2)
-            sum.add(fi);
+            terms.add(new Term(fi, ONE, null, null));
           } else if (Annotation.isUnitIndex(potentialFunction)) {
             // fi corresponds to log(2) = 1
-            final var prod = unknownMaybeNegative(wid + ".lp2.prod[" + column + "," + row + "]");
-            constraints.add(
-                new EqualsProductConstraint(
-                    prod, List.of(MINUS_TWO, fi), "(w) lp2 const: " + prod + " = (-2) * " + fi));
-            sum.add(prod);
+            terms.add(new Term(fi, MINUS_TWO, prod, "lp2 const: "));
           }
         }
       }
     }
 
-    if (lemmaRk1) {
+    if (rankColumns) {
       final var unitIndex = potentialFunctions.indexOf(unitIndex(size));
       if (unitIndex < 0) {
         throw new UnsupportedOperationException();
@@ -470,59 +606,19 @@ public class W implements Rule {
               + lemmaPlus1Instances.size()
               + lemmaPlus2Instances.size();
       for (var column = 0; column < columns; column++) {
-        final List<Coefficient> sum = sumByColumn.get(column);
+        final List<Term> terms = termsByColumn.get(column);
         for (var rank = 0; rank < size; rank++) {
-          final var fi = f.get(offset + rank);
           if (column == unitIndex) {
-            sum.add(fi);
+            terms.add(new Term(offset + rank, ONE, null, null));
           } else if (column == potentialFunctions.size() + rank) {
-            sum.add(fi.negate());
+            terms.add(new Term(offset + rank, MINUS_ONE, null, null));
           }
         }
       }
     }
 
-    // p ≤ fA + q (Note: fA is computed using matrix multiplication WITH f FROM THE LEFT.)
-    for (int column = 0; column < columns; column++) {
-      final var columnAsString =
-          column < potentialFunctions.size()
-              ? potentialFunctions.get(column).toString()
-              : String.valueOf(column - potentialFunctions.size());
-
-      final var fAplusQ = unknownMaybeNegative(wid + ".(fA + q)[" + columnAsString + "]");
-      constraints.add(
-          new EqualsSumConstraint(
-              fAplusQ,
-              sumByColumn.get(column),
-              "(w "
-                  + left.getId()
-                  + " ≤ "
-                  + right.getId()
-                  + ") "
-                  + fAplusQ
-                  + " = Σ... + q["
-                  + columnAsString
-                  + "] (w)"));
-      constraints.add(
-          new LessThanOrEqualConstraint(
-              (column < potentialFunctions.size()
-                  ? p.get(column)
-                  : left.getRankCoefficientOrZero(column - potentialFunctions.size())),
-              fAplusQ,
-              "(w "
-                  + left.getId()
-                  + " ≤ "
-                  + right.getId()
-                  + ") "
-                  + wid
-                  + ".p["
-                  + columnAsString
-                  + "] ≤ "
-                  + fAplusQ
-                  + " (w)"));
-    }
-
-    return constraints;
+    termsByColumn.replaceAll(List::copyOf);
+    return new FarkasTemplate(m, List.copyOf(termsByColumn));
   }
 
   private record ReducedSizeAnalysis(
@@ -711,14 +807,123 @@ public class W implements Rule {
     if (potentialFunctions.isEmpty()) {
       return emptyList();
     }
-    if (knowLt.isEmpty() && knowEq.isEmpty() && knowOne.isEmpty()) {
-      synchronized (MONO_CACHE) {
-        return MONO_CACHE.computeIfAbsent(
-            potentialFunctions,
-            (key) -> monotonyInternal(potentialFunctions, emptySet(), emptySet(), emptySet()));
+    final var key =
+        new MonotonyKey(
+            List.copyOf(potentialFunctions),
+            Set.copyOf(knowLt),
+            Set.copyOf(knowEq),
+            Set.copyOf(knowOne));
+
+    final var future = new CompletableFuture<List<LessThanOrEqual<List<Integer>>>>();
+    final var existing = MONO_CACHE.putIfAbsent(key, future);
+    if (existing != null) {
+      return existing.join();
+    }
+
+    try {
+      final var result =
+          key.load()
+              .orElseGet(
+                  () -> {
+                    final var computed =
+                        monotonyInternal(potentialFunctions, knowLt, knowEq, knowOne);
+                    key.store(computed);
+                    return computed;
+                  });
+      future.complete(result);
+      return result;
+    } catch (RuntimeException e) {
+      MONO_CACHE.remove(key, future);
+      future.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private record MonotonyKey(
+      List<List<Integer>> potentialFunctions,
+      Set<LessThan<Integer>> knowLt,
+      Set<Equal<Integer>> knowEq,
+      Set<Integer> knowOne) {
+
+    /** A stable textual representation, used to address and validate persisted results. */
+    String serialize() {
+      return String.join(
+          ";",
+          MONO_CACHE_VERSION,
+          potentialFunctions.stream().map(W::serialize).collect(Collectors.joining(",")),
+          knowLt.stream()
+              .map(x -> x.smaller + "<" + x.greater)
+              .sorted()
+              .collect(Collectors.joining(",")),
+          knowEq.stream()
+              .map(x -> x.left + "=" + x.right)
+              .sorted()
+              .collect(Collectors.joining(",")),
+          knowOne.stream().sorted().map(String::valueOf).collect(Collectors.joining(",")));
+    }
+
+    private Optional<Path> path(String serialized) {
+      return monotonyCachePath().map(
+          directory -> directory.resolve(Hashing.sha256().hashUnencodedChars(serialized) + ".txt"));
+    }
+
+    Optional<List<LessThanOrEqual<List<Integer>>>> load() {
+      final var serialized = serialize();
+      final var path = path(serialized);
+      if (path.isEmpty() || !Files.isReadable(path.get())) {
+        return Optional.empty();
+      }
+      try {
+        final var lines = Files.readAllLines(path.get());
+        if (lines.isEmpty() || !lines.get(0).equals(serialized)) {
+          log.warn("Ignoring monotony cache entry {} because it does not match.", path.get());
+          return Optional.empty();
+        }
+        return Optional.of(
+            lines.stream()
+                .skip(1)
+                .map(line -> line.split("<="))
+                .map(
+                    parts ->
+                        new LessThanOrEqual<>(
+                            W.deserialize(parts[0].strip()), W.deserialize(parts[1].strip())))
+                .toList());
+      } catch (IOException | RuntimeException e) {
+        log.warn("Failed to read monotony cache entry {}.", path.get(), e);
+        return Optional.empty();
+      }
+    }
+
+    void store(List<LessThanOrEqual<List<Integer>>> instances) {
+      final var serialized = serialize();
+      final var path = path(serialized);
+      if (path.isEmpty()) {
+        return;
+      }
+      try {
+        Files.createDirectories(path.get().getParent());
+        // Write to a temporary file first, such that concurrent readers never see partial entries.
+        final var temporary = Files.createTempFile(path.get().getParent(), "monotony", ".tmp");
+        Files.write(
+            temporary,
+            Stream.concat(
+                    Stream.of(serialized),
+                    instances.stream()
+                        .map(x -> W.serialize(x.smaller) + " <= " + W.serialize(x.greater)))
+                .toList());
+        Files.move(temporary, path.get(), REPLACE_EXISTING, ATOMIC_MOVE);
+      } catch (IOException e) {
+        log.warn("Failed to write monotony cache entry {}.", path.get(), e);
       }
     }
-    return monotonyInternal(potentialFunctions, knowLt, knowEq, knowOne);
+  }
+
+  private static String serialize(List<Integer> potentialFunction) {
+    return potentialFunction.stream().map(String::valueOf).collect(Collectors.joining(" "));
+  }
+
+  private static List<Integer> deserialize(String potentialFunction) {
+    return Stream.of(potentialFunction.split(" ")).map(Integer::valueOf).toList();
   }
 
   public static List<LessThanOrEqual<List<Integer>>> monotonyInternal(
@@ -744,12 +949,75 @@ public class W implements Rule {
           .collect(toList());
     }
 
-    try (final var ctx = new Context()) {
-      final var solver = ctx.mkSolver();
-      solver.push();
+    final var comparator =
+        new MonotonyComparator(
+            treeSize,
+            knowLt.stream().map(x -> new int[] {x.smaller, x.greater}).toList(),
+            knowEq.stream().map(x -> new int[] {x.left, x.right}).toList(),
+            knowOne);
+
+    final var useZ3 = flag(W.class, emptyMap(), "monotonyZ3");
+    final var crossCheck = flag(W.class, emptyMap(), "monotonyCrossCheck");
+
+    Z3Monotony z3 = null;
+    try {
+      final var result = new ArrayList<LessThanOrEqual<List<Integer>>>();
+      for (var comparison : prod) {
+        final var smaller = comparison.get(0);
+        final var bigger = comparison.get(1);
+
+        final var decided =
+            useZ3 ? Optional.<Boolean>empty() : comparator.lessOrEqual(smaller, bigger);
+
+        final boolean lessOrEqual;
+        if (decided.isPresent() && !crossCheck) {
+          lessOrEqual = decided.get();
+        } else {
+          if (z3 == null) {
+            z3 = new Z3Monotony(treeSize, knowLt, knowEq, knowOne);
+          }
+          lessOrEqual = z3.lessOrEqual(smaller, bigger);
+          if (decided.isPresent() && decided.get() != lessOrEqual) {
+            throw bug(
+                "monotony comparator disagrees with Z3 on "
+                    + smaller
+                    + " ≤ "
+                    + bigger
+                    + " (comparator: "
+                    + decided.get()
+                    + ", Z3: "
+                    + lessOrEqual
+                    + ")");
+          }
+        }
+
+        if (lessOrEqual) {
+          result.add(new LessThanOrEqual<>(smaller, bigger));
+        }
+      }
+      return result;
+    } finally {
+      if (z3 != null) {
+        z3.close();
+      }
+    }
+  }
+
+  /** Decides instances of monotony using Z3, see {@link MonotonyComparator} for a faster way. */
+  private static class Z3Monotony implements AutoCloseable {
+    private final Context ctx = new Context();
+    private final com.microsoft.z3.Solver solver = ctx.mkSolver();
+    private final List<IntExpr> vars;
+    private final int treeSize;
+
+    private Z3Monotony(
+        int treeSize,
+        Set<LessThan<Integer>> knowLt,
+        Set<Equal<Integer>> knowEq,
+        Set<Integer> knowOne) {
+      this.treeSize = treeSize;
       final IntExpr one = ctx.mkInt(1);
-      final List<IntExpr> vars =
-          IntStream.range(0, treeSize).mapToObj(i -> ctx.mkIntConst("x" + i)).toList();
+      vars = IntStream.range(0, treeSize).mapToObj(i -> ctx.mkIntConst("x" + i)).toList();
 
       for (var x : vars) {
         solver.add(ctx.mkLe(one, x));
@@ -763,46 +1031,37 @@ public class W implements Rule {
       for (var index : knowOne) {
         solver.add(ctx.mkEq(vars.get(index), one));
       }
+    }
 
-      final var result = new ArrayList<LessThanOrEqual<List<Integer>>>();
-
-      for (var comparison : prod) {
-        final var smaller = comparison.get(0);
-        final var bigger = comparison.get(1);
+    private ArithExpr<?> encode(List<Integer> potentialFunction) {
+      return ctx.mkAdd(
+          Streams.concat(
+                  Streams.zip(
+                      potentialFunction.stream().map(ctx::mkInt),
+                      vars.stream(),
+                      (a, b) -> ctx.mkMul(a, b)),
+                  Stream.of(ctx.mkInt(potentialFunction.get(treeSize))))
+              .toArray(ArithExpr[]::new));
+    }
 
-        solver.push();
-
-        solver.add(
-            ctx.mkGt(
-                ctx.mkAdd(
-                    Streams.concat(
-                            Streams.zip(
-                                smaller.stream().map(ctx::mkInt),
-                                vars.stream(),
-                                (a, b) -> ctx.mkMul(a, b)),
-                            Stream.of(ctx.mkInt(smaller.get(treeSize))))
-                        .toArray(ArithExpr[]::new)),
-                ctx.mkAdd(
-                    Streams.concat(
-                            Streams.zip(
-                                bigger.stream().map(ctx::mkInt),
-                                vars.stream(),
-                                (a, b) -> ctx.mkMul(a, b)),
-                            Stream.of(ctx.mkInt(bigger.get(treeSize))))
-                        .toArray(ArithExpr[]::new))));
+    boolean lessOrEqual(List<Integer> smaller, List<Integer> bigger) {
+      solver.push();
+      try {
+        solver.add(ctx.mkGt(encode(smaller), encode(bigger)));
 
         final var status = solver.check();
         if (UNKNOWN.equals(status)) {
           throw bug("Z3 returned unknown status for monotonicity analysis");
         }
-
-        if (status.equals(UNSATISFIABLE)) {
-          result.add(new LessThanOrEqual<>(smaller, bigger));
-        }
-
+        return status.equals(UNSATISFIABLE);
+      } finally {
         solver.pop();
       }
-      return result;
+    }
+
+    @Override
+    public void close() {
+      ctx.close();
     }
   }
 }
@@ -82,11 +82,12 @@ public class WVar implements Rule {
                       return new EqualityConstraint(
                           entry.getValue(),
                           gammaR.getCoefficientOrDefine(entry),
-                          "(w:var) r_{(a⃗⃗, b)} = q_{(a⃗⃗, 0, b)} removing "
-                              + idToWeaken
-                              + " from "
-                              + obligation.getExpression()
-                              + ""
+                          () ->
+                              "(w:var) r_{(a⃗⃗, b)} = q_{(a⃗⃗, 0, b)} removing "
+                                  + idToWeaken
+                                  + " from "
+                                  + obligation.getExpression()
+                                  + ""
                           // + "` with (a⃗⃗, b) = "
                           // + rIndex
                           );
@@ -97,7 +98,7 @@ public class WVar implements Rule {
         .streamNonRank()
         .map(AnnotatingContext.Entry::getValue)
         .filter(Predicate.not(occurred::contains))
-        .map(x -> new EqualityConstraint(x, ZERO, "(w:var " + idToWeaken + ") setToZero"))
+        .map(x -> new EqualityConstraint(x, ZERO, () -> "(w:var " + idToWeaken + ") setToZero"))
         .forEach(constraints::add);
 
     return new Rule.ApplicationResult(
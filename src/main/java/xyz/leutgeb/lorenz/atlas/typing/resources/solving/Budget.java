@@ -0,0 +1,132 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static xyz.leutgeb.lorenz.atlas.util.Util.getProperty;
+
+import com.microsoft.z3.Context;
+import com.microsoft.z3.Native;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Limits the time and memory that Z3 may use for solving one constraint system. A context that
+ * exceeds its budget is interrupted, and solving yields {@link com.microsoft.z3.Status#UNKNOWN}.
+ *
+ * <p>Memory is measured by the allocations of Z3 in the whole process, so the memory budget is only
+ * accurate if constraint systems are not solved concurrently.
+ *
+ * <p>Solving one constraint system may take multiple calls to Z3 (e.g. for independent components,
+ * competing strategies or layers of optimization). To share one deadline between all of them, the
+ * budget must be started first, see {@link #start()}.
+ *
+ * @param time maximum duration of solving, or {@code null} for no limit
+ * @param memory maximum memory allocated by Z3 in megabytes, or zero for no limit
+ * @param deadline instant at which time is up, or {@code null} if the budget was not started
+ */
+@Slf4j
+public record Budget(Duration time, long memory, Instant deadline) {
+  public static final Budget UNLIMITED = new Budget(null, 0);
+
+  private static final Duration POLL = Duration.ofMillis(100);
+
+  /** Polls all watches. */
+  private static final ScheduledExecutorService WATCHDOG =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            final var thread = new Thread(runnable, "budget");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /**
+   * @return the budget configured via properties {@code timeBudget} (ISO-8601 duration) and {@code
+   *     memoryBudget} (megabytes) of {@link Solver}, or empty if neither is set
+   */
+  public static Optional<Budget> configured() {
+    final var time = getProperty(Solver.class, "timeBudget");
+    final var memory = getProperty(Solver.class, "memoryBudget");
+    if (time == null && memory == null) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        new Budget(
+            time == null ? null : Duration.parse(time),
+            memory == null ? 0 : Long.parseLong(memory)));
+  }
+
+  public Budget(Duration time, long memory) {
+    this(time, memory, null);
+  }
+
+  /** @return this budget, with a deadline that is fixed from now on */
+  public Budget start() {
+    return time == null ? this : new Budget(time, memory, Instant.now().plus(time));
+  }
+
+  public boolean isUnlimited() {
+    return time == null && memory <= 0;
+  }
+
+  /**
+   * Interrupts the given context as soon as this budget is exceeded, or the calling thread is
+   * interrupted (e.g. because its task timed out, see {@link
+   * xyz.leutgeb.lorenz.atlas.util.Scheduler}), until the returned watch is closed. Interrupts are
+   * repeated, because a context that is interrupted while it is not checking is not affected.
+   */
+  Watch watch(Context ctx) {
+    final var thread = Thread.currentThread();
+    final var start = Instant.now();
+    final var until = deadline != null ? deadline : time == null ? null : start.plus(time);
+    // Guards against interrupting the context after the watch was closed, when it might be gone.
+    final var closed = new AtomicBoolean();
+    final var poll =
+        WATCHDOG.scheduleWithFixedDelay(
+            () -> {
+              final var now = Instant.now();
+              final var exceeded =
+                  (until != null && now.isAfter(until))
+                      || (memory > 0 && Native.getEstimatedAllocSize() > memory * 1024 * 1024);
+              if (!exceeded && !thread.isInterrupted()) {
+                return;
+              }
+              synchronized (closed) {
+                if (closed.get()) {
+                  return;
+                }
+                if (exceeded) {
+                  log.debug(
+                      "Budget {} exceeded after {}, interrupting",
+                      this,
+                      Duration.between(start, now));
+                }
+                ctx.interrupt();
+              }
+            },
+            POLL.toNanos(),
+            POLL.toNanos(),
+            TimeUnit.NANOSECONDS);
+    return () -> {
+      synchronized (closed) {
+        closed.set(true);
+      }
+      poll.cancel(false);
+    };
+  }
+
+  interface Watch extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  @Override
+  public String toString() {
+    return (time == null ? "unlimited" : time.toString())
+        + " and "
+        + (memory <= 0 ? "unlimited" : memory + "MB");
+  }
+}
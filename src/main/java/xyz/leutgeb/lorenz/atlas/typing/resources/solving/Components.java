@@ -0,0 +1,130 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
+
+/**
+ * Splits a constraint system into independent subsystems, i.e. the connected components of the
+ * graph in which constraints are adjacent to the coefficients that occur in them.
+ *
+ * <p>Components do not share any unknown coefficient, so the system is satisfiable iff every
+ * component is, and solutions of components can simply be joined. Minimizing a sequence of targets
+ * lexicographically amounts to minimizing, in every component, the subsequence of targets that
+ * occur in it.
+ */
+@Slf4j
+final class Components {
+  record Component(Set<Constraint> constraints, List<UnknownCoefficient> target) {}
+
+  /** Components with fewer constraints than this are bundled into one. */
+  private static final int SMALL = 64;
+
+  /** Union-find forest over canonical coefficients, roots are not contained as keys. */
+  private final Map<UnknownCoefficient, UnknownCoefficient> parent = new HashMap<>();
+
+  private Components() {}
+
+  /**
+   * @return the components of the given system, in no particular order. Constraints that do not
+   *     contain any unknown coefficient, and small components, are bundled into one component.
+   *     Targets that do not occur in any constraint are dropped.
+   */
+  static List<Component> split(Set<Constraint> constraints, List<UnknownCoefficient> target) {
+    return split(constraints, target, SMALL);
+  }
+
+  /** @param small components with fewer constraints than this are bundled */
+  static List<Component> split(
+      Set<Constraint> constraints, List<UnknownCoefficient> target, int small) {
+    final var components = new Components();
+    for (var constraint : constraints) {
+      UnknownCoefficient first = null;
+      for (var coefficient : constraint.occurringCoefficients()) {
+        if (!(coefficient instanceof UnknownCoefficient unknownCoefficient)) {
+          continue;
+        }
+        final var root = components.find(unknownCoefficient.canonical());
+        if (first == null) {
+          first = root;
+        } else {
+          components.union(first, root);
+        }
+      }
+    }
+
+    final Map<UnknownCoefficient, Set<Constraint>> constraintsByRoot = new LinkedHashMap<>();
+    final Set<Constraint> ground = new HashSet<>();
+    for (var constraint : constraints) {
+      final var root = components.root(constraint);
+      if (root == null) {
+        ground.add(constraint);
+      } else {
+        constraintsByRoot.computeIfAbsent(root, key -> new HashSet<>()).add(constraint);
+      }
+    }
+
+    final Map<UnknownCoefficient, List<UnknownCoefficient>> targetByRoot = new HashMap<>();
+    for (var x : target) {
+      final var root = components.find(x.canonical());
+      if (!constraintsByRoot.containsKey(root)) {
+        log.warn("Optimization target '{}' does not occur in any constraint", x);
+        continue;
+      }
+      targetByRoot.computeIfAbsent(root, key -> new ArrayList<>()).add(x);
+    }
+
+    // Small components are bundled, so that they do not each need their own solver.
+    final var result = new ArrayList<Component>();
+    final var bundle = new Component(ground, new ArrayList<>());
+    for (var entry : constraintsByRoot.entrySet()) {
+      final var componentTarget = targetByRoot.getOrDefault(entry.getKey(), new ArrayList<>());
+      if (entry.getValue().size() < small) {
+        bundle.constraints().addAll(entry.getValue());
+        bundle.target().addAll(componentTarget);
+      } else {
+        result.add(new Component(entry.getValue(), componentTarget));
+      }
+    }
+    if (!bundle.constraints().isEmpty()) {
+      result.add(bundle);
+    }
+    return result;
+  }
+
+  private UnknownCoefficient root(Constraint constraint) {
+    for (var coefficient : constraint.occurringCoefficients()) {
+      if (coefficient instanceof UnknownCoefficient unknownCoefficient) {
+        return find(unknownCoefficient.canonical());
+      }
+    }
+    return null;
+  }
+
+  private UnknownCoefficient find(UnknownCoefficient coefficient) {
+    var root = coefficient;
+    while (parent.containsKey(root)) {
+      root = parent.get(root);
+    }
+    // Path compression.
+    while (!coefficient.equals(root)) {
+      coefficient = parent.put(coefficient, root);
+    }
+    return root;
+  }
+
+  private void union(UnknownCoefficient a, UnknownCoefficient b) {
+    final var x = find(a);
+    final var y = find(b);
+    if (!x.equals(y)) {
+      parent.put(y, x);
+    }
+  }
+}
@@ -0,0 +1,303 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.ZERO;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.hipparchus.fraction.Fraction;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualityConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualsProductConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualsSumConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.OffsetConstraint;
+
+/**
+ * Shrinks a constraint system before it is handed to Z3.
+ *
+ * <p>Equalities between coefficients (including offsets and sums or products that degenerate to
+ * equalities after folding known coefficients) are absorbed into a union-find structure over {@link
+ * UnknownCoefficient#canonical()}. Every equivalence class is then represented by a single
+ * coefficient (or a known value), which is substituted into the remaining constraints. Constraints
+ * that become trivially satisfied are dropped.
+ *
+ * <p>Coefficients that are frozen (e.g. optimization targets) are never substituted. A class that
+ * contains a coefficient that must be non-negative is always represented by such a coefficient, so
+ * that the non-negativity assertions generated by {@link Solver} remain sound.
+ */
+@Slf4j
+public class Presolver {
+  private final Set<UnknownCoefficient> frozen;
+
+  /** Union-find forest, roots are not contained as keys. */
+  private final Map<UnknownCoefficient, UnknownCoefficient> parent = new HashMap<>();
+
+  /** Values of classes that are known, keyed by root. */
+  private final Map<UnknownCoefficient, KnownCoefficient> values = new HashMap<>();
+
+  /** Coefficients occurring in the original system. */
+  private final Set<UnknownCoefficient> coefficients;
+
+  private final Set<Constraint> constraints;
+
+  private Presolver(Set<Constraint> original, Set<UnknownCoefficient> frozen) {
+    this.frozen = frozen;
+    this.coefficients = unknowns(original);
+
+    List<Constraint> pending = new ArrayList<>(original);
+    boolean changed = true;
+    // Every pass that changes anything absorbs at least one constraint, so this terminates.
+    while (changed) {
+      changed = false;
+      final var next = new ArrayList<Constraint>(pending.size());
+      for (var constraint : pending) {
+        if (absorb(constraint)) {
+          changed = true;
+        } else {
+          next.add(constraint);
+        }
+      }
+      pending = next;
+    }
+
+    this.constraints = new HashSet<>();
+    for (var constraint : pending) {
+      final var rewritten = rewrite(constraint);
+      if (rewritten.known() && rewritten.satisfied()) {
+        continue;
+      }
+      this.constraints.add(rewritten);
+    }
+  }
+
+  public static Presolver presolve(Set<Constraint> constraints, Set<UnknownCoefficient> frozen) {
+    final var presolver = new Presolver(constraints, frozen);
+    log.info(
+        "Presolve: {} → {} Constraints, {} → {} Coefficients",
+        constraints.size(),
+        presolver.constraints.size(),
+        presolver.coefficients.size(),
+        unknowns(presolver.constraints).size());
+    return presolver;
+  }
+
+  public Set<Constraint> getConstraints() {
+    return constraints;
+  }
+
+  /**
+   * Completes a solution of the presolved system to a solution of the original system, by assigning
+   * values to all coefficients of the original system that were substituted.
+   */
+  public Map<Coefficient, KnownCoefficient> expand(Map<Coefficient, KnownCoefficient> solution) {
+    final var result = new HashMap<>(solution);
+    for (var coefficient : coefficients) {
+      if (result.containsKey(coefficient)) {
+        continue;
+      }
+      final var resolved = resolve(coefficient);
+      if (resolved instanceof KnownCoefficient known) {
+        result.put(coefficient, known);
+      } else if (solution.containsKey(resolved)) {
+        result.put(coefficient, solution.get(resolved));
+      } else if (!frozen.contains(resolved)) {
+        // Classes that do not occur in the presolved system are unconstrained.
+        result.put(coefficient, ZERO);
+      }
+    }
+    return result;
+  }
+
+  private UnknownCoefficient find(UnknownCoefficient coefficient) {
+    var root = coefficient;
+    while (parent.containsKey(root)) {
+      root = parent.get(root);
+    }
+    // Path compression.
+    while (!coefficient.equals(root)) {
+      coefficient = parent.put(coefficient, root);
+    }
+    return root;
+  }
+
+  /** Maps a coefficient to the representative of its class (or its value, if known). */
+  Coefficient resolve(Coefficient coefficient) {
+    if (!(coefficient instanceof UnknownCoefficient unknownCoefficient)) {
+      return coefficient;
+    }
+    final var root = find(unknownCoefficient.canonical());
+    final Coefficient result = values.containsKey(root) ? values.get(root) : root;
+    return unknownCoefficient.isNegated() ? result.negate() : result;
+  }
+
+  private boolean absorb(Constraint constraint) {
+    if (constraint instanceof OffsetConstraint offsetConstraint) {
+      if (!(resolve(offsetConstraint.getOffset()) instanceof KnownCoefficient offset)) {
+        return false;
+      }
+      final var left = resolve(offsetConstraint.getLeft());
+      final var right = resolve(offsetConstraint.getRight());
+      if (offset.getValue().equals(Fraction.ZERO)) {
+        return equate(left, right);
+      } else if (right instanceof KnownCoefficient r) {
+        return equate(left, new KnownCoefficient(r.getValue().add(offset.getValue())));
+      } else if (left instanceof KnownCoefficient l) {
+        return equate(right, new KnownCoefficient(l.getValue().subtract(offset.getValue())));
+      }
+      return false;
+    } else if (constraint instanceof EqualityConstraint equalityConstraint) {
+      return equate(resolve(equalityConstraint.getLeft()), resolve(equalityConstraint.getRight()));
+    } else if (constraint instanceof EqualsSumConstraint sumConstraint) {
+      final var left = resolve(sumConstraint.getLeft());
+      final var unknowns = new ArrayList<Coefficient>();
+      final var sum = fold(sumConstraint.getSum(), unknowns, Fraction.ZERO, Fraction::add);
+      if (unknowns.isEmpty()) {
+        return equate(left, new KnownCoefficient(sum));
+      } else if (unknowns.size() == 1 && left instanceof KnownCoefficient l) {
+        return equate(unknowns.get(0), new KnownCoefficient(l.getValue().subtract(sum)));
+      } else if (unknowns.size() == 1 && sum.equals(Fraction.ZERO)) {
+        return equate(left, unknowns.get(0));
+      }
+      return false;
+    } else if (constraint instanceof EqualsProductConstraint productConstraint) {
+      final var left = resolve(productConstraint.getLeft());
+      final var unknowns = new ArrayList<Coefficient>();
+      final var product =
+          fold(productConstraint.getProduct(), unknowns, Fraction.ONE, Fraction::multiply);
+      if (unknowns.isEmpty() || product.equals(Fraction.ZERO)) {
+        return equate(left, new KnownCoefficient(product));
+      } else if (unknowns.size() == 1 && product.equals(Fraction.ONE)) {
+        return equate(left, unknowns.get(0));
+      } else if (unknowns.size() == 1 && left instanceof KnownCoefficient l) {
+        return equate(unknowns.get(0), new KnownCoefficient(l.getValue().divide(product)));
+      }
+      return false;
+    }
+    return false;
+  }
+
+  private Fraction fold(
+      Collection<Coefficient> coefficients,
+      List<Coefficient> unknowns,
+      Fraction neutral,
+      BinaryOperator<Fraction> operator) {
+    var result = neutral;
+    for (var coefficient : coefficients) {
+      final var resolved = resolve(coefficient);
+      if (resolved instanceof KnownCoefficient known) {
+        result = operator.apply(result, known.getValue());
+      } else {
+        unknowns.add(resolved);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Records that both (resolved) coefficients are equal.
+   *
+   * @return whether the equality was absorbed, i.e. need not be kept as a constraint.
+   */
+  private boolean equate(Coefficient left, Coefficient right) {
+    if (left instanceof KnownCoefficient && right instanceof KnownCoefficient) {
+      // Keep contradictions, so that they end up in the unsatisfiable core.
+      return left.equals(right);
+    }
+    if (left instanceof KnownCoefficient) {
+      return bind((UnknownCoefficient) right, (KnownCoefficient) left);
+    }
+    if (right instanceof KnownCoefficient) {
+      return bind((UnknownCoefficient) left, (KnownCoefficient) right);
+    }
+    final var l = (UnknownCoefficient) left;
+    final var r = (UnknownCoefficient) right;
+    if (l.isNegated() != r.isNegated()) {
+      return false;
+    }
+    return union(l.canonical(), r.canonical());
+  }
+
+  private boolean bind(UnknownCoefficient coefficient, KnownCoefficient value) {
+    final var root = coefficient.canonical();
+    final var v = coefficient.isNegated() ? (KnownCoefficient) value.negate() : value;
+    if (frozen.contains(root) || (v.getValue().signum() < 0 && !root.isMaybeNegative())) {
+      return false;
+    }
+    values.put(root, v);
+    return true;
+  }
+
+  private boolean union(UnknownCoefficient a, UnknownCoefficient b) {
+    if (a.equals(b)) {
+      return true;
+    }
+    final UnknownCoefficient root;
+    final UnknownCoefficient child;
+    if (frozen.contains(a) && frozen.contains(b)) {
+      return false;
+    } else if (frozen.contains(a) || frozen.contains(b)) {
+      root = frozen.contains(a) ? a : b;
+      child = root == a ? b : a;
+      if (root.isMaybeNegative() && !child.isMaybeNegative()) {
+        return false;
+      }
+    } else {
+      // Prefer roots that must be non-negative, see class comment.
+      root = a.isMaybeNegative() ? b : a;
+      child = root == a ? b : a;
+    }
+    parent.put(child, root);
+    return true;
+  }
+
+  private Constraint rewrite(Constraint constraint) {
+    if (constraint instanceof EqualsSumConstraint sumConstraint) {
+      final var unknowns = new ArrayList<Coefficient>();
+      final var sum = fold(sumConstraint.getSum(), unknowns, Fraction.ZERO, Fraction::add);
+      if (!sum.equals(Fraction.ZERO)) {
+        unknowns.add(new KnownCoefficient(sum));
+      }
+      return new EqualsSumConstraint(
+          resolve(sumConstraint.getLeft()), unknowns, sumConstraint.lazyReason());
+    } else if (constraint instanceof EqualsProductConstraint productConstraint) {
+      final var unknowns = new ArrayList<Coefficient>();
+      final var product =
+          fold(productConstraint.getProduct(), unknowns, Fraction.ONE, Fraction::multiply);
+      if (!product.equals(Fraction.ONE)) {
+        unknowns.add(new KnownCoefficient(product));
+      }
+      return new EqualsProductConstraint(
+          resolve(productConstraint.getLeft()), unknowns, productConstraint.lazyReason());
+    }
+    var result = constraint;
+    for (var coefficient : constraint.occurringCoefficients()) {
+      final var canonical = coefficient.canonical();
+      final var resolved = resolve(canonical);
+      if (!resolved.equals(canonical)) {
+        result = result.replace(canonical, resolved);
+      }
+    }
+    return result;
+  }
+
+  private static Set<UnknownCoefficient> unknowns(Collection<Constraint> constraints) {
+    final var result = new HashSet<UnknownCoefficient>();
+    for (var constraint : constraints) {
+      for (var coefficient : constraint.occurringCoefficients()) {
+        if (coefficient.canonical() instanceof UnknownCoefficient unknownCoefficient) {
+          result.add(unknownCoefficient);
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,326 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import org.hipparchus.fraction.BigFraction;
+
+/**
+ * Exact two-phase simplex over rational numbers, with sparse rows. Minimizes a sequence of linear
+ * objectives lexicographically over all non-negative solutions of a set of linear constraints.
+ *
+ * <p>Variables are numbered from zero. Constraints must all be added before calling {@link
+ * #minimize(List)}, which may only be called once.
+ */
+final class RationalSimplex {
+  enum Relation {
+    LESS_OR_EQUAL,
+    EQUAL,
+    GREATER_OR_EQUAL;
+
+    Relation flip() {
+      return switch (this) {
+        case LESS_OR_EQUAL -> GREATER_OR_EQUAL;
+        case EQUAL -> EQUAL;
+        case GREATER_OR_EQUAL -> LESS_OR_EQUAL;
+      };
+    }
+  }
+
+  enum Outcome {
+    OPTIMAL,
+    INFEASIBLE,
+    UNBOUNDED
+  }
+
+  /** After this many consecutive degenerate pivots, Bland's rule is used to avoid cycling. */
+  private static final int DEGENERATE_PIVOTS_BEFORE_BLAND = 64;
+
+  private final int variables;
+
+  /** Row i of the tableau reads {@code rows.get(i) · x = rhs.get(i)}, zeros are not stored. */
+  private final List<Map<Integer, BigFraction>> rows = new ArrayList<>();
+
+  private final List<BigFraction> rhs = new ArrayList<>();
+  private final List<Integer> basis = new ArrayList<>();
+
+  /** Columns that are fixed to zero, i.e. never enter the basis. */
+  private final BitSet excluded = new BitSet();
+
+  private final BitSet artificial = new BitSet();
+
+  private int columns;
+
+  /** Reduced costs of the current objective, only nonbasic columns are stored. */
+  private Map<Integer, BigFraction> costs;
+
+  /** Value of the current objective. */
+  private BigFraction objective;
+
+  @Getter private long pivots;
+
+  private boolean infeasible;
+
+  RationalSimplex(int variables) {
+    this.variables = variables;
+    this.columns = variables;
+  }
+
+  int rows() {
+    return rows.size();
+  }
+
+  int columns() {
+    return columns;
+  }
+
+  /** Adds the constraint {@code coefficients · x relation constant}. */
+  void add(Map<Integer, BigFraction> coefficients, Relation relation, BigFraction constant) {
+    final Map<Integer, BigFraction> row = new HashMap<>();
+    for (var entry : coefficients.entrySet()) {
+      if (entry.getKey() >= variables) {
+        throw new IllegalArgumentException("variable out of range: " + entry.getKey());
+      }
+      if (entry.getValue().signum() != 0) {
+        row.put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    if (constant.signum() < 0) {
+      row.replaceAll((column, value) -> value.negate());
+      constant = constant.negate();
+      relation = relation.flip();
+    }
+
+    if (row.isEmpty()) {
+      // 0 = c, or 0 >= c, with c >= 0.
+      if (relation != Relation.LESS_OR_EQUAL && constant.signum() != 0) {
+        infeasible = true;
+      }
+      return;
+    }
+
+    final int basic;
+    switch (relation) {
+      case LESS_OR_EQUAL -> {
+        basic = columns++;
+        row.put(basic, BigFraction.ONE);
+      }
+      case GREATER_OR_EQUAL -> {
+        row.put(columns++, BigFraction.MINUS_ONE);
+        basic = columns++;
+        row.put(basic, BigFraction.ONE);
+        artificial.set(basic);
+      }
+      default -> {
+        basic = columns++;
+        row.put(basic, BigFraction.ONE);
+        artificial.set(basic);
+      }
+    }
+    rows.add(row);
+    rhs.add(constant);
+    basis.add(basic);
+  }
+
+  /**
+   * Minimizes the given objectives (linear functions of the variables) lexicographically, i.e.
+   * every objective is minimized among the optimal solutions of all objectives before it.
+   */
+  Outcome minimize(List<Map<Integer, BigFraction>> objectives) {
+    if (infeasible) {
+      return Outcome.INFEASIBLE;
+    }
+
+    if (!artificial.isEmpty()) {
+      final Map<Integer, BigFraction> phaseOne = new HashMap<>();
+      artificial.stream().forEach(column -> phaseOne.put(column, BigFraction.ONE));
+      price(phaseOne);
+      if (iterate() != Outcome.OPTIMAL) {
+        throw new IllegalStateException("phase one must be bounded");
+      }
+      if (objective.signum() > 0) {
+        return Outcome.INFEASIBLE;
+      }
+      evictArtificials();
+      excluded.or(artificial);
+    }
+
+    for (var function : objectives) {
+      price(function);
+      final var outcome = iterate();
+      if (outcome != Outcome.OPTIMAL) {
+        return outcome;
+      }
+      // Any solution that is optimal for this objective keeps nonbasic columns with positive
+      // reduced cost at zero, so they are fixed for all further objectives.
+      for (var entry : costs.entrySet()) {
+        if (entry.getValue().signum() > 0) {
+          excluded.set(entry.getKey());
+        }
+      }
+    }
+    return Outcome.OPTIMAL;
+  }
+
+  /** @return the values of all variables in the current basic solution. */
+  BigFraction[] values() {
+    final var result = new BigFraction[variables];
+    Arrays.fill(result, BigFraction.ZERO);
+    for (int i = 0; i < basis.size(); i++) {
+      if (basis.get(i) < variables) {
+        result[basis.get(i)] = rhs.get(i);
+      }
+    }
+    return result;
+  }
+
+  /** Expresses the given objective in terms of nonbasic columns. */
+  private void price(Map<Integer, BigFraction> function) {
+    costs = new HashMap<>(function);
+    objective = BigFraction.ZERO;
+    for (int i = 0; i < rows.size(); i++) {
+      final var cost = function.get(basis.get(i));
+      if (cost == null || cost.signum() == 0) {
+        continue;
+      }
+      objective = objective.add(cost.multiply(rhs.get(i)));
+      subtract(costs, rows.get(i), cost);
+    }
+  }
+
+  private Outcome iterate() {
+    int degenerate = 0;
+    while (true) {
+      final int entering = entering(degenerate >= DEGENERATE_PIVOTS_BEFORE_BLAND);
+      if (entering < 0) {
+        return Outcome.OPTIMAL;
+      }
+
+      int leaving = -1;
+      BigFraction ratio = null;
+      for (int i = 0; i < rows.size(); i++) {
+        final var coefficient = rows.get(i).get(entering);
+        if (coefficient == null || coefficient.signum() <= 0) {
+          continue;
+        }
+        final var candidate = rhs.get(i).divide(coefficient);
+        final int comparison = ratio == null ? -1 : candidate.compareTo(ratio);
+        if (comparison < 0 || (comparison == 0 && basis.get(i) < basis.get(leaving))) {
+          leaving = i;
+          ratio = candidate;
+        }
+      }
+      if (leaving < 0) {
+        return Outcome.UNBOUNDED;
+      }
+
+      degenerate = ratio.signum() == 0 ? degenerate + 1 : 0;
+      pivot(leaving, entering);
+    }
+  }
+
+  /**
+   * @return a nonbasic column with negative reduced cost, or -1 if there is none. Either the one
+   *     with most negative reduced cost, or the one with smallest index (Bland's rule).
+   */
+  private int entering(boolean bland) {
+    int result = -1;
+    BigFraction best = null;
+    for (var entry : costs.entrySet()) {
+      final int column = entry.getKey();
+      final var cost = entry.getValue();
+      if (cost.signum() >= 0 || excluded.get(column)) {
+        continue;
+      }
+      final boolean better;
+      if (result < 0) {
+        better = true;
+      } else if (bland) {
+        better = column < result;
+      } else {
+        final int comparison = cost.compareTo(best);
+        better = comparison < 0 || (comparison == 0 && column < result);
+      }
+      if (better) {
+        result = column;
+        best = cost;
+      }
+    }
+    return result;
+  }
+
+  private void pivot(int r, int column) {
+    pivots++;
+    final var row = rows.get(r);
+    final var pivot = row.get(column);
+    if (!pivot.equals(BigFraction.ONE)) {
+      row.replaceAll((c, value) -> value.divide(pivot));
+      rhs.set(r, rhs.get(r).divide(pivot));
+    }
+
+    for (int i = 0; i < rows.size(); i++) {
+      if (i == r) {
+        continue;
+      }
+      final var factor = rows.get(i).get(column);
+      if (factor == null) {
+        continue;
+      }
+      subtract(rows.get(i), row, factor);
+      rhs.set(i, rhs.get(i).subtract(factor.multiply(rhs.get(r))));
+    }
+
+    final var cost = costs.get(column);
+    if (cost != null) {
+      subtract(costs, row, cost);
+      objective = objective.add(cost.multiply(rhs.get(r)));
+    }
+
+    basis.set(r, column);
+  }
+
+  /** Sets {@code target} to {@code target - factor · row}, removing entries that become zero. */
+  private static void subtract(
+      Map<Integer, BigFraction> target, Map<Integer, BigFraction> row, BigFraction factor) {
+    for (var entry : row.entrySet()) {
+      final var delta = factor.multiply(entry.getValue());
+      final var updated = target.getOrDefault(entry.getKey(), BigFraction.ZERO).subtract(delta);
+      if (updated.signum() == 0) {
+        target.remove(entry.getKey());
+      } else {
+        target.put(entry.getKey(), updated);
+      }
+    }
+  }
+
+  /**
+   * After phase one, artificial columns that are still basic have value zero. They are replaced by
+   * some other column of their row, or their row is dropped if it is redundant.
+   */
+  private void evictArtificials() {
+    for (int i = rows.size() - 1; i >= 0; i--) {
+      if (!artificial.get(basis.get(i))) {
+        continue;
+      }
+      int replacement = -1;
+      for (var column : rows.get(i).keySet()) {
+        if (!artificial.get(column) && !excluded.get(column)) {
+          replacement = column;
+          break;
+        }
+      }
+      if (replacement >= 0) {
+        pivot(i, replacement);
+      } else {
+        rows.remove(i);
+        rhs.remove(i);
+        basis.remove(i);
+      }
+    }
+  }
+}
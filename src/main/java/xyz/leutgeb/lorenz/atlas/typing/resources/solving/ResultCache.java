@@ -0,0 +1,387 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static com.microsoft.z3.Status.SATISFIABLE;
+import static com.microsoft.z3.Status.UNSATISFIABLE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Optional.empty;
+
+import com.microsoft.z3.Status;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.hipparchus.exception.MathRuntimeException;
+import org.hipparchus.fraction.Fraction;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.ConjunctiveConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.DisjunctiveConstraint;
+import xyz.leutgeb.lorenz.atlas.util.Util;
+
+/**
+ * Stores results of {@link Solver} on disk, keyed by a hash of the constraint system and its
+ * optimization targets.
+ *
+ * <p>Names of unknown coefficients depend on the order in which they were generated, so before
+ * hashing, coefficients are renamed in an order that only depends on the shape of the constraints.
+ * Equal hashes thus mean that two systems are equal up to renaming of coefficients. Since the
+ * renaming order is not unique for symmetric systems, equal systems may still miss each other.
+ *
+ * <p>Solutions loaded from the cache are checked against the constraints in exact arithmetic, and
+ * discarded if they do not satisfy all of them. Unsatisfiability cannot be checked this way, it is
+ * trusted based on the hash.
+ *
+ * <p>Reasons of constraints are not hashed, since they may mention names of coefficients, and are
+ * irrelevant to the result anyway.
+ */
+@Slf4j
+final class ResultCache {
+  /** Changes whenever the format of entries or the canonical form of constraints changes. */
+  private static final String VERSION = "2";
+
+  /** Bounds the number of rounds in which signatures of coefficients are refined. */
+  private static final int MAX_REFINEMENTS = 8;
+
+  private final Path directory;
+
+  /** A constraint system in canonical form, together with the renaming used to get there. */
+  record Key(
+      String hash,
+      Set<Constraint> constraints,
+      Map<UnknownCoefficient, String> names,
+      Map<String, UnknownCoefficient> coefficients) {}
+
+  ResultCache(Path directory) {
+    this.directory = directory;
+  }
+
+  /** @return the cache in the directory given by the property {@code cache}, if any. */
+  static Optional<ResultCache> configured() {
+    return Optional.ofNullable(Util.getProperty(Solver.class, "cache"))
+        .map(Paths::get)
+        .map(ResultCache::new);
+  }
+
+  static Key key(Set<Constraint> constraints, List<UnknownCoefficient> target) {
+    // The order of elements of conjunctions is arbitrary, so they are hashed as separate
+    // constraints instead, which is equivalent.
+    final var shaped =
+        constraints.stream().flatMap(ResultCache::conjuncts).map(Shaped::new).toList();
+
+    // Constraints of the same shape are told apart by the signatures of their coefficients. At
+    // first, all coefficients have the same signature. Then, the signature of a coefficient is
+    // refined by the constraints it occurs in, seen from its position and with other coefficients
+    // labelled by their signature, until that does not tell any more coefficients apart.
+    Map<UnknownCoefficient, String> signatures = new HashMap<>();
+    for (var it : shaped) {
+      for (var coefficient : it.unknowns) {
+        signatures.put(coefficient, "_");
+      }
+    }
+    long classes = 1;
+    for (int round = 0; round < MAX_REFINEMENTS; round++) {
+      final Map<UnknownCoefficient, List<String>> contexts = new HashMap<>();
+      for (var it : shaped) {
+        for (var coefficient : it.unknowns) {
+          contexts
+              .computeIfAbsent(coefficient, key -> new ArrayList<>())
+              .add(it.context(coefficient, signatures));
+        }
+      }
+      final Map<UnknownCoefficient, String> refined = new HashMap<>();
+      for (var entry : contexts.entrySet()) {
+        final var digest = sha256();
+        digest.update(signatures.get(entry.getKey()).getBytes(UTF_8));
+        entry.getValue().stream()
+            .sorted()
+            .forEach(context -> digest.update(context.getBytes(UTF_8)));
+        refined.put(entry.getKey(), HexFormat.of().formatHex(digest.digest(), 0, 8));
+      }
+      signatures = refined;
+      final var refinedClasses = refined.values().stream().distinct().count();
+      if (refinedClasses == classes) {
+        break;
+      }
+      classes = refinedClasses;
+    }
+
+    final var finalSignatures = signatures;
+    final Comparator<UnknownCoefficient> bySignature =
+        Comparator.comparing((UnknownCoefficient x) -> finalSignatures.get(x))
+            .thenComparing(UnknownCoefficient::getName);
+    for (var it : shaped) {
+      it.unknowns.sort(bySignature);
+      it.signature = it.shape + it.unknowns.stream().map(finalSignatures::get).toList();
+    }
+    final var sorted = new ArrayList<>(shaped);
+    sorted.sort(Comparator.comparing(it -> it.signature));
+
+    final Map<UnknownCoefficient, String> names = new HashMap<>();
+    final Map<String, UnknownCoefficient> coefficients = new HashMap<>();
+    final var digest = sha256();
+    digest.update(VERSION.getBytes(UTF_8));
+    for (var it : sorted) {
+      for (var coefficient : it.unknowns) {
+        final var name = names.computeIfAbsent(coefficient, key -> "§" + names.size());
+        coefficients.putIfAbsent(name, coefficient);
+      }
+      digest.update(("\n" + it.rename(names)).getBytes(UTF_8));
+      for (var coefficient : it.unknowns) {
+        if (!coefficient.isMaybeNegative()) {
+          digest.update((" " + names.get(coefficient) + " ≥ 0").getBytes(UTF_8));
+        }
+      }
+    }
+    for (var x : target) {
+      digest.update(("\nminimize " + names.get(x.canonical())).getBytes(UTF_8));
+    }
+    return new Key(HexFormat.of().formatHex(digest.digest()), constraints, names, coefficients);
+  }
+
+  private static Stream<Constraint> conjuncts(Constraint constraint) {
+    return constraint instanceof ConjunctiveConstraint conjunctiveConstraint
+        ? conjunctiveConstraint.getElements().stream().flatMap(ResultCache::conjuncts)
+        : Stream.of(constraint);
+  }
+
+  Optional<Solver.Result> load(Key key) {
+    final var path = path(key);
+    if (!Files.exists(path)) {
+      return empty();
+    }
+
+    final JsonObject entry;
+    try (final var reader = Json.createReader(Files.newBufferedReader(path))) {
+      entry = reader.readObject();
+    } catch (IOException | RuntimeException exception) {
+      log.warn("Failed to read cached result from {}.", path, exception);
+      return empty();
+    }
+
+    final var status = Status.valueOf(entry.getString("status"));
+    final Map<String, String> statistics = new HashMap<>();
+    statistics.put("cache", "hit");
+    if (!status.equals(SATISFIABLE)) {
+      log.info("Cached result: {}", status);
+      return Optional.of(new Solver.Result(status, empty(), statistics, empty()));
+    }
+
+    final var solution = new HashMap<Coefficient, KnownCoefficient>();
+    for (var value : entry.getJsonObject("solution").entrySet()) {
+      final var coefficient = key.coefficients().get(value.getKey());
+      if (coefficient == null) {
+        continue;
+      }
+      solution.put(coefficient, parse(((JsonString) value.getValue()).getString()));
+    }
+
+    if (!verify(key.constraints(), solution)) {
+      log.warn("Cached solution in {} does not satisfy all constraints, ignoring it.", path);
+      return empty();
+    }
+    log.info("Cached result: {}", status);
+    return Optional.of(new Solver.Result(status, Optional.of(solution), statistics, empty()));
+  }
+
+  /**
+   * Stores definitive results, i.e. all results but {@link Status#UNKNOWN}. Solutions that are not
+   * optimal for all layers of optimization are not definitive either, see {@link
+   * Solver#stage(com.microsoft.z3.Context, com.microsoft.z3.Optimize, List,
+   * java.util.concurrent.atomic.AtomicInteger)}.
+   */
+  void store(Key key, Solver.Result result) {
+    if (!result.getStatus().equals(SATISFIABLE) && !result.getStatus().equals(UNSATISFIABLE)) {
+      return;
+    }
+    final var statistics = result.getStatistics();
+    if (!statistics
+        .getOrDefault("layers", "0")
+        .equals(statistics.getOrDefault("layers solved", "0"))) {
+      log.info("Not caching result, since only some layers were optimized.");
+      return;
+    }
+
+    final var entry = Json.createObjectBuilder().add("status", result.getStatus().name());
+    if (result.getSolution().isPresent()) {
+      final var solution = Json.createObjectBuilder();
+      for (var value : result.getSolution().get().entrySet()) {
+        if (!(value.getKey() instanceof UnknownCoefficient unknownCoefficient)) {
+          continue;
+        }
+        final var name = key.names().get(unknownCoefficient.canonical());
+        if (name != null) {
+          solution.add(name, value.getValue().toString());
+        }
+      }
+      entry.add("solution", solution);
+    }
+
+    final var path = path(key);
+    try {
+      Files.createDirectories(directory);
+      // Write to a temporary file first, so that concurrent readers never see partial entries.
+      final var temporary = Files.createTempFile(directory, key.hash(), ".tmp");
+      try (final var writer = Json.createWriter(Files.newBufferedWriter(temporary))) {
+        writer.writeObject(entry.build());
+      }
+      Files.move(temporary, path, ATOMIC_MOVE, REPLACE_EXISTING);
+    } catch (IOException | RuntimeException exception) {
+      log.warn("Failed to write result to cache {}.", path, exception);
+    }
+  }
+
+  /**
+   * @return whether all constraints are satisfied when coefficients are replaced by their values.
+   *     Coefficients that are not assigned a value make constraints fail.
+   */
+  static boolean verify(Set<Constraint> constraints, Map<Coefficient, KnownCoefficient> solution) {
+    for (var constraint : constraints) {
+      var replaced = constraint;
+      for (var coefficient : constraint.occurringCoefficients()) {
+        if (!(coefficient instanceof UnknownCoefficient unknown)) {
+          continue;
+        }
+        final var unknownCoefficient = unknown.canonical();
+        final var value = solution.get(unknownCoefficient);
+        if (value == null
+            || (!unknownCoefficient.isMaybeNegative() && value.getValue().signum() < 0)) {
+          return false;
+        }
+        replaced = replaced.replace(unknownCoefficient, value);
+      }
+      try {
+        if (!replaced.known() || !replaced.satisfied()) {
+          log.debug("Not satisfied: {}", constraint);
+          return false;
+        }
+      } catch (MathRuntimeException exception) {
+        // Overflow of fractions.
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Path path(Key key) {
+    return directory.resolve(key.hash() + ".json");
+  }
+
+  private static KnownCoefficient parse(String value) {
+    final var parts = value.split("/");
+    return new KnownCoefficient(
+        parts.length == 1
+            ? new Fraction(Integer.parseInt(parts[0]))
+            : new Fraction(Integer.parseInt(parts[0]), Integer.parseInt(parts[1])));
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  /**
+   * A constraint, in which every unknown coefficient is replaced by a distinct token once, so that
+   * it can be rendered cheaply with any labelling of coefficients. Elements of conjunctions and
+   * disjunctions are rendered in sorted order, so the result does not depend on their order.
+   */
+  private static final class Shaped {
+    private static final Pattern TOKEN = Pattern.compile("⟨\\d+⟩");
+
+    private final List<UnknownCoefficient> unknowns = new ArrayList<>();
+    private final Map<String, UnknownCoefficient> coefficients = new HashMap<>();
+    private final Term term;
+    private final String shape;
+    private String signature;
+
+    private sealed interface Term permits Leaf, Junction {}
+
+    private record Leaf(String tokenized) implements Term {}
+
+    private record Junction(String operator, List<Term> elements) implements Term {}
+
+    private Shaped(Constraint constraint) {
+      this.term = term(constraint);
+      this.shape = render(x -> "_");
+    }
+
+    private Term term(Constraint constraint) {
+      if (constraint instanceof ConjunctiveConstraint conjunctiveConstraint) {
+        return new Junction(
+            "∧",
+            conjunctiveConstraint.getElements().stream().map(this::term).toList());
+      } else if (constraint instanceof DisjunctiveConstraint disjunctiveConstraint) {
+        return new Junction(
+            "∨",
+            disjunctiveConstraint.getElements().stream().map(this::term).toList());
+      }
+      var replaced = constraint;
+      for (var coefficient : constraint.occurringCoefficients()) {
+        if (coefficient instanceof UnknownCoefficient unknownCoefficient) {
+          final var canonical = unknownCoefficient.canonical();
+          final var token = "⟨" + coefficients.size() + "⟩";
+          coefficients.put(token, canonical);
+          if (!unknowns.contains(canonical)) {
+            unknowns.add(canonical);
+          }
+          replaced = replaced.replace(unknownCoefficient, UnknownCoefficient.raw(token));
+        }
+      }
+      return new Leaf(replaced.toString());
+    }
+
+    private String render(Function<UnknownCoefficient, String> label) {
+      return render(term, label);
+    }
+
+    private String render(Term term, Function<UnknownCoefficient, String> label) {
+      if (term instanceof Junction junction) {
+        return junction.elements().stream()
+            .map(element -> render(element, label))
+            .sorted()
+            .collect(Collectors.joining(" " + junction.operator() + " ", "(", ")"));
+      }
+      return TOKEN
+          .matcher(((Leaf) term).tokenized())
+          .replaceAll(
+              match -> Matcher.quoteReplacement(label.apply(coefficients.get(match.group()))));
+    }
+
+    /**
+     * @return the shape of this constraint, with the given coefficient marked, and all others
+     *     replaced by their label.
+     */
+    private String context(UnknownCoefficient coefficient, Map<UnknownCoefficient, String> labels) {
+      return render(x -> x.equals(coefficient) ? "*" : labels.get(x));
+    }
+
+    private String rename(Map<UnknownCoefficient, String> names) {
+      return render(names::get);
+    }
+  }
+}
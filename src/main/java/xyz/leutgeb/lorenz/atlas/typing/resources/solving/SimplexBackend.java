@@ -0,0 +1,267 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static com.microsoft.z3.Status.SATISFIABLE;
+import static com.microsoft.z3.Status.UNSATISFIABLE;
+import static java.util.Collections.emptyMap;
+import static java.util.Optional.empty;
+import static xyz.leutgeb.lorenz.atlas.util.Util.flag;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.hipparchus.fraction.BigFraction;
+import org.hipparchus.fraction.Fraction;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.ConjunctiveConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualityConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualsProductConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualsSumConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.GreaterThanOrEqualConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.LessThanOrEqualConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.OffsetConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.UnsatisfiableConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.solving.RationalSimplex.Relation;
+
+/**
+ * Solves constraint systems that are linear and free of disjunctions with {@link RationalSimplex},
+ * i.e. exactly and without Z3. Optimization targets are minimized lexicographically in the order
+ * given, which matches how Z3 treats multiple objectives by default.
+ */
+@Slf4j
+final class SimplexBackend {
+  private final Map<UnknownCoefficient, Integer> columns = new LinkedHashMap<>();
+
+  /** Columns of the negative part of coefficients that may be negative. */
+  private final Map<UnknownCoefficient, Integer> negativeColumns = new HashMap<>();
+
+  private final List<Row> rows = new ArrayList<>();
+
+  private record Row(
+      Map<UnknownCoefficient, BigFraction> left, Relation relation, BigFraction right) {}
+
+  private SimplexBackend() {}
+
+  /**
+   * @return the result of solving the given constraints, or empty if they are not linear, or the
+   *     solution cannot be represented.
+   */
+  static Optional<Solver.Result> solve(
+      Set<Constraint> constraints, List<UnknownCoefficient> target) {
+    final var start = Instant.now();
+    final Presolver presolver;
+    if (flag(Solver.class, emptyMap(), "presolve")) {
+      presolver = Presolver.presolve(constraints, new HashSet<>(target));
+      constraints = presolver.getConstraints();
+    } else {
+      presolver = null;
+    }
+
+    final var backend = new SimplexBackend();
+    for (var constraint : constraints) {
+      if (!backend.add(constraint)) {
+        log.debug("Not linear, falling back to Z3: {}", constraint);
+        return empty();
+      }
+    }
+    final var result = backend.solve(target);
+    result.ifPresent(
+        r ->
+            log.info(
+                "Solving duration: {} (simplex, {} pivots)",
+                Duration.between(start, Instant.now()),
+                r.getStatistics().get("pivots")));
+    return presolver == null
+        ? result
+        : result.map(
+            r ->
+                r.getSolution().isEmpty()
+                    ? r
+                    : new Solver.Result(
+                        r.getStatus(),
+                        Optional.of(presolver.expand(r.getSolution().get())),
+                        r.getStatistics(),
+                        r.getSmtFile()));
+  }
+
+  private Optional<Solver.Result> solve(List<UnknownCoefficient> target) {
+    final int variables = columns.size() + negativeColumns.size();
+    final var simplex = new RationalSimplex(variables);
+    for (var row : rows) {
+      simplex.add(columns(row.left()), row.relation(), row.right());
+    }
+
+    final List<Map<Integer, BigFraction>> objectives = new ArrayList<>();
+    for (var x : target) {
+      if (!columns.containsKey(x.canonical())) {
+        log.warn("Could not find coefficient for optimization target '{}'", x);
+        continue;
+      }
+      objectives.add(columns(Map.of(x.canonical(), BigFraction.ONE)));
+    }
+
+    final var outcome = simplex.minimize(objectives);
+    log.info(
+        "Size: {} Coefficients, {} Constraints (simplex with {} rows and {} columns)",
+        columns.size(),
+        rows.size(),
+        simplex.rows(),
+        simplex.columns());
+    final Map<String, String> statistics = new HashMap<>();
+    statistics.put("backend", "simplex");
+    statistics.put("pivots", String.valueOf(simplex.getPivots()));
+    statistics.put("rows", String.valueOf(simplex.rows()));
+    statistics.put("columns", String.valueOf(simplex.columns()));
+
+    if (outcome == RationalSimplex.Outcome.INFEASIBLE) {
+      log.error("Constraint system is unsatisfiable!");
+      return Optional.of(new Solver.Result(UNSATISFIABLE, empty(), statistics, empty()));
+    } else if (outcome == RationalSimplex.Outcome.UNBOUNDED) {
+      log.warn("Optimization target is unbounded, falling back to Z3.");
+      return empty();
+    }
+
+    final var values = simplex.values();
+    final Map<Coefficient, KnownCoefficient> solution = new HashMap<>();
+    for (var entry : columns.entrySet()) {
+      var value = values[entry.getValue()];
+      final var negative = negativeColumns.get(entry.getKey());
+      if (negative != null) {
+        value = value.subtract(values[negative]);
+      }
+      try {
+        solution.put(
+            entry.getKey(),
+            value.signum() == 0
+                ? KnownCoefficient.ZERO
+                : new KnownCoefficient(
+                    new Fraction(
+                        value.getNumerator().intValueExact(),
+                        value.getDenominator().intValueExact())));
+      } catch (ArithmeticException e) {
+        log.warn("Value {} of {} does not fit, falling back to Z3.", value, entry.getKey());
+        return empty();
+      }
+    }
+    return Optional.of(new Solver.Result(SATISFIABLE, Optional.of(solution), statistics, empty()));
+  }
+
+  private Map<Integer, BigFraction> columns(Map<UnknownCoefficient, BigFraction> linear) {
+    final Map<Integer, BigFraction> result = new HashMap<>();
+    for (var entry : linear.entrySet()) {
+      result.merge(columns.get(entry.getKey()), entry.getValue(), BigFraction::add);
+      final var negative = negativeColumns.get(entry.getKey());
+      if (negative != null) {
+        result.merge(negative, entry.getValue().negate(), BigFraction::add);
+      }
+    }
+    return result;
+  }
+
+  private void column(UnknownCoefficient coefficient) {
+    if (columns.containsKey(coefficient)) {
+      return;
+    }
+    columns.put(coefficient, columns.size() + negativeColumns.size());
+    if (coefficient.isMaybeNegative()) {
+      negativeColumns.put(coefficient, columns.size() + negativeColumns.size());
+    }
+  }
+
+  /**
+   * Adds {@code factor · coefficient} to {@code linear}.
+   *
+   * @return the constant part
+   */
+  private BigFraction term(
+      Coefficient coefficient, BigFraction factor, Map<UnknownCoefficient, BigFraction> linear) {
+    if (coefficient instanceof KnownCoefficient known) {
+      return factor.multiply(fraction(known));
+    }
+    final var unknown = (UnknownCoefficient) coefficient;
+    column(unknown.canonical());
+    linear.merge(
+        unknown.canonical(), unknown.isNegated() ? factor.negate() : factor, BigFraction::add);
+    return BigFraction.ZERO;
+  }
+
+  /** Adds the row {@code left - right relation 0}. */
+  private void add(Coefficient left, List<Coefficient> right, Relation relation) {
+    final Map<UnknownCoefficient, BigFraction> linear = new HashMap<>();
+    var constant = term(left, BigFraction.ONE, linear);
+    for (var coefficient : right) {
+      constant = constant.add(term(coefficient, BigFraction.MINUS_ONE, linear));
+    }
+    rows.add(new Row(linear, relation, constant.negate()));
+  }
+
+  /** @return false if the given constraint is not linear. */
+  private boolean add(Constraint constraint) {
+    if (constraint instanceof OffsetConstraint offsetConstraint) {
+      add(
+          offsetConstraint.getLeft(),
+          List.of(offsetConstraint.getRight(), offsetConstraint.getOffset()),
+          Relation.EQUAL);
+    } else if (constraint instanceof EqualityConstraint equalityConstraint) {
+      add(equalityConstraint.getLeft(), List.of(equalityConstraint.getRight()), Relation.EQUAL);
+    } else if (constraint instanceof LessThanOrEqualConstraint lessThanOrEqualConstraint) {
+      add(
+          lessThanOrEqualConstraint.getSmaller(),
+          List.of(lessThanOrEqualConstraint.getBigger()),
+          Relation.LESS_OR_EQUAL);
+    } else if (constraint instanceof GreaterThanOrEqualConstraint greaterThanOrEqualConstraint) {
+      add(
+          greaterThanOrEqualConstraint.getLeft(),
+          List.of(greaterThanOrEqualConstraint.getRight()),
+          Relation.GREATER_OR_EQUAL);
+    } else if (constraint instanceof EqualsSumConstraint sumConstraint) {
+      add(sumConstraint.getLeft(), sumConstraint.getSum(), Relation.EQUAL);
+    } else if (constraint instanceof EqualsProductConstraint productConstraint) {
+      var factor = BigFraction.ONE;
+      Coefficient unknown = null;
+      for (var coefficient : productConstraint.getProduct()) {
+        if (coefficient instanceof KnownCoefficient known) {
+          factor = factor.multiply(fraction(known));
+        } else if (unknown == null) {
+          unknown = coefficient;
+        } else {
+          return false;
+        }
+      }
+      final Map<UnknownCoefficient, BigFraction> linear = new HashMap<>();
+      var constant = term(productConstraint.getLeft(), BigFraction.ONE, linear);
+      if (unknown == null) {
+        constant = constant.subtract(factor);
+      } else {
+        constant = constant.add(term(unknown, factor.negate(), linear));
+      }
+      rows.add(new Row(linear, Relation.EQUAL, constant.negate()));
+    } else if (constraint instanceof UnsatisfiableConstraint) {
+      rows.add(new Row(emptyMap(), Relation.EQUAL, BigFraction.ONE));
+    } else if (constraint instanceof ConjunctiveConstraint conjunctiveConstraint) {
+      for (var element : conjunctiveConstraint.getElements()) {
+        if (!add(element)) {
+          return false;
+        }
+      }
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  private static BigFraction fraction(KnownCoefficient coefficient) {
+    return new BigFraction(
+        coefficient.getValue().getNumerator(), coefficient.getValue().getDenominator());
+  }
+}
@@ -0,0 +1,165 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import com.microsoft.z3.BoolExpr;
+import com.microsoft.z3.Expr;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import xyz.leutgeb.lorenz.atlas.util.Artifacts;
+
+/**
+ * Writes an SMT-LIB 2 script while assertions are added to a solver, one command at a time.
+ * Compared to rendering the whole solver via {@link Object#toString()}, this never holds more than
+ * one chunk of commands in memory as a string. Chunks are written by {@link Artifacts}, so solving
+ * does not wait for the disk. Write errors are logged once, and the writer then silently discards
+ * all further commands, since the script is merely a by-product of solving.
+ */
+@Slf4j
+final class SmtWriter implements AutoCloseable {
+  private static final int CHUNK = 1 << 16;
+
+  private final Path path;
+  private final Set<String> declared = new HashSet<>();
+
+  /** Commands that were not yet handed to the artifact writer, or null if disabled. */
+  private StringBuilder pending;
+
+  /** Only accessed by tasks run by the artifact writer, which run one at a time. */
+  private BufferedWriter out;
+
+  private volatile boolean failed;
+
+  private SmtWriter(Path path, StringBuilder pending) {
+    this.path = path;
+    this.pending = pending;
+  }
+
+  /** Creates a writer that does not write anything. */
+  static SmtWriter none() {
+    return new SmtWriter(null, null);
+  }
+
+  static SmtWriter open(Path path) {
+    if (!Artifacts.Kind.SMT.isEnabled()) {
+      return none();
+    }
+    final var result = new SmtWriter(path, new StringBuilder());
+    Artifacts.submit(Artifacts.Kind.SMT, result::create);
+    return result;
+  }
+
+  boolean isEnabled() {
+    return pending != null;
+  }
+
+  void declare(Expr<?> constant) {
+    if (pending == null || !declared.add(constant.toString())) {
+      return;
+    }
+    write("(declare-fun " + constant + " () " + constant.getSort() + ")");
+  }
+
+  void assertion(BoolExpr assertion) {
+    if (pending == null) {
+      return;
+    }
+    write("(assert " + assertion + ")");
+  }
+
+  /** Mirrors {@link com.microsoft.z3.Solver#assertAndTrack(BoolExpr, BoolExpr)}. */
+  void assertion(BoolExpr assertion, BoolExpr tracking) {
+    if (pending == null) {
+      return;
+    }
+    declare(tracking);
+    write("(assert (=> " + tracking + " " + assertion + "))");
+  }
+
+  void minimize(Expr<?> objective) {
+    if (pending == null) {
+      return;
+    }
+    write("(minimize " + objective + ")");
+  }
+
+  private void write(String command) {
+    if (failed) {
+      pending = null;
+      return;
+    }
+    pending.append(command).append('\n');
+    if (pending.length() >= CHUNK) {
+      ship();
+    }
+  }
+
+  private void ship() {
+    final var chunk = pending.toString();
+    pending.setLength(0);
+    Artifacts.submit(Artifacts.Kind.SMT, () -> append(chunk));
+  }
+
+  private void create() {
+    try {
+      Files.createDirectories(path.toAbsolutePath().getParent());
+      out = Files.newBufferedWriter(path);
+    } catch (IOException ioException) {
+      fail(ioException);
+    }
+  }
+
+  private void append(String chunk) {
+    if (out == null) {
+      return;
+    }
+    try {
+      out.write(chunk);
+    } catch (IOException ioException) {
+      fail(ioException);
+    }
+  }
+
+  private void fail(IOException ioException) {
+    log.warn("Failed to write SMT instance to {}.", path, ioException);
+    failed = true;
+    if (out != null) {
+      try {
+        out.close();
+      } catch (IOException ignored) {
+        // Already failed.
+      }
+      out = null;
+    }
+  }
+
+  @Override
+  public void close() {
+    if (pending == null) {
+      return;
+    }
+    write("(check-sat)");
+    if (pending == null) {
+      return;
+    }
+    ship();
+    pending = null;
+    Artifacts.submit(
+        Artifacts.Kind.SMT,
+        () -> {
+          if (out == null) {
+            return;
+          }
+          try {
+            out.close();
+            log.info("See {}", path);
+          } catch (IOException ioException) {
+            log.warn("Failed to write SMT instance to {}.", path, ioException);
+          }
+          out = null;
+        });
+  }
+}
@@ -8,7 +8,6 @@ import static java.util.Collections.emptyMap;
 import static java.util.Optional.empty;
 import static xyz.leutgeb.lorenz.atlas.util.Util.bug;
 import static xyz.leutgeb.lorenz.atlas.util.Util.flag;
-import static xyz.leutgeb.lorenz.atlas.util.Util.output;
 import static xyz.leutgeb.lorenz.atlas.util.Util.randomHex;
 import static xyz.leutgeb.lorenz.atlas.util.Z3Support.load;
 
@@ -23,30 +22,39 @@ import com.microsoft.z3.RealExpr;
 import com.microsoft.z3.Statistics;
 import com.microsoft.z3.Status;
 import com.microsoft.z3.Z3Exception;
-import java.io.IOException;
-import java.io.PrintStream;
-import java.io.PrintWriter;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
 import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
 import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
+import xyz.leutgeb.lorenz.atlas.util.Artifacts;
 import xyz.leutgeb.lorenz.atlas.util.Pair;
+import xyz.leutgeb.lorenz.atlas.util.Scheduler;
 import xyz.leutgeb.lorenz.atlas.util.Util;
 
 @Slf4j
@@ -120,6 +128,100 @@ public class Solver {
     }
   }
 
+  /**
+   * Keeps one Z3 context (and solver/optimizer) alive across multiple calls to {@link #solve(Set,
+   * Path, List)}. Every call is wrapped in its own scope, so that constraints of one call do not
+   * leak into the next. Solutions of satisfiable calls are asserted once at the base level and the
+   * corresponding constants are reused by all subsequent calls, which then do not need to declare
+   * or re-encode them.
+   *
+   * <p>Z3 contexts are not thread-safe, thus all calls are serialized.
+   */
+  public static class Session implements AutoCloseable {
+    private final Context ctx;
+    private final boolean unsatCore;
+    private final boolean dump;
+    private com.microsoft.z3.Solver solver;
+    private Optimize opt;
+
+    /** Coefficients that were solved by previous calls, and whose value is asserted. */
+    private final Map<UnknownCoefficient, RealExpr> known = new HashMap<>();
+
+    /** Assertions at base level, replayed when the solver or optimizer is created lazily. */
+    private final List<BoolExpr> base = new ArrayList<>();
+
+    public Session(Path outPath) {
+      load(outPath.resolve("z3.log"));
+      this.dump = flag(Solver.class, emptyMap(), "dump");
+      this.unsatCore = !dump;
+      this.ctx = new Context(z3Config(unsatCore));
+    }
+
+    public synchronized Result solve(Set<Constraint> constraints, Path outPath) {
+      return solve(constraints, outPath, emptyList());
+    }
+
+    public synchronized Result solve(
+        Set<Constraint> constraints, Path outPath, List<UnknownCoefficient> target) {
+      final var optimize = !target.isEmpty() && !dump;
+      final Result result;
+      if (optimize) {
+        if (opt == null) {
+          opt = ctx.mkOptimize();
+          opt.Add(base.toArray(BoolExpr[]::new));
+        }
+        opt.Push();
+        try {
+          result =
+              Solver.solve(ctx, null, opt, known, base, constraints, outPath, target, false, dump);
+        } finally {
+          opt.Pop();
+        }
+      } else {
+        if (solver == null) {
+          solver = ctx.mkSolver();
+          solver.add(base.toArray(BoolExpr[]::new));
+        }
+        solver.push();
+        try {
+          result =
+              Solver.solve(
+                  ctx, solver, null, known, base, constraints, outPath, target, unsatCore, dump);
+        } finally {
+          solver.pop();
+        }
+      }
+      result.getSolution().ifPresent(this::commit);
+      return result;
+    }
+
+    private void commit(Map<Coefficient, KnownCoefficient> solution) {
+      final var encoding = new Encoding(ctx);
+      final var assertions = new ArrayList<BoolExpr>();
+      for (var entry : solution.entrySet()) {
+        if (!(entry.getKey() instanceof final UnknownCoefficient unknownCoefficient)) {
+          continue;
+        }
+        final var it = ctx.mkRealConst(unknownCoefficient.getName());
+        assertions.add(ctx.mkEq(it, entry.getValue().encode(encoding)));
+        known.put(unknownCoefficient, it);
+      }
+      base.addAll(assertions);
+      final var added = assertions.toArray(BoolExpr[]::new);
+      if (solver != null) {
+        solver.add(added);
+      }
+      if (opt != null) {
+        opt.Add(added);
+      }
+    }
+
+    @Override
+    public synchronized void close() {
+      ctx.close();
+    }
+  }
+
   private static Map<String, String> z3Config(boolean unsatCore) {
     // Execute `z3 -p` to get a list of parameters.
     // return emptyMap();
@@ -136,9 +238,111 @@ public class Solver {
 
   public static Result solve(
       Set<Constraint> constraints, Path outPath, List<UnknownCoefficient> target) {
-    load(outPath.resolve("z3.log"));
+    return solve(constraints, outPath, target, Budget.UNLIMITED);
+  }
+
+  /**
+   * @param budget limits solving, if it is exceeded the result is {@link Status#UNKNOWN}. Unless
+   *     it was started (see {@link Budget#start()}), every call to Z3 gets the full budget
+   */
+  public static Result solve(
+      Set<Constraint> constraints, Path outPath, List<UnknownCoefficient> target, Budget budget) {
+    final var cache = ResultCache.configured();
+    if (cache.isEmpty() || flag(Solver.class, emptyMap(), "dump")) {
+      return solveUncached(constraints, outPath, target, budget);
+    }
+    final var key = ResultCache.key(constraints, target);
+    final var cached = cache.get().load(key);
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+    final var result = solveUncached(constraints, outPath, target, budget);
+    cache.get().store(key, result);
+    return result;
+  }
+
+  private static Result solveUncached(
+      Set<Constraint> constraints, Path outPath, List<UnknownCoefficient> target, Budget budget) {
+    if (!flag(Solver.class, emptyMap(), "dump") && flag(Solver.class, emptyMap(), "decompose")) {
+      final var components = Components.split(constraints, target);
+      if (components.size() > 1) {
+        return solve(components, outPath, budget);
+      }
+    }
+    return solveSystem(constraints, outPath, target, budget);
+  }
+
+  /**
+   * Solves independent components concurrently, the output of each goes to its own subdirectory of
+   * {@code outPath}. The result is unsatisfiable if any component is, unknown if any other
+   * component is, and otherwise joins the solutions of all components.
+   */
+  private static Result solve(List<Components.Component> components, Path outPath, Budget budget) {
+    log.info("Solving {} independent components", components.size());
+    final var executor =
+        Executors.newFixedThreadPool(Math.min(components.size(), Scheduler.threads()));
+    try {
+      final var futures = new ArrayList<Future<Result>>(components.size());
+      for (int i = 0; i < components.size(); i++) {
+        final var component = components.get(i);
+        final var componentPath = outPath.resolve("component" + i);
+        futures.add(
+            executor.submit(
+                () ->
+                    solveSystem(
+                        component.constraints(), componentPath, component.target(), budget)));
+      }
+
+      final var results = new ArrayList<Result>(futures.size());
+      for (var future : futures) {
+        results.add(future.get());
+      }
 
+      final Map<String, String> statistics = new HashMap<>();
+      statistics.put("components", String.valueOf(components.size()));
+      for (var status : List.of(UNSATISFIABLE, UNKNOWN)) {
+        for (var result : results) {
+          if (result.getStatus().equals(status)) {
+            statistics.putAll(result.getStatistics());
+            return new Result(status, empty(), statistics, result.getSmtFile());
+          }
+        }
+      }
+      // Layers are summed up, so that it is apparent whether all components were fully optimized.
+      for (var layers : List.of("layers", "layers solved")) {
+        results.stream()
+            .map(Result::getStatistics)
+            .filter(it -> it.containsKey(layers))
+            .mapToInt(it -> Integer.parseInt(it.get(layers)))
+            .reduce(Integer::sum)
+            .ifPresent(sum -> statistics.put(layers, String.valueOf(sum)));
+      }
+      final var solution = new HashMap<Coefficient, KnownCoefficient>();
+      results.forEach(result -> solution.putAll(result.getSolution().get()));
+      return new Result(SATISFIABLE, Optional.of(solution), statistics, empty());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Result.unknown();
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Result solveSystem(
+      Set<Constraint> constraints, Path outPath, List<UnknownCoefficient> target, Budget budget) {
     final var dump = flag(Solver.class, emptyMap(), "dump");
+
+    if (!dump && flag(Solver.class, emptyMap(), "simplex")) {
+      final var result = SimplexBackend.solve(constraints, target);
+      if (result.isPresent()) {
+        return result.get();
+      }
+    }
+
+    load(outPath.resolve("z3.log"));
+
     final var wantCore = false;
     final var optimize = wantCore ? false : !target.isEmpty() && !dump;
     final var unsatCore = wantCore ? true : !optimize && !dump;
@@ -146,191 +350,502 @@ public class Solver {
     // This allows more accurate memory measurements, but is dangerous when running in parallel.
     // Native.resetMemory();
 
+    if (!dump) {
+      final var portfolio =
+          Strategy.parseAll(Util.getProperty(Solver.class, "portfolio", ""), optimize);
+      if (portfolio.size() > 1) {
+        return race(portfolio, constraints, outPath, target, optimize, unsatCore, budget);
+      }
+    }
+
     try (final var ctx = new Context(z3Config(unsatCore))) {
-      final com.microsoft.z3.Solver solver = ctx.mkSolver();
       // final Solver solver = ctx.mkTactic("qflia").getSolver();
       // /*domain.getLogic()*/Optional.of("LIA").map(ctx::mkSolver).orElseGet(ctx::mkSolver);
+      return within(
+          budget,
+          ctx,
+          () ->
+              solve(
+                  ctx,
+                  optimize ? null : ctx.mkSolver(),
+                  optimize ? ctx.mkOptimize() : null,
+                  emptyMap(),
+                  emptyList(),
+                  constraints,
+                  outPath,
+                  target,
+                  unsatCore,
+                  dump));
+    }
+  }
 
-      final Optimize opt = optimize ? ctx.mkOptimize() : null;
-
-      final var generatedCoefficients = HashBiMap.<RealExpr, UnknownCoefficient>create();
-
-      final var coefficients = new HashSet<Coefficient>();
-      for (Constraint constraint : constraints) {
-        coefficients.addAll(constraint.occurringCoefficients());
+  /**
+   * Runs {@code solve} such that {@code ctx} is interrupted once the budget is exceeded. Z3 may
+   * report the interruption by exception at any call, which is mapped to {@link Status#UNKNOWN}.
+   */
+  private static Result within(Budget budget, Context ctx, Supplier<Result> solve) {
+    final var watch = budget.watch(ctx);
+    try {
+      return solve.get();
+    } catch (Z3Exception e) {
+      if (!"canceled".equals(e.getMessage())) {
+        throw e;
       }
+      log.warn("Solving was interrupted, budget is {}.", budget);
+      return Result.unknown();
+    } finally {
+      watch.close();
+    }
+  }
 
-      final var trackNonNegative = flag(Solver.class, emptyMap(), "trackNonNegative");
+  /**
+   * Solves the given constraints with all strategies concurrently, each in its own context. The
+   * first result that is not {@link Status#UNKNOWN} is returned, and all other strategies are
+   * interrupted. Output of each strategy goes to its own subdirectory of {@code outPath}.
+   */
+  static Result race(
+      List<Strategy> portfolio,
+      Set<Constraint> constraints,
+      Path outPath,
+      List<UnknownCoefficient> target,
+      boolean optimize,
+      boolean unsatCore) {
+    return race(portfolio, constraints, outPath, target, optimize, unsatCore, Budget.UNLIMITED);
+  }
 
-      for (var coefficient : coefficients) {
-        if (!(coefficient instanceof UnknownCoefficient)) {
-          continue;
-        }
-        final var unknownCoefficient = ((UnknownCoefficient) coefficient).canonical();
-        if (generatedCoefficients.inverse().containsKey(unknownCoefficient)) {
-          continue;
-        }
-        if (!generatedCoefficients.inverse().containsKey(unknownCoefficient)) {
-          final var it = ctx.mkRealConst(unknownCoefficient.getName());
-          if (!unknownCoefficient.isMaybeNegative()) {
-            final var positive = ctx.mkGe(it, ctx.mkReal(0));
-            if (optimize) {
-              opt.Add(positive);
-            } else {
-              if (unsatCore && trackNonNegative) {
-                solver.assertAndTrack(
-                    positive, ctx.mkBoolConst("non negative " + unknownCoefficient));
-              } else {
-                solver.add(positive);
+  /**
+   * Like {@link #race(List, Set, Path, List, boolean, boolean)}, every strategy gets the budget.
+   */
+  static Result race(
+      List<Strategy> portfolio,
+      Set<Constraint> constraints,
+      Path outPath,
+      List<UnknownCoefficient> target,
+      boolean optimize,
+      boolean unsatCore,
+      Budget budget) {
+    log.info("Racing strategies {}", portfolio);
+    // Contexts of strategies that are still running. Guarded by itself, so that contexts are not
+    // interrupted after they were closed.
+    final Set<Context> running = new HashSet<>();
+    final var decided = new AtomicBoolean();
+    final var executor = Executors.newFixedThreadPool(portfolio.size());
+    final var completion = new ExecutorCompletionService<Pair<Strategy, Result>>(executor);
+    for (var strategy : portfolio) {
+      completion.submit(
+          () -> {
+            try (final var ctx = new Context(z3Config(unsatCore))) {
+              synchronized (running) {
+                if (decided.get()) {
+                  return Pair.of(strategy, Result.unknown());
+                }
+                running.add(ctx);
+              }
+              try {
+                return Pair.of(
+                    strategy,
+                    within(
+                        budget,
+                        ctx,
+                        () ->
+                            solve(
+                                ctx,
+                                optimize ? null : strategy.solver(ctx),
+                                optimize ? strategy.optimize(ctx) : null,
+                                emptyMap(),
+                                emptyList(),
+                                constraints,
+                                outPath.resolve(strategy.getName()),
+                                target,
+                                unsatCore,
+                                false)));
+              } finally {
+                synchronized (running) {
+                  running.remove(ctx);
+                }
               }
             }
+          });
+    }
+    executor.shutdown();
+
+    RuntimeException failure = null;
+    int failed = 0;
+    try {
+      for (int i = 0; i < portfolio.size(); i++) {
+        final Pair<Strategy, Result> done;
+        try {
+          done = completion.take().get();
+        } catch (ExecutionException e) {
+          log.warn("Strategy failed.", e.getCause());
+          if (failure == null) {
+            failure = new RuntimeException(e.getCause());
           }
-          generatedCoefficients.inverse().put(unknownCoefficient, it);
+          failed++;
+          continue;
         }
+        if (done.getRight().getStatus().equals(UNKNOWN)) {
+          continue;
+        }
+        log.info("Strategy '{}' decided first.", done.getLeft());
+        final var statistics = new HashMap<>(done.getRight().getStatistics());
+        statistics.put("strategy", done.getLeft().getName());
+        return new Result(
+            done.getRight().getStatus(),
+            done.getRight().getSolution(),
+            statistics,
+            done.getRight().getSmtFile());
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Result.unknown();
+    } finally {
+      stop(running, decided, executor);
+    }
+    if (failed == portfolio.size()) {
+      throw failure;
+    }
+    return Result.unknown();
+  }
 
-      if (optimize) {
-        target.forEach(
-            x -> {
-              if (!generatedCoefficients.inverse().containsKey(x)) {
-                log.warn("Could not find generated coefficient for optimization target '{}'", x);
-              } else {
-                opt.MkMinimize(generatedCoefficients.inverse().get(x));
-              }
-            });
-      }
+  /**
+   * Interrupts all running strategies and waits for them to terminate. Interrupts are repeated,
+   * because a context that is interrupted before it starts checking is not affected.
+   */
+  private static void stop(Set<Context> running, AtomicBoolean decided, ExecutorService executor) {
+    try {
+      do {
+        synchronized (running) {
+          decided.set(true);
+          running.forEach(Context::interrupt);
+        }
+      } while (!executor.awaitTermination(100, TimeUnit.MILLISECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Encodes and checks the given constraints using the given solver (or optimizer, if non-null).
+   * Coefficients contained in {@code known} are reused as they are, i.e. they are neither declared
+   * nor constrained to be non-negative again, and they are not part of the returned solution. The
+   * assertions in {@code base} are only used to make the written SMT instance self-contained, they
+   * must already be asserted.
+   *
+   * <p>The SMT instance is only written if {@code writeInstance} or {@code dump} is set.
+   */
+  private static Result solve(
+      Context ctx,
+      com.microsoft.z3.Solver solver,
+      Optimize opt,
+      Map<UnknownCoefficient, RealExpr> known,
+      List<BoolExpr> base,
+      Set<Constraint> constraints,
+      Path outPath,
+      List<UnknownCoefficient> target,
+      boolean unsatCore,
+      boolean dump) {
+    final Path smtFile = outPath.resolve("instance.smt");
+    try (final var smt =
+        dump || flag(Solver.class, emptyMap(), "writeInstance")
+            ? SmtWriter.open(smtFile)
+            : SmtWriter.none()) {
+      return solve(
+          ctx, solver, opt, known, base, constraints, outPath, target, unsatCore, dump, smt);
+    }
+  }
 
-      for (Constraint c : constraints) {
+  private static Result solve(
+      Context ctx,
+      com.microsoft.z3.Solver solver,
+      Optimize opt,
+      Map<UnknownCoefficient, RealExpr> known,
+      List<BoolExpr> base,
+      Set<Constraint> constraints,
+      Path outPath,
+      List<UnknownCoefficient> target,
+      boolean unsatCore,
+      boolean dump,
+      SmtWriter smt) {
+    final var optimize = opt != null;
+    final Optional<Path> smtFile =
+        smt.isEnabled() ? Optional.of(outPath.resolve("instance.smt")) : empty();
+
+    known.values().forEach(smt::declare);
+    base.forEach(smt::assertion);
+
+    final Presolver presolver;
+    if (flag(Solver.class, emptyMap(), "presolve")) {
+      final var frozen = new HashSet<>(known.keySet());
+      frozen.addAll(target);
+      presolver = Presolver.presolve(constraints, frozen);
+      constraints = presolver.getConstraints();
+    } else {
+      presolver = null;
+    }
+
+    final var generatedCoefficients = HashBiMap.<RealExpr, UnknownCoefficient>create();
+    final var encoding = new Encoding(ctx);
+    final var coefficients = new HashSet<Coefficient>();
+    for (Constraint constraint : constraints) {
+      coefficients.addAll(constraint.occurringCoefficients());
+    }
+
+    final var trackNonNegative = flag(Solver.class, emptyMap(), "trackNonNegative");
+    final var core = new UnsatCore();
+    core.untracked(base);
+
+    for (var coefficient : coefficients) {
+      if (!(coefficient instanceof UnknownCoefficient)) {
+        continue;
+      }
+      final var unknownCoefficient = ((UnknownCoefficient) coefficient).canonical();
+      if (encoding.containsKey(unknownCoefficient)) {
+        continue;
+      }
+      if (known.containsKey(unknownCoefficient)) {
+        encoding.put(unknownCoefficient, known.get(unknownCoefficient));
+        continue;
+      }
+      final var it = ctx.mkRealConst(unknownCoefficient.getName());
+      smt.declare(it);
+      if (!unknownCoefficient.isMaybeNegative()) {
+        final var positive = ctx.mkGe(it, ctx.mkReal(0));
         if (optimize) {
-          opt.Add(c.encode(ctx, generatedCoefficients.inverse()));
+          opt.Add(positive);
+          smt.assertion(positive);
         } else {
-          if (unsatCore) {
-            solver.assertAndTrack(
-                c.encode(ctx, generatedCoefficients.inverse()), ctx.mkBoolConst(c.getTracking()));
+          if (unsatCore && trackNonNegative) {
+            final var tracking = ctx.mkBoolConst("non negative " + unknownCoefficient);
+            solver.assertAndTrack(positive, tracking);
+            core.track(tracking, positive, null);
+            smt.assertion(positive, tracking);
           } else {
-            solver.add(c.encode(ctx, generatedCoefficients.inverse()));
+            solver.add(positive);
+            core.untracked(positive);
+            smt.assertion(positive);
           }
         }
       }
+      generatedCoefficients.inverse().put(unknownCoefficient, it);
+      encoding.put(unknownCoefficient, it);
+    }
 
-      log.info(
-          "Size: "
-              + generatedCoefficients.keySet().size()
-              + " Coefficients, "
-              + constraints.size()
-              + " Constraints"
-              + (optimize ? "" : (", " + solver.getNumScopes() + " Scopes"))
-              + (optimize ? "" : (", " + solver.getNumAssertions() + " Assertions")));
-
-      final Path smtFile = outPath.resolve("instance.smt");
-
-      try (final var out = new PrintWriter(output(smtFile))) {
-        out.println(optimize ? opt : solver);
-        log.info("See {}", smtFile);
-      } catch (IOException ioException) {
-        log.warn("Failed to write SMT instance to {}.", smtFile, ioException);
-        ioException.printStackTrace();
-      }
+    final var staged = optimize && target.size() > 1 && flag(Solver.class, emptyMap(), "staged");
+    final List<RealExpr> objectives = new ArrayList<>();
+    if (optimize) {
+      target.forEach(
+          x -> {
+            if (!encoding.containsKey(x)) {
+              log.warn("Could not find generated coefficient for optimization target '{}'", x);
+            } else {
+              if (!staged) {
+                opt.MkMinimize(encoding.get(x));
+              }
+              objectives.add(encoding.get(x));
+              smt.minimize(encoding.get(x));
+            }
+          });
+    }
 
-      if (dump) {
-        log.info("Exiting because dump was requested.");
-        System.exit(0);
+    // Time spent building Z3 terms, excluding the time it takes to assert them.
+    long encodingNanos = 0;
+    for (Constraint c : constraints) {
+      final var encodingStart = System.nanoTime();
+      final var encoded = c.encode(encoding);
+      encodingNanos += System.nanoTime() - encodingStart;
+      if (optimize) {
+        opt.Add(encoded);
+        smt.assertion(encoded);
+      } else {
+        if (unsatCore) {
+          final var tracking = ctx.mkBoolConst(c.getTracking());
+          solver.assertAndTrack(encoded, tracking);
+          core.track(tracking, encoded, c);
+          smt.assertion(encoded, tracking);
+        } else {
+          solver.add(encoded);
+          smt.assertion(encoded);
+        }
       }
+    }
 
-      var result =
-          optimize
-              ? check(opt::Check, opt::getModel, opt::getUnsatCore, unsatCore, opt::toString)
-              : check(
-                  solver::check,
-                  solver::getModel,
-                  solver::getUnsatCore,
-                  unsatCore,
-                  solver::toString);
+    log.info(
+        "Size: "
+            + generatedCoefficients.keySet().size()
+            + " Coefficients, "
+            + constraints.size()
+            + " Constraints"
+            + (optimize ? "" : (", " + solver.getNumScopes() + " Scopes"))
+            + (optimize ? "" : (", " + solver.getNumAssertions() + " Assertions")));
+    log.info(
+        "Encoding duration: {} ({} shared terms)",
+        Duration.ofNanos(encodingNanos),
+        encoding.getShared());
+
+    if (dump) {
+      smt.close();
+      log.info("Exiting because dump was requested.");
+      System.exit(0);
+    }
 
-      if (optimize && result.getLeft().equals(SATISFIABLE)) {
-        for (Expr objective : opt.getObjectives()) {
-          log.info("Objective: " + objective + " = " + opt.getModel().getConstInterp(objective));
-        }
-      }
+    final var layers = new AtomicInteger();
+    var result =
+        staged
+            ? stage(ctx, opt, objectives, layers)
+            : optimize
+                ? check(opt::Check, opt::getModel, false)
+                : check(solver::check, solver::getModel, unsatCore);
 
-      var stats =
-          statisticsToMapAndFile(optimize ? opt.getStatistics() : solver.getStatistics(), outPath);
+    if (!optimize && unsatCore && result.getLeft().equals(UNSATISFIABLE)) {
+      report(ctx, solver, core);
+    }
 
-      if (!optimize) {
-        stats.put("num scopes", String.valueOf(solver.getNumScopes()));
-        stats.put("num assertions", String.valueOf(solver.getNumAssertions()));
+    if (optimize && result.getLeft().equals(SATISFIABLE)) {
+      for (Expr objective : staged ? objectives.toArray(Expr[]::new) : opt.getObjectives()) {
+        log.info("Objective: " + objective + " = " + result.getRight().get().eval(objective, true));
       }
+    }
 
-      if (!result.getLeft().equals(SATISFIABLE)) {
-        return new Result(result.getLeft(), empty(), stats, Optional.of(smtFile));
+    var stats =
+        statisticsToMapAndFile(optimize ? opt.getStatistics() : solver.getStatistics(), outPath);
+
+    stats.put("encoding", Duration.ofNanos(encodingNanos).toString());
+    stats.put("shared terms", String.valueOf(encoding.getShared()));
+
+    if (staged) {
+      stats.put("layers", String.valueOf(objectives.size()));
+      stats.put("layers solved", String.valueOf(layers.get()));
+    }
+
+    if (!optimize) {
+      stats.put("num scopes", String.valueOf(solver.getNumScopes()));
+      stats.put("num assertions", String.valueOf(solver.getNumAssertions()));
+    }
+
+    if (!result.getLeft().equals(SATISFIABLE)) {
+      return new Result(result.getLeft(), empty(), stats, smtFile);
+    }
+    final Model model = result.getRight().get();
+    final var solution = new HashMap<Coefficient, KnownCoefficient>();
+    for (final var e : generatedCoefficients.entrySet()) {
+      var x = model.getConstInterp(e.getKey());
+      if (x == null) {
+        // Z3 only interprets constants that its model depends on. When solving without
+        // optimization (e.g. as the last resort of budgeted solving), some coefficients may not
+        // be interpreted, but then any value will do, so the model is completed.
+        x = model.eval(e.getKey(), true);
       }
-      final Model model = result.getRight().get();
-      final var solution = new HashMap<Coefficient, KnownCoefficient>();
-      for (final var e : generatedCoefficients.entrySet()) {
-        var x = model.getConstInterp(e.getKey());
-        if (!x.isRatNum()) {
-          log.warn("solution for " + e.getValue() + " is not a rational number, it is " + x);
-        }
-        KnownCoefficient v;
-        if (x instanceof final RatNum xr) {
-          try {
-            var num = xr.getNumerator();
-            if (num.getBigInteger().intValueExact() == 0) {
-              v = KnownCoefficient.ZERO;
-            } else {
-              v = new KnownCoefficient(Util.toFraction(xr));
-            }
-            if (v.getValue().signum() < 0 && !e.getValue().isMaybeNegative()) {
-              log.warn("Got negative coefficient!");
-            }
-            solution.put(e.getValue(), v);
-          } catch (ArithmeticException ae) {
-            log.error("Ignoring value " + xr, ae);
+      if (!x.isRatNum()) {
+        log.warn("solution for " + e.getValue() + " is not a rational number, it is " + x);
+      }
+      KnownCoefficient v;
+      if (x instanceof final RatNum xr) {
+        try {
+          var num = xr.getNumerator();
+          if (num.getBigInteger().intValueExact() == 0) {
+            v = KnownCoefficient.ZERO;
+          } else {
+            v = new KnownCoefficient(Util.toFraction(xr));
           }
-        } else {
-          throw bug("interpretation contains constant of unknown or unexpected type");
+          if (v.getValue().signum() < 0 && !e.getValue().isMaybeNegative()) {
+            log.warn("Got negative coefficient!");
+          }
+          solution.put(e.getValue(), v);
+        } catch (ArithmeticException ae) {
+          log.error("Ignoring value " + xr, ae);
         }
+      } else {
+        throw bug("interpretation contains constant of unknown or unexpected type");
       }
+    }
 
-      if (solution.size() != generatedCoefficients.size()) {
-        log.warn("Partial solution!");
-      }
+    if (solution.size() != generatedCoefficients.size()) {
+      log.warn("Partial solution!");
+    }
 
-      return new Result(result.getLeft(), Optional.of(solution), stats, Optional.of(smtFile));
+    return new Result(
+        result.getLeft(),
+        Optional.of(presolver == null ? solution : presolver.expand(solution)),
+        stats,
+        smtFile);
+  }
+
+  /**
+   * Minimizes the given objectives lexicographically, one at a time. After each layer is solved,
+   * its objective is pinned to the optimum, and the next layer is minimized in the same optimizer.
+   * Every layer gets the timeout configured by {@code layerTimeout}, if any. If a layer other than
+   * the first does not yield a result, the model of the last solved layer is returned, which
+   * satisfies all constraints but is not optimal for the remaining layers.
+   *
+   * @param solved is set to the number of layers that were solved to optimality
+   */
+  static Pair<Status, Optional<Model>> stage(
+      Context ctx, Optimize opt, List<RealExpr> objectives, AtomicInteger solved) {
+    Optional.ofNullable(Util.getProperty(Solver.class, "layerTimeout"))
+        .map(Duration::parse)
+        .ifPresent(
+            timeout -> {
+              final var params = ctx.mkParams();
+              params.add("timeout", (int) Math.min(Integer.MAX_VALUE, timeout.toMillis()));
+              opt.setParameters(params);
+            });
+
+    Pair<Status, Optional<Model>> best = Pair.of(UNKNOWN, empty());
+    for (int i = 0; i < objectives.size(); i++) {
+      final var objective = objectives.get(i);
+      opt.Push();
+      opt.MkMinimize(objective);
+      final var result = check(() -> opt.Check(new BoolExpr[0]), opt::getModel, false);
+      opt.Pop();
+      if (result.getLeft().equals(UNKNOWN) && i > 0) {
+        log.warn(
+            "Layer {} of {} did not yield a result, using the solution of layer {}.",
+            i + 1,
+            objectives.size(),
+            i);
+        return best;
+      }
+      if (!result.getLeft().equals(SATISFIABLE)) {
+        return result;
+      }
+      best = result;
+      solved.set(i + 1);
+      opt.Add(new BoolExpr[] {ctx.mkLe(objective, result.getRight().get().eval(objective, true))});
     }
+    return best;
   }
 
   private static Map<String, String> statisticsToMapAndFile(Statistics statistics, Path outPath) {
-    final Map<String, String> result = new HashMap<>();
+    final Map<String, String> result = new LinkedHashMap<>();
     try {
-      try (final var out = output(outPath.resolve("z3-statistics.txt"))) {
-        final var printer = new PrintStream(out);
-        for (var entry : statistics.getEntries()) {
-          final var value = entry.getValueString();
-          result.put(entry.Key, value);
-          log.trace("{}={}", entry.Key, value);
-          printer.println(entry.Key + "=" + value);
-        }
+      for (var entry : statistics.getEntries()) {
+        final var value = entry.getValueString();
+        result.put(entry.Key, value);
+        log.trace("{}={}", entry.Key, value);
       }
     } catch (Exception exception) {
       // ignored
     }
+    final var lines = List.copyOf(result.entrySet());
+    Artifacts.write(
+        Artifacts.Kind.STATISTICS,
+        outPath.resolve("z3-statistics.txt"),
+        out -> lines.forEach(entry -> out.println(entry.getKey() + "=" + entry.getValue())));
     return result;
   }
 
   private static Pair<Status, Optional<Model>> check(
-      Supplier<Status> check,
-      Supplier<Model> getModel,
-      Supplier<BoolExpr[]> getUnsatCore,
-      boolean unsatCore,
-      Supplier<String> program) {
+      Supplier<Status> check, Supplier<Model> getModel, boolean unsatCore) {
     final var start = Instant.now();
     log.trace("Solving start: " + start);
     Status status = UNKNOWN;
     try {
       status = check.get();
     } catch (Z3Exception e) {
-      if (e.getMessage().equals("maximization suspended")) {
+      // Interruptions, e.g. because the budget was exceeded, are not necessarily reported via
+      // status.
+      if (e.getMessage().equals("maximization suspended") || e.getMessage().equals("canceled")) {
         return Pair.of(UNKNOWN, empty());
       }
       throw e;
@@ -346,21 +861,24 @@ public class Solver {
     log.error("Constraint system is unsatisfiable!");
     if (!unsatCore) {
       log.error("Got no unsat core");
-      return Pair.of(status, Optional.empty());
     }
-    Set<String> coreSet =
-        Arrays.stream(getUnsatCore.get())
-            .map(Object::toString)
-            .map(x -> x.substring(1, x.length() - 1))
-            .collect(Collectors.toSet());
+    return Pair.of(status, empty());
+  }
 
+  /**
+   * Logs the unsatisfiable core of the last check of {@code solver}, and marks the constraints in
+   * it, see {@link Constraint#isCore()}. The core is minimized first if requested.
+   */
+  private static void report(Context ctx, com.microsoft.z3.Solver solver, UnsatCore core) {
+    var literals = solver.getUnsatCore();
+    if (flag(Solver.class, emptyMap(), "minimizeCore")) {
+      literals = core.minimize(ctx, literals);
+    }
+    final var constraints = core.resolve(literals);
+    constraints.forEach(constraint -> constraint.setCore(true));
     log.info(
-        "Unsatisfiable core (raw from Z3):\n{}",
-        Stream.of(program.get().replaceAll("\\n\\s+", " ").split("\n"))
-            .filter(line -> line.contains("assert"))
-            .filter(line -> coreSet.stream().anyMatch(line::contains))
-            .collect(Collectors.joining("\n")));
-
-    return Pair.of(status, empty());
+        "Unsatisfiable core ({} constraints):\n{}",
+        constraints.size(),
+        constraints.stream().map(Constraint::toStringWithReason).collect(Collectors.joining("\n")));
   }
 }
@@ -0,0 +1,104 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static java.util.Collections.emptyMap;
+
+import com.microsoft.z3.Context;
+import com.microsoft.z3.Optimize;
+import com.microsoft.z3.Params;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.Value;
+
+/**
+ * A configuration of Z3 that may be raced against others, see {@link Solver#solve(java.util.Set,
+ * java.nio.file.Path, List)}. Not every strategy applies to both satisfiability and optimization.
+ */
+@Value
+class Strategy {
+  public static final Strategy DEFAULT = new Strategy("default", null, emptyMap(), emptyMap());
+
+  String name;
+
+  /** Logic passed to {@link Context#mkSolver(String)}, may be null. */
+  String logic;
+
+  /** Parameters of the solver, or null if this strategy does not apply to satisfiability. */
+  Map<String, Object> solverParameters;
+
+  /** Parameters of the optimizer, or null if this strategy does not apply to optimization. */
+  Map<String, Object> optimizeParameters;
+
+  /**
+   * Known strategies are "default", "qflra" (solver for the logic QF_LRA), "simplex" (the simplex
+   * based arithmetic solver), "symba" (the SYMBA optimization engine) and "seedN" (the default
+   * solver with random seed N).
+   */
+  static Strategy parse(String name) {
+    if (name.startsWith("seed")) {
+      return new Strategy(
+          name, null, Map.of("random_seed", Integer.parseInt(name.substring(4))), null);
+    }
+    return switch (name) {
+      case "default" -> DEFAULT;
+      case "qflra" -> new Strategy(name, "QF_LRA", emptyMap(), null);
+      case "simplex" -> new Strategy(name, null, Map.of("arith.solver", 2), null);
+      case "symba" -> new Strategy(name, null, null, Map.of("optsmt_engine", "symba"));
+      default -> throw new IllegalArgumentException("unknown strategy '" + name + "'");
+    };
+  }
+
+  /** Parses a comma-separated list of strategies and keeps those that apply. */
+  static List<Strategy> parseAll(String names, boolean optimize) {
+    final var result = new ArrayList<Strategy>();
+    for (var name : names.split(",")) {
+      if (name.isBlank()) {
+        continue;
+      }
+      final var strategy = parse(name.strip());
+      if (strategy.appliesTo(optimize)) {
+        result.add(strategy);
+      }
+    }
+    return result;
+  }
+
+  boolean appliesTo(boolean optimize) {
+    return (optimize ? optimizeParameters : solverParameters) != null;
+  }
+
+  com.microsoft.z3.Solver solver(Context ctx) {
+    final var solver = logic == null ? ctx.mkSolver() : ctx.mkSolver(logic);
+    params(ctx, solverParameters).ifPresent(solver::setParameters);
+    return solver;
+  }
+
+  Optimize optimize(Context ctx) {
+    final var optimize = ctx.mkOptimize();
+    params(ctx, optimizeParameters).ifPresent(optimize::setParameters);
+    return optimize;
+  }
+
+  private static Optional<Params> params(Context ctx, Map<String, Object> parameters) {
+    if (parameters.isEmpty()) {
+      return Optional.empty();
+    }
+    final var params = ctx.mkParams();
+    for (var entry : parameters.entrySet()) {
+      if (entry.getValue() instanceof Integer value) {
+        params.add(entry.getKey(), value);
+      } else if (entry.getValue() instanceof Boolean value) {
+        params.add(entry.getKey(), value);
+      } else {
+        params.add(entry.getKey(), entry.getValue().toString());
+      }
+    }
+    return Optional.of(params);
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,110 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static com.microsoft.z3.Status.SATISFIABLE;
+import static com.microsoft.z3.Status.UNSATISFIABLE;
+
+import com.microsoft.z3.BoolExpr;
+import com.microsoft.z3.Context;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
+
+/**
+ * Remembers which constraint every tracking literal stands for while a constraint system is
+ * asserted, so that an unsatisfiable core reported by Z3 can be mapped back to constraints without
+ * rendering the solver.
+ */
+@Slf4j
+final class UnsatCore {
+  /** Constraints by tracking literal. Literals that do not stand for a constraint map to null. */
+  private final Map<BoolExpr, Constraint> constraints = new HashMap<>();
+
+  /** Assertions by tracking literal. */
+  private final Map<BoolExpr, BoolExpr> assertions = new HashMap<>();
+
+  /** Assertions that are not tracked, i.e. that are part of every core. */
+  private final List<BoolExpr> untracked = new ArrayList<>();
+
+  void track(BoolExpr literal, BoolExpr assertion, Constraint constraint) {
+    constraints.put(literal, constraint);
+    assertions.put(literal, assertion);
+  }
+
+  void untracked(BoolExpr assertion) {
+    untracked.add(assertion);
+  }
+
+  void untracked(List<BoolExpr> assertions) {
+    untracked.addAll(assertions);
+  }
+
+  /**
+   * @return the constraints tracked by the given literals, in the order of the literals. Literals
+   *     that do not stand for a constraint are skipped.
+   */
+  List<Constraint> resolve(BoolExpr[] core) {
+    final var result = new ArrayList<Constraint>(core.length);
+    for (var literal : core) {
+      final var constraint = constraints.get(literal);
+      if (constraint != null) {
+        result.add(constraint);
+      } else if (!constraints.containsKey(literal)) {
+        log.warn("Unsatisfiable core contains unknown literal {}", literal);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Deletion-based core minimization: every literal is dropped in turn, and stays dropped if the
+   * remaining ones are still unsatisfiable. After a successful deletion the core is shrunk further
+   * to the core Z3 reports for the remaining literals.
+   *
+   * <p>All checks run on one fresh solver with the tracked assertions guarded by their literal, so
+   * that only the literals passed as assumptions are in effect.
+   *
+   * @return a minimal subset of the given core, or the given core if minimization was interrupted
+   */
+  BoolExpr[] minimize(Context ctx, BoolExpr[] core) {
+    final var guarded = new ArrayList<BoolExpr>(untracked);
+    for (var literal : core) {
+      final var assertion = assertions.get(literal);
+      if (assertion != null) {
+        guarded.add(ctx.mkImplies(literal, assertion));
+      }
+    }
+    final var solver = ctx.mkSolver();
+    solver.add(guarded.toArray(BoolExpr[]::new));
+
+    final Set<BoolExpr> current = new LinkedHashSet<>(Arrays.asList(core));
+    int checks = 0;
+    for (var literal : core) {
+      if (!current.contains(literal)) {
+        continue;
+      }
+      current.remove(literal);
+      checks++;
+      final var status = solver.check(current.toArray(BoolExpr[]::new));
+      if (UNSATISFIABLE.equals(status)) {
+        current.retainAll(Arrays.asList(solver.getUnsatCore()));
+      } else if (SATISFIABLE.equals(status)) {
+        current.add(literal);
+      } else {
+        log.warn("Minimization of unsatisfiable core was interrupted.");
+        return core;
+      }
+    }
+    log.info(
+        "Minimized unsatisfiable core from {} to {} with {} checks",
+        core.length,
+        current.size(),
+        checks);
+    return current.toArray(BoolExpr[]::new);
+  }
+}
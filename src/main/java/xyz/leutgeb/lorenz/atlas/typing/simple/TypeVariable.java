@@ -38,7 +38,7 @@ public class TypeVariable implements Type {
     }
   }
 
-  protected String getName() {
+  public String getName() {
     return name;
   }
 
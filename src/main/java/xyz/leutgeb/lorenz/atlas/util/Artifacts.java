@@ -0,0 +1,140 @@
+package xyz.leutgeb.lorenz.atlas.util;
+
+import static xyz.leutgeb.lorenz.atlas.util.Util.getProperty;
+import static xyz.leutgeb.lorenz.atlas.util.Util.output;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes by-products of analysis, such as tactics, SMT-LIB scripts, statistics and plots, on a
+ * background thread, so that analysis does not wait for the disk or for Graphviz.
+ *
+ * <p>Tasks are run one at a time in order of submission, so several tasks may append to the same
+ * file. At most {@code queue} tasks are pending. Submitting more blocks until one of them is done.
+ * Tasks that are still pending when the JVM shuts down are run before it exits.
+ *
+ * <p>Every kind of artifact can be switched off by setting the property named after it to {@code
+ * false}. If property {@code async} is {@code false}, tasks are run by the submitting thread.
+ */
+@Slf4j
+public final class Artifacts {
+  public enum Kind {
+    TACTICS,
+    SMT,
+    STATISTICS,
+    PLOTS;
+
+    public boolean isEnabled() {
+      return Boolean.parseBoolean(getProperty(Artifacts.class, name().toLowerCase(), "true"));
+    }
+  }
+
+  private static final int DEFAULT_QUEUE = 64;
+
+  private static final boolean ASYNC =
+      Boolean.parseBoolean(getProperty(Artifacts.class, "async", "true"));
+
+  private static final ThreadPoolExecutor WRITER = writer();
+
+  private Artifacts() {}
+
+  private static ThreadPoolExecutor writer() {
+    final var capacity =
+        Integer.parseInt(getProperty(Artifacts.class, "queue", String.valueOf(DEFAULT_QUEUE)));
+    final var executor =
+        new ThreadPoolExecutor(
+            1,
+            1,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(capacity),
+            runnable -> {
+              final var thread = new Thread(runnable, "artifacts");
+              thread.setDaemon(true);
+              return thread;
+            },
+            (runnable, self) -> {
+              if (self.isShutdown()) {
+                runnable.run();
+                return;
+              }
+              try {
+                self.getQueue().put(runnable);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+              }
+            });
+    Runtime.getRuntime().addShutdownHook(new Thread(Artifacts::shutdown, "artifacts-shutdown"));
+    return executor;
+  }
+
+  /**
+   * Runs the given task on the writer thread, unless the given kind of artifact is switched off.
+   * The task must not depend on state that the submitting thread changes later on.
+   */
+  public static void submit(Kind kind, Runnable task) {
+    if (!kind.isEnabled()) {
+      return;
+    }
+    final Runnable guarded =
+        () -> {
+          try {
+            task.run();
+          } catch (Throwable e) {
+            log.warn("Failed to write {} artifact.", kind, e);
+          }
+        };
+    if (ASYNC) {
+      WRITER.execute(guarded);
+    } else {
+      guarded.run();
+    }
+  }
+
+  /** Writes the given file on the writer thread, see {@link #submit(Kind, Runnable)}. */
+  public static void write(Kind kind, Path path, Content content) {
+    submit(
+        kind,
+        () -> {
+          try (final var out = output(path)) {
+            content.writeTo(out);
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+          log.info("See {}", path);
+        });
+  }
+
+  @FunctionalInterface
+  public interface Content {
+    void writeTo(PrintStream out) throws IOException;
+  }
+
+  /** Waits until all tasks submitted so far are done. */
+  public static void flush() {
+    if (!ASYNC || WRITER.isShutdown()) {
+      return;
+    }
+    CompletableFuture.runAsync(() -> {}, WRITER).join();
+  }
+
+  private static void shutdown() {
+    WRITER.shutdown();
+    try {
+      if (!WRITER.awaitTermination(5, TimeUnit.MINUTES)) {
+        log.warn("Gave up waiting for artifacts to be written.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
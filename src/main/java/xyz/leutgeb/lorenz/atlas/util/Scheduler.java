@@ -1,20 +1,35 @@
 package xyz.leutgeb.lorenz.atlas.util;
 
 import static xyz.leutgeb.lorenz.atlas.util.Util.bug;
+import static xyz.leutgeb.lorenz.atlas.util.Util.getProperty;
 
-import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
-import java.util.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 import javax.annotation.Nonnull;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -22,8 +37,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.jgrapht.Graph;
 import org.jgrapht.GraphTests;
 import org.jgrapht.Graphs;
-import org.jgrapht.util.ModifiableInteger;
+import org.jgrapht.traverse.TopologicalOrderIterator;
 
+/**
+ * Executes tasks associated with the vertices of a DAG, such that a task is only started once the
+ * tasks of all its predecessors have finished (unless the vertex is allowed to "jump" the queue).
+ *
+ * <p>Ready tasks are prioritized by the estimated length of the critical path starting at their
+ * vertex, i.e. the maximum total weight of any path to a sink. Tasks may be subject to a timeout,
+ * and if a task fails, times out, or produces a result that is considered fatal, all its
+ * (transitive) successors are cancelled without being run.
+ */
 @Slf4j
 public class Scheduler<T, V, E> {
   private static final String GRAPH_IS_NOT_A_DAG = "Graph is not a DAG";
@@ -31,15 +55,29 @@ public class Scheduler<T, V, E> {
   private final Graph<V, E> graph;
   private final Set<V> initial;
 
-  private final Map<V, ModifiableInteger> inDegreeMap;
+  /** Number of unfinished predecessors, for vertices that do not jump. */
+  private final Map<V, AtomicInteger> inDegreeMap;
+
   private final Function<V, ? extends Callable<T>> f;
 
-  private final Map<V, Result<T>> results = Collections.synchronizedMap(new HashMap<>());
+  /** Whether the result of a task is fatal, i.e. all successors should be cancelled. */
+  private final Predicate<? super T> fatal;
+
+  /** Estimated length of the critical path starting at each vertex. */
+  private final Map<V, Long> priority;
+
+  /** Vertices that were either scheduled or cancelled. Every vertex is claimed exactly once. */
+  private final Set<V> claimed = ConcurrentHashMap.newKeySet();
+
+  private final Map<V, Result<T>> results = new ConcurrentHashMap<>();
 
-  private int remainingVertices;
-  private ExecutorService executorService = Executors.newFixedThreadPool(8);
-  private ListeningExecutorService listeningExecutorService =
-      MoreExecutors.listeningDecorator(executorService);
+  /** Breaks ties between tasks of equal priority, such that earlier tasks are run first. */
+  private final AtomicInteger sequence = new AtomicInteger();
+
+  private CountDownLatch remainingVertices;
+  private ThreadPoolExecutor executorService;
+  private ScheduledExecutorService timeoutService;
+  private Duration nodeTimeout;
 
   @AllArgsConstructor
   public static class Result<T> {
@@ -93,7 +131,26 @@ public class Scheduler<T, V, E> {
   }
 
   public Scheduler(Graph<V, E> graph, Predicate<V> jump, Function<V, ? extends Callable<T>> f) {
+    this(graph, jump, v -> 1, x -> false, f);
+  }
+
+  public Scheduler(Graph<V, E> graph, Function<V, ? extends Callable<T>> f) {
+    this(graph, v -> false, f);
+  }
+
+  /**
+   * @param jump vertices that may be scheduled regardless of their predecessors
+   * @param weight estimated cost of the task of a vertex, used for prioritization
+   * @param fatal results for which all successors of a vertex are cancelled
+   */
+  public Scheduler(
+      Graph<V, E> graph,
+      Predicate<V> jump,
+      ToLongFunction<V> weight,
+      Predicate<? super T> fatal,
+      Function<V, ? extends Callable<T>> f) {
     this.f = f;
+    this.fatal = fatal;
     GraphTests.requireDirected(graph);
     this.graph = graph;
     this.inDegreeMap = new HashMap<>();
@@ -110,98 +167,218 @@ public class Scheduler<T, V, E> {
           }
           d++;
         }
-        inDegreeMap.put(v, new ModifiableInteger(d));
+        inDegreeMap.put(v, new AtomicInteger(d));
         if (d == 0) {
           initial.add(v);
         }
       }
     }
+
+    // Compute priorities in reverse topological order, so that all successors are done first.
+    final List<V> order = new ArrayList<>(graph.vertexSet().size());
+    try {
+      new TopologicalOrderIterator<>(graph).forEachRemaining(order::add);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(GRAPH_IS_NOT_A_DAG, e);
+    }
+    Collections.reverse(order);
+    this.priority = new HashMap<>();
+    for (V v : order) {
+      long max = 0;
+      for (E e : graph.outgoingEdgesOf(v)) {
+        max = Math.max(max, priority.get(Graphs.getOppositeVertex(graph, e, v)));
+      }
+      priority.put(v, weight.applyAsLong(v) + max);
+    }
   }
 
-  public Scheduler(Graph<V, E> graph, Function<V, ? extends Callable<T>> f) {
-    this.f = f;
-    GraphTests.requireDirected(graph);
-    this.graph = graph;
-    this.inDegreeMap = new HashMap<>();
-    this.initial = new HashSet<>();
-    for (V v : graph.vertexSet()) {
-      int d = 0;
-      for (E e : graph.incomingEdgesOf(v)) {
-        V u = Graphs.getOppositeVertex(graph, e, v);
-        if (v.equals(u)) {
-          throw new IllegalArgumentException(GRAPH_IS_NOT_A_DAG);
+  /** Number of threads to use, configurable via property, defaults to available processors. */
+  public static int threads() {
+    return Integer.parseInt(
+        getProperty(
+            Scheduler.class,
+            "threads",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+  }
+
+  /** Timeout per task, configurable via property (ISO-8601 duration). */
+  public static Optional<Duration> nodeTimeout() {
+    return Optional.ofNullable(getProperty(Scheduler.class, "nodeTimeout")).map(Duration::parse);
+  }
+
+  private class Task extends FutureTask<T> implements Comparable<Task> {
+    private final V v;
+    private final long priority;
+    private final int sequence;
+
+    /** Whether the task was cancelled because it timed out. */
+    private volatile boolean timedOut;
+
+    private Task(V v, int sequence) {
+      super(f.apply(v));
+      this.v = v;
+      this.priority = Scheduler.this.priority.get(v);
+      this.sequence = sequence;
+    }
+
+    @Override
+    public void run() {
+      if (nodeTimeout != null) {
+        final var timeout =
+            timeoutService.schedule(
+                () -> {
+                  if (!isDone()) {
+                    log.warn("Task for {} timed out after {}", v, nodeTimeout);
+                    // Interrupt the task, so that it stops consuming resources. In particular,
+                    // solving with Z3 is interrupted, see Budget#watch.
+                    timedOut = true;
+                    cancel(true);
+                  }
+                },
+                nodeTimeout.toNanos(),
+                TimeUnit.NANOSECONDS);
+        try {
+          super.run();
+        } finally {
+          timeout.cancel(false);
         }
-        d++;
+      } else {
+        super.run();
       }
-      inDegreeMap.put(v, new ModifiableInteger(d));
-      if (d == 0) {
-        initial.add(v);
+    }
+
+    /** Called exactly once, on completion, failure or timeout. */
+    @Override
+    protected void done() {
+      log.trace("Finished {}", v);
+      if (timedOut) {
+        finish(
+            v,
+            new Result<>(
+                new ExecutionException(new TimeoutException("timed out after " + nodeTimeout)),
+                null,
+                null));
+        return;
+      }
+      try {
+        finish(v, Result.fromFuture(this));
+      } catch (InterruptedException e) {
+        // The future is done, so this cannot happen.
+        throw bug("interrupted while retrieving result of finished task");
       }
     }
+
+    @Override
+    public int compareTo(Task other) {
+      // Longer critical paths first, ties broken by submission order.
+      final var result = Long.compare(other.priority, priority);
+      return result != 0 ? result : Integer.compare(sequence, other.sequence);
+    }
   }
 
-  private synchronized void schedule(V v) {
+  private void schedule(V v) {
+    if (!claimed.add(v)) {
+      return;
+    }
     log.trace("Scheduled {}", v);
-    final var listenableFuture =
-        /*
-        listeningExecutorService.submit(
-            () -> {
-              try {
-                f.apply(v);
-              } catch (Throwable t) {
-                //log.error("Error in task", t);
-              }
-            });
-             */
-
-        listeningExecutorService.submit(f.apply(v));
-
-    listenableFuture.addListener(
-        () -> {
-          log.trace("Finished {}", v);
-
-          try {
-            results.put(v, Result.fromFuture(listenableFuture));
-          } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-          }
+    try {
+      executorService.execute(new Task(v, sequence.getAndIncrement()));
+    } catch (RuntimeException e) {
+      // Also catches rejection after shutdown.
+      finish(v, new Result<>(new ExecutionException(e), null, null));
+    }
+  }
 
-          for (E e : graph.outgoingEdgesOf(v)) {
-            V u = Graphs.getOppositeVertex(graph, e, v);
+  private void finish(V v, Result<T> result) {
+    record(v, result);
 
-            synchronized (inDegreeMap) {
-              ModifiableInteger inDegree = inDegreeMap.get(u);
-              if (inDegree != null && inDegree.value > 0) {
-                inDegree.value--;
+    final boolean cancelSuccessors =
+        result.executionException != null
+            || result.cancellationException != null
+            || fatal.test(result.value);
 
-                if (inDegree.value == 0) {
-                  schedule(u);
-                }
-              }
-            }
-          }
+    for (E e : graph.outgoingEdgesOf(v)) {
+      final V u = Graphs.getOppositeVertex(graph, e, v);
+      if (cancelSuccessors) {
+        cancel(u, v);
+        continue;
+      }
+      final var inDegree = inDegreeMap.get(u);
+      if (inDegree != null && inDegree.decrementAndGet() == 0) {
+        schedule(u);
+      }
+    }
+  }
 
-          --remainingVertices;
+  /** Cancels the given vertex and all its successors, unless they were already claimed. */
+  private void cancel(V v, V cause) {
+    if (!claimed.add(v)) {
+      return;
+    }
+    log.trace("Cancelled {} because of {}", v, cause);
+    record(v, new Result<>(null, new CancellationException("cancelled because of " + cause), null));
+    for (E e : graph.outgoingEdgesOf(v)) {
+      cancel(Graphs.getOppositeVertex(graph, e, v), cause);
+    }
+  }
 
-          if (remainingVertices == 0) {
-            executorService.shutdown();
-          }
-        },
-        executorService);
+  private void record(V v, Result<T> result) {
+    if (results.putIfAbsent(v, result) == null) {
+      remainingVertices.countDown();
+    }
   }
 
   public Map<V, Result<T>> run(int nThreads, long timeout, TimeUnit unit)
       throws InterruptedException {
-    executorService = Executors.newFixedThreadPool(nThreads);
-    listeningExecutorService = MoreExecutors.listeningDecorator(executorService);
-    remainingVertices = graph.vertexSet().size();
+    return run(nThreads, null, timeout, unit);
+  }
 
-    for (V v : initial) {
-      schedule(v);
-    }
+  /**
+   * @param nodeTimeout timeout for each task, or {@code null} for no timeout
+   * @param timeout timeout for all tasks, which is considered a bug if exceeded
+   */
+  public Map<V, Result<T>> run(int nThreads, Duration nodeTimeout, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    this.nodeTimeout = nodeTimeout;
+    // Threads are daemons, since tasks that timed out might not react to being interrupted.
+    final var count = new AtomicInteger();
+    executorService =
+        new ThreadPoolExecutor(
+            nThreads,
+            nThreads,
+            0,
+            TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(),
+            runnable -> {
+              final var thread = new Thread(runnable, "scheduler-" + count.getAndIncrement());
+              thread.setDaemon(true);
+              return thread;
+            });
+    timeoutService =
+        nodeTimeout == null
+            ? null
+            : Executors.newSingleThreadScheduledExecutor(
+                runnable -> {
+                  final var thread = new Thread(runnable, "scheduler-timeout");
+                  thread.setDaemon(true);
+                  return thread;
+                });
+    remainingVertices = new CountDownLatch(graph.vertexSet().size());
 
-    if (!executorService.awaitTermination(timeout, unit)) {
-      throw bug("Execution took too long.");
+    try {
+      for (V v : initial) {
+        schedule(v);
+      }
+
+      if (!remainingVertices.await(timeout, unit)) {
+        throw bug("Execution took too long.");
+      }
+    } finally {
+      // Tasks that timed out might still be running, do not wait for them.
+      executorService.shutdownNow();
+      if (timeoutService != null) {
+        timeoutService.shutdownNow();
+      }
     }
     return results;
   }
@@ -177,7 +177,11 @@ public class Util {
   }
 
   public static boolean isSumAtLeastOne(List<Integer> xs) {
-    return xs.stream().reduce(0, Integer::sum) > 0;
+    int sum = 0;
+    for (int x : xs) {
+      sum += x;
+    }
+    return sum > 0;
   }
 
   public static List<Integer> zero(int n) {
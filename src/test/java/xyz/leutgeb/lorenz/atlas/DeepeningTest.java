@@ -0,0 +1,70 @@
+package xyz.leutgeb.lorenz.atlas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static xyz.leutgeb.lorenz.atlas.util.Util.getPropertyName;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.api.parallel.Resources;
+import xyz.leutgeb.lorenz.atlas.ast.Program;
+import xyz.leutgeb.lorenz.atlas.module.Loader;
+import xyz.leutgeb.lorenz.atlas.typing.resources.heuristics.AnnotationHeuristic;
+import xyz.leutgeb.lorenz.atlas.typing.resources.heuristics.SimpleFunctionHeuristic;
+import xyz.leutgeb.lorenz.atlas.typing.resources.heuristics.SmartRangeHeuristic;
+
+@ResourceLock(Resources.SYSTEM_PROPERTIES)
+public class DeepeningTest {
+  private static final String DEEPEN = getPropertyName(Program.class, "deepen");
+
+  /** append and twice are satisfiable with the smallest template, thrice is not. */
+  private static final String FIXTURE =
+      """
+append t u = match t with
+  | leaf -> u
+  | node l x r -> (~ 1 (node l x (append r u)));
+
+twice t = (append t t);
+
+thrice t = (append t (twice t));
+          """;
+
+  private static Set<List<Integer>> shape(Program program, String fqn) {
+    return program
+        .getFunctionDefinitions()
+        .get(fqn)
+        .getInferredSignature()
+        .getAnnotation()
+        .orElseThrow()
+        .withCost
+        .from
+        .coefficientIndices();
+  }
+
+  private static Set<List<Integer>> shape(AnnotationHeuristic heuristic, int size) {
+    return heuristic.generate("x", size).coefficientIndices();
+  }
+
+  @Test
+  public void onlyUnsatisfiableSccsAreWidened() throws Exception {
+    final var program = Loader.atCurrentWorkingDirectory().loadInline(FIXTURE);
+    program.normalize();
+    program.infer();
+    program.unshare(true);
+    program.analyzeSizes();
+
+    System.setProperty(DEEPEN, "true");
+    try {
+      program.solve(new HashMap<>(), new HashMap<>(), true, false, true, Collections.emptySet());
+    } finally {
+      System.clearProperty(DEEPEN);
+    }
+
+    assertEquals(shape(SimpleFunctionHeuristic.DEFAULT, 2), shape(program, "_.append"));
+    assertEquals(shape(SimpleFunctionHeuristic.DEFAULT, 1), shape(program, "_.twice"));
+    assertEquals(shape(SmartRangeHeuristic.DEFAULT, 1), shape(program, "_.thrice"));
+  }
+}
@@ -0,0 +1,59 @@
+package xyz.leutgeb.lorenz.atlas;
+
+import static com.microsoft.z3.Status.SATISFIABLE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static xyz.leutgeb.lorenz.atlas.util.Util.getPropertyName;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.api.parallel.Resources;
+import xyz.leutgeb.lorenz.atlas.module.Loader;
+import xyz.leutgeb.lorenz.atlas.typing.resources.solving.Solver;
+
+@ResourceLock(Resources.SYSTEM_PROPERTIES)
+public class FallbackTest {
+  private static final String TIME_BUDGET = getPropertyName(Solver.class, "timeBudget");
+
+  /**
+   * Optimizing the bounds of twice with the default template takes far longer than the budget,
+   * while cheaper attempts stay well within it.
+   */
+  private static final String FIXTURE =
+      """
+append t u = match t with
+  | leaf -> u
+  | node l x r -> (~ 1 (node l x (append r u)));
+
+twice t = (append t t);
+          """;
+
+  @Test
+  public void fallback() throws Exception {
+    final var program = Loader.atCurrentWorkingDirectory().loadInline(FIXTURE);
+    program.normalize();
+    program.infer();
+    program.unshare(true);
+    program.analyzeSizes();
+
+    final Solver.Result result;
+    System.setProperty(TIME_BUDGET, "PT5S");
+    try {
+      result =
+          program.solve(
+              new HashMap<>(), new HashMap<>(), true, false, false, Collections.emptySet());
+    } finally {
+      System.clearProperty(TIME_BUDGET);
+    }
+
+    final var attempts = List.of(result.getStatistics().get("attempts").split(", "));
+    assertEquals("default", attempts.get(0));
+    // The default attempt yields no definitive result, and the result is the one of a cheaper
+    // attempt.
+    assertTrue(attempts.size() > 1);
+    assertEquals(SATISFIABLE, result.getStatus());
+  }
+}
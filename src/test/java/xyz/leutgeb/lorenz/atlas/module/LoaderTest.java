@@ -0,0 +1,76 @@
+package xyz.leutgeb.lorenz.atlas.module;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static xyz.leutgeb.lorenz.atlas.TestUtil.RESOURCES;
+import static xyz.leutgeb.lorenz.atlas.util.Util.getPropertyName;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.api.parallel.Resources;
+
+@ResourceLock(Resources.SYSTEM_PROPERTIES)
+class LoaderTest {
+  private static final String REACHABLE = getPropertyName(Loader.class, "reachable");
+
+  private static Loader loader(boolean reachable) {
+    System.setProperty(REACHABLE, String.valueOf(reachable));
+    try {
+      return new Loader(RESOURCES.resolve("loader"));
+    } finally {
+      System.clearProperty(REACHABLE);
+    }
+  }
+
+  @Test
+  void modulesAreParsedOnce() throws IOException {
+    final var loader = loader(true);
+    // All three modules require definitions of Util concurrently.
+    final var program = loader.load(Set.of("A.a", "B.b", "C.c"));
+
+    assertEquals(
+        Set.of("A.a", "B.b", "C.c", "Util.id", "Util.left", "Util.right"),
+        program.getFunctionDefinitions().keySet());
+    assertEquals(Set.of("A", "B", "C", "Util"), loader.getModules().keySet());
+    final var util = loader.getModules().get("Util").join();
+    for (var fqn : Set.of("Util.id", "Util.left", "Util.right")) {
+      assertSame(util.get(fqn), loader.getFunctionDefinitions().get(fqn));
+    }
+  }
+
+  @Test
+  void onlyReachableDefinitionsAreIngested() throws IOException {
+    final var loader = loader(true);
+    loader.load("A.a");
+
+    assertEquals(
+        Set.of("A.a", "Util.id", "Util.left"), loader.getFunctionDefinitions().keySet());
+    assertEquals(Set.of("A", "Util"), loader.getModules().keySet());
+  }
+
+  @Test
+  @ResourceLock(Resources.SYSTEM_ERR)
+  void failedModulesAreLogged() throws IOException {
+    final var loader = loader(false);
+    final var err = System.err;
+    final var captured = new ByteArrayOutputStream();
+    final Set<String> loaded;
+    try {
+      System.setErr(new PrintStream(captured, true));
+      // Ingesting all of Util requires Missing, which does not exist.
+      loaded = loader.load("A.a").getFunctionDefinitions().keySet();
+    } finally {
+      System.setErr(err);
+    }
+
+    assertEquals(Set.of("A.a", "Util.id", "Util.left"), loaded);
+    assertTrue(loader.getFunctionDefinitions().containsKey("Util.unreachable"));
+    assertTrue(loader.getModules().get("Missing").isCompletedExceptionally());
+    assertTrue(captured.toString().contains("Failed to load module."));
+  }
+}
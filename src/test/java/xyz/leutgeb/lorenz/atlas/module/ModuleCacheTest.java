@@ -0,0 +1,117 @@
+package xyz.leutgeb.lorenz.atlas.module;
+
+import static java.util.stream.Collectors.joining;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.leutgeb.lorenz.atlas.ast.FunctionDefinition;
+import xyz.leutgeb.lorenz.atlas.ast.expressions.Expression;
+
+class ModuleCacheTest {
+  private static final String MODULE =
+      """
+      insert ∷ Ord a ⇒ (a ⨯ Tree a) → Tree a | [[0 ↦ 1, (1 0) ↦ 1, (0 2) ↦ 1/2] → [0 ↦ 1], {[] → []}]
+      insert x t = match t with
+        | leaf → node leaf x leaf
+        | node l y r → if x < y
+          then let s ≔ insert x l in ~ 1/2 (node s y r)
+          else let c ≔ coin 1/3 in (match c with | (d) → node l y (insert x r));
+
+      right t = match t with
+        | node _ _ r → r;
+      """;
+
+  @TempDir Path search;
+
+  @TempDir Path directory;
+
+  @Test
+  void roundTrip() throws IOException {
+    final var path = search.resolve("M.ml");
+    Files.writeString(path, MODULE);
+    final var cache = new ModuleCache(directory);
+
+    final var parsed = cache.parse(path, "M");
+    final var cached = cache.parse(path, "M");
+
+    assertEquals(1, entries());
+    assertEquals(describe(ModuleParser.parse(MODULE, "M")), describe(cached));
+    assertEquals(describe(parsed), describe(cached));
+  }
+
+  @Test
+  void invalidate() throws IOException {
+    final var path = search.resolve("M.ml");
+    Files.writeString(path, MODULE);
+    final var cache = new ModuleCache(directory);
+    cache.parse(path, "M");
+
+    Files.writeString(path, MODULE.replace("1/3", "1/4"));
+    final var changed = cache.parse(path, "M");
+    assertEquals(2, entries());
+    assertEquals(
+        describe(ModuleParser.parse(MODULE.replace("1/3", "1/4"), "M")), describe(changed));
+
+    try (final var entries = Files.list(directory)) {
+      for (var entry : entries.toList()) {
+        Files.write(entry, new byte[] {1, 2, 3});
+      }
+    }
+    assertEquals(describe(changed), describe(cache.parse(path, "M")));
+  }
+
+  @Test
+  void parserChanged() throws IOException {
+    final var path = search.resolve("M.ml");
+    Files.writeString(path, MODULE);
+    new ModuleCache(directory, new byte[] {1}).parse(path, "M");
+    new ModuleCache(directory, new byte[] {1}).parse(path, "M");
+    assertEquals(1, entries());
+
+    new ModuleCache(directory, new byte[] {2}).parse(path, "M");
+    assertEquals(2, entries());
+  }
+
+  private long entries() throws IOException {
+    try (final var entries = Files.list(directory)) {
+      return entries.count();
+    }
+  }
+
+  private static String describe(List<FunctionDefinition> definitions) {
+    return definitions.stream()
+        .map(
+            definition ->
+                definition.getAnnotatedSignature()
+                    + "\n"
+                    + definition
+                    + "\n"
+                    + describe(definition.getBody()))
+        .collect(joining("\n"));
+  }
+
+  /** Prints the given expression, and the regions its free variables were parsed from. */
+  private static String describe(Expression expression) {
+    final var out = new ByteArrayOutputStream();
+    expression.printTo(new PrintStream(out), 1);
+    return out
+        + "\n"
+        + region(expression)
+        + expression.freeVariables().stream()
+            .map(variable -> variable + " @ " + region(variable))
+            .sorted()
+            .collect(joining(", ", " ", ""));
+  }
+
+  private static String region(Expression expression) {
+    final var source = expression.getSource().toString();
+    return source.substring(source.lastIndexOf(':') + 1);
+  }
+}
@@ -0,0 +1,45 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+
+class IndexMapTest {
+  @Test
+  void behavesLikeHashMap() {
+    final var random = new Random(42);
+    final var expected = new HashMap<List<Integer>, Coefficient>();
+    final var actual = new IndexMap();
+
+    for (int step = 0; step < 10000; step++) {
+      final var key = List.of(random.nextInt(4), random.nextInt(4), random.nextInt(8));
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key), actual.remove(key));
+      } else {
+        final var value = Coefficient.known(random.nextInt(100));
+        assertEquals(expected.put(key, value), actual.put(key, value));
+      }
+      assertEquals(expected.size(), actual.size());
+    }
+
+    assertEquals(expected, actual);
+    assertEquals(expected.hashCode(), actual.hashCode());
+    for (var key : new ArrayList<>(expected.keySet())) {
+      assertEquals(expected.get(key), actual.get(Index.of(key)));
+    }
+    assertNull(actual.get(List.of(5, 5, 5)));
+  }
+
+  @Test
+  void indexEqualsList() {
+    assertEquals(List.of(1, 0, 2), Index.of(1, 0, 2));
+    assertEquals(Index.of(1, 0, 2), List.of(1, 0, 2));
+    assertEquals(List.of(1, 0, 2).hashCode(), Index.of(1, 0, 2).hashCode());
+  }
+}
@@ -0,0 +1,117 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.proving;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jgrapht.Graph;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.leutgeb.lorenz.atlas.module.Loader;
+import xyz.leutgeb.lorenz.atlas.typing.resources.AnnotatingGlobals;
+import xyz.leutgeb.lorenz.atlas.typing.resources.CombinedFunctionAnnotation;
+import xyz.leutgeb.lorenz.atlas.typing.resources.heuristics.SmartRangeHeuristic;
+
+class ProofTreeTest {
+  private static final String FIXTURE =
+      """
+append t u = match t with
+  | leaf -> u
+  | node l x r -> (~ 1 (node l x (append r u)));
+          """;
+
+  @TempDir static Path out;
+
+  private static Obligation root;
+  private static ProofTree proof;
+
+  @BeforeAll
+  static void prove() throws Exception {
+    final var program = Loader.atCurrentWorkingDirectory().loadInline(FIXTURE);
+    program.normalize();
+    program.infer();
+    program.unshare(true);
+    program.analyzeSizes();
+
+    final var fd = program.getFunctionDefinitions().get("_.append");
+    final var heuristic = SmartRangeHeuristic.DEFAULT;
+    final Map<String, CombinedFunctionAnnotation> annotations = new HashMap<>();
+    fd.stubAnnotations(annotations, heuristic, 0, true);
+    final var prover =
+        new Prover(
+            fd.getFullyQualifiedName(),
+            new AnnotatingGlobals(annotations, fd.getSizeAnalysis(), heuristic),
+            out);
+    root = fd.getTypingObligation();
+    prover.prove(root, fd);
+    proof = prover.getProof();
+  }
+
+  /** @return targets of the edges leaving the given obligation, ordered by index */
+  private static List<Obligation> targets(
+      Graph<Obligation, IndexedEdge> graph, Obligation obligation) {
+    return graph.outgoingEdgesOf(obligation).stream()
+        .sorted()
+        .map(graph::getEdgeTarget)
+        .toList();
+  }
+
+  private static List<Obligation> iterate(ProofTree tree) {
+    final var result = new ArrayList<Obligation>();
+    tree.forEach(result::add);
+    return result;
+  }
+
+  @Test
+  void append() {
+    final var obligations = iterate(proof);
+    final var a = obligations.get(0);
+    final var b = obligations.get(1);
+    final var c = obligations.get(2);
+
+    final var tree = new ProofTree();
+    assertEquals(0, tree.add(a));
+    tree.setChildren(a, List.of(c, b));
+    assertEquals(List.of(a, c, b), iterate(tree));
+    // Obligations that are already part of the proof keep their index.
+    assertEquals(0, tree.add(a));
+    assertEquals(2, tree.add(b));
+    assertEquals(3, tree.size());
+
+    assertEquals(List.of(c, b), tree.children(a));
+    assertEquals(List.of(), tree.children(b));
+    assertEquals(List.of(), tree.children(obligations.get(3)));
+    assertFalse(tree.contains(obligations.get(3)));
+
+    final var graph = tree.asGraph();
+    tree.setChildren(c, List.of(obligations.get(3)));
+    assertEquals(List.of(c, b), targets(graph, a));
+    // The graph is a copy.
+    assertEquals(3, graph.vertexSet().size());
+    assertEquals(List.of(), targets(graph, c));
+    assertEquals(List.of(obligations.get(3)), targets(tree.asGraph(), c));
+  }
+
+  @Test
+  void asGraph() {
+    assertEquals(root, proof.iterator().next());
+    assertTrue(proof.contains(root));
+
+    final var graph = proof.asGraph();
+    assertEquals(proof.size(), graph.vertexSet().size());
+    int edges = 0;
+    for (var obligation : proof) {
+      assertEquals(proof.children(obligation), targets(graph, obligation));
+      edges += proof.children(obligation).size();
+    }
+    assertEquals(edges, graph.edgeSet().size());
+    // Every obligation was derived from the root.
+    assertEquals(proof.size() - 1, proof.descendants(root).size());
+  }
+}
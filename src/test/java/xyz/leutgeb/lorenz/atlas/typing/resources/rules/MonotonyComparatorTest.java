@@ -0,0 +1,101 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.rules;
+
+import static com.microsoft.z3.Status.UNSATISFIABLE;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.microsoft.z3.BoolExpr;
+import com.microsoft.z3.Context;
+import com.microsoft.z3.IntExpr;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class MonotonyComparatorTest {
+  @Test
+  void simple() {
+    final var comparator = new MonotonyComparator(2, emptyList(), emptyList(), List.of(1));
+
+    // x0 + 1 ≤ 2x0 + 1, since x0 ≥ 1.
+    assertEquals(Optional.of(true), comparator.lessOrEqual(List.of(1, 0, 1), List.of(2, 0, 1)));
+    // 2x0 ≤ x0 does not hold.
+    assertEquals(Optional.of(false), comparator.lessOrEqual(List.of(2, 0, 0), List.of(1, 0, 0)));
+    // x1 = 1, so 3x1 ≤ 3.
+    assertEquals(Optional.of(true), comparator.lessOrEqual(List.of(0, 3, 0), List.of(0, 0, 3)));
+  }
+
+  @Test
+  void lessThan() {
+    final var comparator =
+        new MonotonyComparator(2, List.<int[]>of(new int[] {0, 1}), emptyList(), emptyList());
+
+    // x0 < x1 implies 2 ≤ x1.
+    assertEquals(Optional.of(true), comparator.lessOrEqual(List.of(0, 0, 2), List.of(0, 1, 0)));
+    // ... but not 3 ≤ x1.
+    assertEquals(Optional.of(false), comparator.lessOrEqual(List.of(0, 0, 3), List.of(0, 1, 0)));
+    // x1 - x0 is unbounded.
+    assertEquals(Optional.of(false), comparator.lessOrEqual(List.of(0, 1, 0), List.of(1, 0, 5)));
+  }
+
+  @Test
+  void agreesWithZ3() {
+    final var random = new Random(42);
+    int decided = 0;
+    try (final var ctx = new Context()) {
+      for (int instance = 0; instance < 200; instance++) {
+        final int size = 1 + random.nextInt(4);
+        final var lt = new ArrayList<int[]>();
+        final var eq = new ArrayList<int[]>();
+        final var one = new ArrayList<Integer>();
+        for (int i = 0; i < size; i++) {
+          switch (random.nextInt(6)) {
+            case 0 -> one.add(i);
+            case 1 -> eq.add(new int[] {i, random.nextInt(size)});
+            case 2 -> lt.add(new int[] {i, random.nextInt(size)});
+            default -> {}
+          }
+        }
+
+        final var solver = ctx.mkSolver();
+        final List<IntExpr> vars =
+            IntStream.range(0, size).mapToObj(i -> ctx.mkIntConst("x" + i)).toList();
+        final var assumptions = new ArrayList<BoolExpr>();
+        vars.forEach(x -> assumptions.add(ctx.mkLe(ctx.mkInt(1), x)));
+        lt.forEach(p -> assumptions.add(ctx.mkLt(vars.get(p[0]), vars.get(p[1]))));
+        eq.forEach(p -> assumptions.add(ctx.mkEq(vars.get(p[0]), vars.get(p[1]))));
+        one.forEach(i -> assumptions.add(ctx.mkEq(vars.get(i), ctx.mkInt(1))));
+        solver.add(assumptions.toArray(BoolExpr[]::new));
+
+        final var comparator = new MonotonyComparator(size, lt, eq, one);
+        final var a = randomPotentialFunction(random, size);
+        final var b = randomPotentialFunction(random, size);
+
+        final var actual = comparator.lessOrEqual(a, b);
+        if (actual.isEmpty()) {
+          continue;
+        }
+        decided++;
+
+        // Products of integer terms are integer terms.
+        final var terms = new IntExpr[size + 1];
+        for (int i = 0; i < size; i++) {
+          terms[i] =
+              (IntExpr) ctx.mkMul(new IntExpr[] {ctx.mkInt(a.get(i) - b.get(i)), vars.get(i)});
+        }
+        terms[size] = ctx.mkInt(a.get(size) - b.get(size));
+        solver.add(new BoolExpr[] {ctx.mkGt(ctx.mkAdd(terms), ctx.mkInt(0))});
+
+        assertEquals(UNSATISFIABLE.equals(solver.check()), actual.get());
+      }
+    }
+    assertTrue(decided > 150);
+  }
+
+  private static List<Integer> randomPotentialFunction(Random random, int size) {
+    return IntStream.rangeClosed(0, size).map(i -> random.nextInt(5) - 2).boxed().toList();
+  }
+}
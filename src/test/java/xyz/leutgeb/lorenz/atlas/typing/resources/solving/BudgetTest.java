@@ -0,0 +1,68 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static com.microsoft.z3.Status.UNKNOWN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+
+import com.microsoft.z3.BoolExpr;
+import com.microsoft.z3.Context;
+import com.microsoft.z3.IntExpr;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class BudgetTest {
+  /** Bounds the test in case the context is not interrupted. */
+  private static final Duration TIMEOUT = Duration.ofSeconds(20);
+
+  /** x³ + y³ = z³ for positive x, y and z, which Z3 can neither satisfy nor refute. */
+  private static com.microsoft.z3.Solver fermat(Context ctx) {
+    final var x = ctx.mkIntConst("x");
+    final var y = ctx.mkIntConst("y");
+    final var z = ctx.mkIntConst("z");
+    final var solver = ctx.mkSolver();
+    solver.add(
+        new BoolExpr[] {
+          ctx.mkGe(x, ctx.mkInt(1)),
+          ctx.mkGe(y, ctx.mkInt(1)),
+          ctx.mkGe(z, ctx.mkInt(1)),
+          ctx.mkEq(
+              ctx.mkAdd(new IntExpr[] {cube(ctx, x), cube(ctx, y)}), cube(ctx, z))
+        });
+    return solver;
+  }
+
+  private static IntExpr cube(Context ctx, IntExpr x) {
+    return (IntExpr) ctx.mkMul(new IntExpr[] {x, x, x});
+  }
+
+  @Test
+  void deadline() {
+    assertTimeout(
+        TIMEOUT,
+        () -> {
+          try (final var ctx = new Context()) {
+            final var solver = fermat(ctx);
+            try (final var watch = new Budget(Duration.ofMillis(200), 0).watch(ctx)) {
+              assertEquals(UNKNOWN, solver.check());
+            }
+          }
+        });
+  }
+
+  @Test
+  void interrupted() {
+    assertTimeout(
+        TIMEOUT,
+        () -> {
+          try (final var ctx = new Context()) {
+            final var solver = fermat(ctx);
+            try (final var watch = Budget.UNLIMITED.watch(ctx)) {
+              Thread.currentThread().interrupt();
+              assertEquals(UNKNOWN, solver.check());
+            } finally {
+              Thread.interrupted();
+            }
+          }
+        });
+  }
+}
@@ -0,0 +1,48 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.ONE;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.TWO;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualsSumConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.LessThanOrEqualConstraint;
+
+class ComponentsTest {
+  private static final UnknownCoefficient X = UnknownCoefficient.raw("x");
+  private static final UnknownCoefficient Y = UnknownCoefficient.raw("y");
+  private static final UnknownCoefficient Z = UnknownCoefficient.raw("z");
+  private static final UnknownCoefficient U = UnknownCoefficient.raw("u");
+  private static final UnknownCoefficient V = UnknownCoefficient.raw("v");
+
+  private static final Set<Constraint> SYSTEM =
+      Set.of(
+          new EqualsSumConstraint(X, List.of(Y, Z.negate()), "x = y - z"),
+          new LessThanOrEqualConstraint(Z, ONE, "z <= 1"),
+          new LessThanOrEqualConstraint(U, V, "u <= v"),
+          new LessThanOrEqualConstraint(ONE, TWO, "1 <= 2"));
+
+  @Test
+  void split() {
+    final var components = Components.split(SYSTEM, List.of(V, X, U), 0);
+    assertEquals(3, components.size());
+    assertEquals(
+        Set.of(List.of(X), List.of(V, U), List.of()),
+        components.stream().map(Components.Component::target).collect(Collectors.toSet()));
+    assertEquals(
+        Set.of(2, 1),
+        components.stream().map(c -> c.constraints().size()).collect(Collectors.toSet()));
+  }
+
+  @Test
+  void bundle() {
+    final var components = Components.split(SYSTEM, List.of(V, X, U), 64);
+    assertEquals(1, components.size());
+    assertEquals(SYSTEM, components.get(0).constraints());
+  }
+}
@@ -0,0 +1,68 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static com.microsoft.z3.Status.SATISFIABLE;
+import static com.microsoft.z3.Status.UNSATISFIABLE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.ONE;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.TWO;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.LessThanOrEqualConstraint;
+
+class PortfolioTest {
+  private static final List<Strategy> PORTFOLIO =
+      Strategy.parseAll("default,qflra,simplex,seed1,symba", false);
+
+  private static final UnknownCoefficient X = UnknownCoefficient.raw("x");
+
+  @TempDir Path out;
+
+  @Test
+  void optimize() {
+    final var result =
+        Solver.race(
+            Strategy.parseAll("default,qflra,symba", true),
+            Set.of(new LessThanOrEqualConstraint(TWO, X, "2 <= x")),
+            out,
+            List.of(X),
+            true,
+            false);
+    assertEquals(SATISFIABLE, result.getStatus());
+    assertEquals(TWO, result.getSolution().get().get(X));
+    assertTrue(Set.of("default", "symba").contains(result.getStatistics().get("strategy")));
+  }
+
+  @Test
+  void unsatisfiable() {
+    final var result =
+        Solver.race(
+            PORTFOLIO,
+            Set.of(
+                new LessThanOrEqualConstraint(TWO, X, "2 <= x"),
+                new LessThanOrEqualConstraint(X, ONE, "x <= 1")),
+            out,
+            List.of(),
+            false,
+            true);
+    assertEquals(UNSATISFIABLE, result.getStatus());
+    assertTrue(result.getStatistics().containsKey("strategy"));
+  }
+
+  @Test
+  void parse() {
+    assertEquals(
+        List.of("default", "qflra", "seed7"),
+        Strategy.parseAll("default, qflra,symba,seed7", false).stream()
+            .map(Strategy::getName)
+            .toList());
+    assertEquals(
+        List.of(Strategy.DEFAULT, Strategy.parse("symba")),
+        Strategy.parseAll("default,qflra,symba", true));
+  }
+}
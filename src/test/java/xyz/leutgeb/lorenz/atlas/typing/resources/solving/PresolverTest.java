@@ -0,0 +1,105 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static com.microsoft.z3.Status.UNSATISFIABLE;
+import static java.util.Collections.emptySet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.ONE;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.TWO;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.ZERO;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.hipparchus.fraction.Fraction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualityConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualsProductConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualsSumConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.LessThanOrEqualConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.OffsetConstraint;
+
+class PresolverTest {
+  private static final UnknownCoefficient X = UnknownCoefficient.raw("x");
+  private static final UnknownCoefficient Y = UnknownCoefficient.raw("y");
+  private static final UnknownCoefficient Z = UnknownCoefficient.raw("z");
+  private static final UnknownCoefficient W = UnknownCoefficient.raw("w");
+
+  @Test
+  void chains() {
+    final var presolver =
+        Presolver.presolve(
+            Set.of(
+                new EqualityConstraint(X, Y, "x = y"),
+                new OffsetConstraint(Z, Y, Fraction.ONE, "z = y + 1"),
+                new EqualsSumConstraint(W, List.of(Y, ONE, ZERO), "w = y + 1 + 0"),
+                new LessThanOrEqualConstraint(W, Z, "w <= z")),
+            emptySet());
+
+    // Offsets and sums between unknowns are kept, but x and y are merged.
+    assertEquals(3, presolver.getConstraints().size());
+    assertEquals(
+        3,
+        presolver.getConstraints().stream()
+            .flatMap(constraint -> constraint.occurringCoefficients().stream())
+            .filter(UnknownCoefficient.class::isInstance)
+            .distinct()
+            .count());
+
+    final var solution = presolver.expand(Map.of(X, ONE, Y, ONE, Z, TWO, W, TWO));
+    assertEquals(solution.get(X), solution.get(Y));
+  }
+
+  @Test
+  void folding() {
+    final var presolver =
+        Presolver.presolve(
+            Set.of(
+                new EqualsProductConstraint(X, List.of(TWO, Y), "x = 2 * y"),
+                new EqualityConstraint(Y, ONE, "y = 1"),
+                new EqualsSumConstraint(Z, List.of(X, Y), "z = x + y")),
+            emptySet());
+
+    assertTrue(presolver.getConstraints().isEmpty());
+
+    final var solution = presolver.expand(Map.of());
+    assertEquals(TWO, solution.get(X));
+    assertEquals(new KnownCoefficient(new Fraction(3)), solution.get(Z));
+  }
+
+  @Test
+  void frozen() {
+    final var presolver =
+        Presolver.presolve(Set.of(new EqualityConstraint(X, ONE, "x = 1")), Set.of(X));
+    assertEquals(1, presolver.getConstraints().size());
+  }
+
+  @Test
+  void contradictionsAreKept() {
+    final var presolver =
+        Presolver.presolve(
+            Set.of(
+                new EqualityConstraint(X, ONE, "x = 1"), new EqualityConstraint(X, TWO, "x = 2")),
+            emptySet());
+    assertEquals(1, presolver.getConstraints().size());
+  }
+
+  @Test
+  void knownOffsetContradictionsAreKept(@TempDir Path out) {
+    final var presolver =
+        Presolver.presolve(
+            Set.of(
+                new EqualityConstraint(X, TWO, "x = 2"),
+                new EqualityConstraint(Y, TWO, "y = 2"),
+                new OffsetConstraint(X, Y, Fraction.ONE, "x = y + 1")),
+            emptySet());
+
+    // Rewritten to 2 = 2 + 1, which is known but not satisfied.
+    assertEquals(1, presolver.getConstraints().size());
+    assertEquals(UNSATISFIABLE, Solver.solve(presolver.getConstraints(), out).getStatus());
+  }
+}
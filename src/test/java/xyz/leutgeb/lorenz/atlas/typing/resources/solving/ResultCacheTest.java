@@ -0,0 +1,142 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static com.microsoft.z3.Status.SATISFIABLE;
+import static java.util.Optional.empty;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.ONE;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.THREE;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.TWO;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.ZERO;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Coefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.ConjunctiveConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.DisjunctiveConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualityConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualsSumConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.LessThanOrEqualConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.UnsatisfiableConstraint;
+
+class ResultCacheTest {
+  @TempDir Path directory;
+
+  /** x = y + z, z ≤ 1, (y = 0 ∨ y = 2), with elements in the given order. */
+  private static Set<Constraint> system(
+      UnknownCoefficient x, UnknownCoefficient y, UnknownCoefficient z, boolean reverse) {
+    final var first = new EqualityConstraint(y, ZERO, "y = 0");
+    final var second = new EqualityConstraint(y, TWO, "y = 2");
+    return Set.of(
+        new ConjunctiveConstraint(
+            List.of(
+                new EqualsSumConstraint(x, List.of(y, z), "x = y + z"),
+                new LessThanOrEqualConstraint(z, ONE, "z ≤ 1")),
+            "conjunction"),
+        new DisjunctiveConstraint(
+            reverse ? List.of(second, first) : List.of(first, second), "disjunction"));
+  }
+
+  @Test
+  void renaming() {
+    final var x = UnknownCoefficient.raw("x");
+    final var a = UnknownCoefficient.raw("a");
+    final var b = UnknownCoefficient.raw("b");
+    final var c = UnknownCoefficient.raw("c");
+
+    final var key =
+        ResultCache.key(
+            system(x, UnknownCoefficient.raw("y"), UnknownCoefficient.raw("z"), false), List.of(x));
+    final var renamed = ResultCache.key(system(a, b, c, true), List.of(a));
+    assertEquals(key.hash(), renamed.hash());
+    assertNotEquals(key.hash(), ResultCache.key(system(a, b, c, true), List.of(b)).hash());
+
+    final var cache = new ResultCache(directory);
+    final Map<Coefficient, KnownCoefficient> solution =
+        Map.of(x, THREE, UnknownCoefficient.raw("y"), TWO, UnknownCoefficient.raw("z"), ONE);
+    cache.store(key, new Solver.Result(SATISFIABLE, Optional.of(solution), Map.of(), empty()));
+
+    final var loaded = cache.load(renamed).orElseThrow();
+    assertEquals(Map.of(a, THREE, b, TWO, c, ONE), loaded.getSolution().orElseThrow());
+  }
+
+  @Test
+  void invalid() {
+    final var x = UnknownCoefficient.raw("x");
+    final var y = UnknownCoefficient.raw("y");
+    final var z = UnknownCoefficient.raw("z");
+    final var key = ResultCache.key(system(x, y, z, false), List.of());
+    final var cache = new ResultCache(directory);
+    cache.store(
+        key,
+        new Solver.Result(
+            SATISFIABLE, Optional.of(Map.of(x, THREE, y, ONE, z, TWO)), Map.of(), empty()));
+    assertTrue(cache.load(key).isEmpty());
+  }
+
+  @Test
+  void reasonsAreIgnored() {
+    final var x = UnknownCoefficient.raw("x");
+    final var y = UnknownCoefficient.raw("y");
+    final var a = UnknownCoefficient.raw("a");
+    final var b = UnknownCoefficient.raw("b");
+    assertEquals(
+        ResultCache.key(
+                Set.of(
+                    new DisjunctiveConstraint(
+                        List.of(new EqualityConstraint(x, y, "x = y")), "because of x")),
+                List.of(x))
+            .hash(),
+        ResultCache.key(
+                Set.of(
+                    new DisjunctiveConstraint(
+                        List.of(new EqualityConstraint(a, b, "a = b")), "because of a")),
+                List.of(a))
+            .hash());
+  }
+
+  @Test
+  void unsatisfiable() {
+    final var x = UnknownCoefficient.raw("x");
+    final var a = UnknownCoefficient.raw("a");
+    assertEquals(
+        ResultCache.key(
+                Set.of(
+                    new UnsatisfiableConstraint("because of x"),
+                    new EqualityConstraint(x, ONE, "x = 1")),
+                List.of(x))
+            .hash(),
+        ResultCache.key(
+                Set.of(
+                    new UnsatisfiableConstraint("because of a"),
+                    new EqualityConstraint(a, ONE, "a = 1")),
+                List.of(a))
+            .hash());
+  }
+
+  @Test
+  void partiallyOptimized() {
+    final var x = UnknownCoefficient.raw("x");
+    final var y = UnknownCoefficient.raw("y");
+    final var z = UnknownCoefficient.raw("z");
+    final var key = ResultCache.key(system(x, y, z, false), List.of(x, y));
+    final var cache = new ResultCache(directory);
+    cache.store(
+        key,
+        new Solver.Result(
+            SATISFIABLE,
+            Optional.of(Map.of(x, THREE, y, TWO, z, ONE)),
+            Map.of("layers", "2", "layers solved", "1"),
+            empty()));
+    assertTrue(cache.load(key).isEmpty());
+  }
+}
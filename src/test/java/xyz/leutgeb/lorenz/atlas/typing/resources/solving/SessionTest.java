@@ -0,0 +1,54 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static com.microsoft.z3.Status.SATISFIABLE;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.TWO;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualityConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.LessThanOrEqualConstraint;
+
+class SessionTest {
+  private static final UnknownCoefficient X = UnknownCoefficient.raw("x");
+  private static final UnknownCoefficient Y = UnknownCoefficient.raw("y");
+
+  @TempDir Path out;
+
+  @Test
+  void dependentSystems() {
+    final Set<Constraint> first = Set.of(new EqualityConstraint(X, TWO, "x = 2"));
+    // Minimizing y alone would yield 0, unless x is known.
+    final Set<Constraint> second = Set.of(new LessThanOrEqualConstraint(X, Y, "x ≤ y"));
+
+    final Solver.Result firstResult;
+    final Solver.Result secondResult;
+    // The first system is solved without optimization, the second with, so that the optimizer is
+    // created after the solution of the first system was committed.
+    try (final var session = new Solver.Session(out)) {
+      firstResult = session.solve(first, out.resolve("first"), emptyList());
+      secondResult = session.solve(second, out.resolve("second"), List.of(Y));
+    }
+
+    assertEquals(SATISFIABLE, firstResult.getStatus());
+    assertEquals(TWO, firstResult.getSolution().orElseThrow().get(X));
+    assertEquals(SATISFIABLE, secondResult.getStatus());
+    assertEquals(TWO, secondResult.getSolution().orElseThrow().get(Y));
+
+    final var together = new HashSet<>(first);
+    together.addAll(second);
+    final var expected = Solver.solve(together, out.resolve("together"), List.of(Y));
+    assertEquals(
+        expected.getSolution().orElseThrow().get(Y), secondResult.getSolution().orElseThrow().get(Y));
+    assertEquals(
+        Solver.solve(first, out.resolve("alone")).getSolution().orElseThrow().get(X),
+        firstResult.getSolution().orElseThrow().get(X));
+  }
+}
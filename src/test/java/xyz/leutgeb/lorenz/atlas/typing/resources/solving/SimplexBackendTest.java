@@ -0,0 +1,75 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static com.microsoft.z3.Status.SATISFIABLE;
+import static com.microsoft.z3.Status.UNSATISFIABLE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.ONE;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.THREE;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.THREE_BY_TWO;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.TWO;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.ZERO;
+
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.DisjunctiveConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualityConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualsProductConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.EqualsSumConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.LessThanOrEqualConstraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.OffsetConstraint;
+
+class SimplexBackendTest {
+  private static final UnknownCoefficient X = UnknownCoefficient.raw("x");
+  private static final UnknownCoefficient Y = UnknownCoefficient.raw("y");
+  private static final UnknownCoefficient Z = UnknownCoefficient.raw("z");
+  private static final UnknownCoefficient S = UnknownCoefficient.raw("s");
+  private static final UnknownCoefficient W = UnknownCoefficient.raw("w");
+
+  @Test
+  void lexicographic() {
+    final var result =
+        SimplexBackend.solve(
+                Set.of(
+                    new EqualsSumConstraint(S, List.of(X, Y), "s = x + y"),
+                    new LessThanOrEqualConstraint(TWO, S, "2 <= s"),
+                    new OffsetConstraint(Z, X.negate(), THREE, "z = -x + 3"),
+                    new EqualsProductConstraint(W, List.of(THREE_BY_TWO, Y), "w = 3/2 · y")),
+                List.of(X, Y))
+            .orElseThrow();
+    assertEquals(SATISFIABLE, result.getStatus());
+    final var solution = result.getSolution().orElseThrow();
+    assertEquals(ZERO, solution.get(X));
+    assertEquals(TWO, solution.get(Y));
+    assertEquals(THREE, solution.get(Z));
+    assertEquals(THREE, solution.get(W));
+  }
+
+  @Test
+  void unsatisfiable() {
+    final var result =
+        SimplexBackend.solve(
+                Set.of(
+                    new LessThanOrEqualConstraint(TWO, X, "2 <= x"),
+                    new EqualityConstraint(X, ONE, "x = 1")),
+                List.of())
+            .orElseThrow();
+    assertEquals(UNSATISFIABLE, result.getStatus());
+  }
+
+  @Test
+  void disjunctive() {
+    assertTrue(
+        SimplexBackend.solve(
+                Set.of(
+                    new DisjunctiveConstraint(
+                        List.of(
+                            new EqualityConstraint(X, ONE, "x = 1"),
+                            new EqualityConstraint(X, TWO, "x = 2")),
+                        "x = 1 or x = 2")),
+                List.of(X))
+            .isEmpty());
+  }
+}
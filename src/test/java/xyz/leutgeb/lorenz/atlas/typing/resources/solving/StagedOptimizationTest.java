@@ -0,0 +1,48 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static com.microsoft.z3.Status.SATISFIABLE;
+import static com.microsoft.z3.Status.UNSATISFIABLE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.microsoft.z3.BoolExpr;
+import com.microsoft.z3.Context;
+import com.microsoft.z3.RealExpr;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class StagedOptimizationTest {
+  @Test
+  void lexicographic() {
+    try (final var ctx = new Context()) {
+      final var x = ctx.mkRealConst("x");
+      final var y = ctx.mkRealConst("y");
+      final var opt = ctx.mkOptimize();
+      opt.Add(
+          new BoolExpr[] {
+            ctx.mkGe(ctx.mkAdd(new RealExpr[] {x, y}), ctx.mkReal(2)),
+            ctx.mkGe(x, ctx.mkReal(0)),
+            ctx.mkGe(y, ctx.mkReal(1))
+          });
+      final var solved = new AtomicInteger();
+      final var result = Solver.stage(ctx, opt, List.of(y, x), solved);
+      assertEquals(SATISFIABLE, result.getLeft());
+      assertEquals(2, solved.get());
+      final var model = result.getRight().get();
+      assertEquals(ctx.mkReal(1), model.eval(y, true));
+      assertEquals(ctx.mkReal(1), model.eval(x, true));
+    }
+  }
+
+  @Test
+  void unsatisfiable() {
+    try (final var ctx = new Context()) {
+      final var x = ctx.mkRealConst("x");
+      final var opt = ctx.mkOptimize();
+      opt.Add(new BoolExpr[] {ctx.mkGe(x, ctx.mkReal(2)), ctx.mkLe(x, ctx.mkReal(1))});
+      final var solved = new AtomicInteger();
+      assertEquals(UNSATISFIABLE, Solver.stage(ctx, opt, List.of(x, x), solved).getLeft());
+      assertEquals(0, solved.get());
+    }
+  }
+}
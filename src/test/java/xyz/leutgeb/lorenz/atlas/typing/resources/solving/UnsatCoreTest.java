@@ -0,0 +1,65 @@
+package xyz.leutgeb.lorenz.atlas.typing.resources.solving;
+
+import static com.microsoft.z3.Status.UNSATISFIABLE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.ONE;
+import static xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.KnownCoefficient.TWO;
+
+import com.microsoft.z3.Context;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.Encoding;
+import xyz.leutgeb.lorenz.atlas.typing.resources.coefficients.UnknownCoefficient;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.Constraint;
+import xyz.leutgeb.lorenz.atlas.typing.resources.constraints.LessThanOrEqualConstraint;
+
+class UnsatCoreTest {
+  private static final UnknownCoefficient X = UnknownCoefficient.raw("x");
+  private static final UnknownCoefficient Y = UnknownCoefficient.raw("y");
+
+  @TempDir Path out;
+
+  @Test
+  void minimize() {
+    final List<Constraint> system =
+        List.of(
+            new LessThanOrEqualConstraint(TWO, X, "2 <= x"),
+            new LessThanOrEqualConstraint(X, Y, "x <= y"),
+            new LessThanOrEqualConstraint(Y, ONE, "y <= 1"),
+            new LessThanOrEqualConstraint(X, ONE, "x <= 1"));
+
+    try (final var ctx = new Context(Map.of("unsat_core", "true"))) {
+      final var encoding = new Encoding(ctx);
+      encoding.put(X, ctx.mkRealConst("x"));
+      encoding.put(Y, ctx.mkRealConst("y"));
+      final var solver = ctx.mkSolver();
+      final var core = new UnsatCore();
+      for (var constraint : system) {
+        final var literal = ctx.mkBoolConst(constraint.getTracking());
+        final var encoded = constraint.encode(encoding);
+        solver.assertAndTrack(encoded, literal);
+        core.track(literal, encoded, constraint);
+      }
+      assertEquals(UNSATISFIABLE, solver.check());
+
+      final var minimal = core.resolve(core.minimize(ctx, solver.getUnsatCore()));
+      assertEquals(2, minimal.size());
+      assertTrue(minimal.contains(system.get(0)));
+    }
+  }
+
+  @Test
+  void report() {
+    final var smaller = new LessThanOrEqualConstraint(TWO, X, "2 <= x");
+    final var bigger = new LessThanOrEqualConstraint(X, ONE, "x <= 1");
+    final var unrelated = new LessThanOrEqualConstraint(Y, ONE, "y <= 1");
+    assertEquals(UNSATISFIABLE, Solver.solve(Set.of(smaller, bigger, unrelated), out).getStatus());
+    assertTrue(smaller.isCore());
+    assertTrue(bigger.isCore());
+  }
+}
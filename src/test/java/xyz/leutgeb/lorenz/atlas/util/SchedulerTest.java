@@ -0,0 +1,95 @@
+package xyz.leutgeb.lorenz.atlas.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.junit.jupiter.api.Test;
+
+class SchedulerTest {
+  /** a → b → d, a → c → d */
+  private static Graph<String, DefaultEdge> diamond() {
+    final var graph = new SimpleDirectedGraph<String, DefaultEdge>(DefaultEdge.class);
+    List.of("a", "b", "c", "d").forEach(graph::addVertex);
+    graph.addEdge("a", "b");
+    graph.addEdge("a", "c");
+    graph.addEdge("b", "d");
+    graph.addEdge("c", "d");
+    return graph;
+  }
+
+  @Test
+  void criticalPathFirst() throws InterruptedException {
+    final var order = new CopyOnWriteArrayList<String>();
+    final var scheduler =
+        new Scheduler<String, String, DefaultEdge>(
+            diamond(),
+            v -> false,
+            v -> v.equals("c") ? 10 : 1,
+            x -> false,
+            v ->
+                () -> {
+                  order.add(v);
+                  return v;
+                });
+
+    final var results = scheduler.run(1, 1, TimeUnit.MINUTES);
+
+    assertEquals(List.of("a", "c", "b", "d"), order);
+    assertEquals(4, results.size());
+    assertEquals("d", results.get("d").orElseThrow());
+  }
+
+  @Test
+  void fatalResultCancelsDependents() throws InterruptedException {
+    final var scheduler =
+        new Scheduler<String, String, DefaultEdge>(
+            diamond(), v -> false, v -> 1, "b"::equals, v -> () -> v);
+
+    final Map<String, Scheduler.Result<String>> results = scheduler.run(2, 1, TimeUnit.MINUTES);
+
+    assertEquals("c", results.get("c").orElseThrow());
+    assertNotNull(results.get("d").getCancellationException());
+  }
+
+  @Test
+  void timeoutCancelsDependents() throws InterruptedException {
+    final var interrupted = new CountDownLatch(1);
+    final var scheduler =
+        new Scheduler<String, String, DefaultEdge>(
+            diamond(),
+            v -> false,
+            v -> 1,
+            x -> false,
+            v ->
+                () -> {
+                  if (v.equals("c")) {
+                    try {
+                      Thread.sleep(Duration.ofMinutes(1).toMillis());
+                    } catch (InterruptedException e) {
+                      interrupted.countDown();
+                      throw e;
+                    }
+                  }
+                  return v;
+                });
+
+    final var results = scheduler.run(2, Duration.ofMillis(100), 1, TimeUnit.MINUTES);
+
+    assertInstanceOf(TimeoutException.class, results.get("c").getExecutionException().getCause());
+    assertNotNull(results.get("d").getCancellationException());
+    assertEquals("b", results.get("b").orElseThrow());
+    assertTrue(interrupted.await(1, TimeUnit.MINUTES));
+  }
+}
@@ -0,0 +1 @@
+a t = (Util.left (Util.id t));
@@ -0,0 +1 @@
+b t = (Util.right (Util.id t));
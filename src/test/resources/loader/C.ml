@@ -0,0 +1 @@
+c t = (Util.left (Util.right t));
@@ -0,0 +1,11 @@
+id t = t;
+
+left t = match t with
+  | leaf -> leaf
+  | node l x r -> l;
+
+right t = match t with
+  | leaf -> leaf
+  | node l x r -> r;
+
+unreachable t = (Missing.f t);